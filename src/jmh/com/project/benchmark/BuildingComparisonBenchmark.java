@@ -0,0 +1,48 @@
+package jmh.com.project.benchmark;
+
+import com.project.bean.Building;
+import com.project.heap.MinHeap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * Compares the cost of ordering two buildings through {@link Building#isExecutionTimeLessAsComparedTo(Building)} with
+ * the cost of comparing their packed heap keys.
+ */
+@State(Scope.Thread)
+public class BuildingComparisonBenchmark {
+    private static final int COUNT = 1024;
+    private Building[] buildings;
+    private long[] keys;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        buildings = new Building[COUNT];
+        keys = new long[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            //few distinct execution times, so that the building numbers often break the tie.
+            buildings[i] = new Building(random.nextInt(), 5 * random.nextInt(4), 1000);
+            keys[i] = MinHeap.packKey(buildings[i].getExecutedTime(), buildings[i].getBuildingNumber());
+        }
+    }
+
+    @Benchmark
+    public boolean isExecutionTimeLessAsComparedTo() {
+        int i = next;
+        next = (next + 1) & (COUNT - 1);
+        return buildings[i].isExecutionTimeLessAsComparedTo(buildings[next]);
+    }
+
+    @Benchmark
+    public boolean packedKeyLess() {
+        int i = next;
+        next = (next + 1) & (COUNT - 1);
+        return keys[i] < keys[next];
+    }
+}
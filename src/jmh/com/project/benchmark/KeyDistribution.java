@@ -0,0 +1,83 @@
+package jmh.com.project.benchmark;
+
+import java.util.Random;
+
+/**
+ * The distributions of the building numbers used by the benchmarks. Every distribution gives distinct numbers.
+ */
+public enum KeyDistribution {
+    /**
+     * The numbers 0, 1, 2, ... in increasing order.
+     */
+    SEQUENTIAL {
+        @Override
+        int[] keys(int size, Random random) {
+            int[] keys = new int[size];
+            for (int i = 0; i < size; i++) {
+                keys[i] = i;
+            }
+            return keys;
+        }
+    },
+    /**
+     * Numbers spread over the whole positive range, in random order.
+     */
+    RANDOM {
+        @Override
+        int[] keys(int size, Random random) {
+            //every number gets a distinct high part, so the numbers are distinct without a set to check them.
+            int stride = Integer.MAX_VALUE / size;
+            int[] keys = new int[size];
+            for (int i = 0; i < size; i++) {
+                keys[i] = i * stride + random.nextInt(stride);
+            }
+            shuffle(keys, random);
+            return keys;
+        }
+    },
+    /**
+     * Runs of consecutive numbers which start at random places, in random order of the runs.
+     */
+    CLUSTERED {
+        @Override
+        int[] keys(int size, Random random) {
+            int clusterSize = 64;
+            int clusters = (size + clusterSize - 1) / clusterSize;
+            int stride = Integer.MAX_VALUE / clusters;
+            int[] starts = new int[clusters];
+            for (int i = 0; i < clusters; i++) {
+                starts[i] = i * stride + random.nextInt(stride - clusterSize);
+            }
+            shuffle(starts, random);
+            int[] keys = new int[size];
+            for (int i = 0; i < size; i++) {
+                keys[i] = starts[i / clusterSize] + i % clusterSize;
+            }
+            return keys;
+        }
+    };
+
+    /**
+     * Returns {@code size} distinct building numbers of the distribution.
+     *
+     * @param size   the number of building numbers.
+     * @param random the source of randomness.
+     * @return the building numbers.
+     */
+    abstract int[] keys(int size, Random random);
+
+    /**
+     * Shuffles the array in place.
+     *
+     * @param array  the array to shuffle.
+     * @param random the source of randomness.
+     */
+    static void shuffle(int[] array, Random random) {
+        for (int i = array.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = array[i];
+            array[i] = array[j];
+            array[j] = swap;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package jmh.com.project.benchmark;
+
+import com.project.bean.BuildingStore;
+import com.project.heap.BucketQueue;
+import com.project.heap.MinHeap;
+import com.project.heap.SchedulerQueue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * Benchmarks the operations of the {@link SchedulerQueue} engines, the binary {@link MinHeap} and the
+ * {@link BucketQueue}, on a queue which holds {@code size} buildings.
+ */
+@State(Scope.Thread)
+public class MinHeapBenchmark {
+    @Param({"binary", "bucket"})
+    public String engine;
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int size;
+    @Param({"SEQUENTIAL", "RANDOM", "CLUSTERED"})
+    public KeyDistribution distribution;
+
+    private BuildingStore store;
+    private SchedulerQueue heap;
+    /**
+     * The slot of a building which is not in the heap, swapped with the minimum by {@link #addBuildingAndGetMin()}.
+     */
+    private int spare;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        int[] keys = distribution.keys(size + 1, random);
+        store = new BuildingStore(size + 1);
+        heap = "bucket".equals(engine) ? new BucketQueue(store) : new MinHeap(store, size);
+        for (int i = 0; i < size; i++) {
+            //the execution times are multiples of five, like the ones of requeued buildings.
+            heap.addBuilding(store.add(keys[i], 5 * random.nextInt(100), 1000));
+        }
+        spare = store.add(keys[size], 0, 1000);
+    }
+
+    /**
+     * Adds a building and takes out the minimum, which keeps the size of the heap steady.
+     *
+     * @return the slot of the minimum.
+     */
+    @Benchmark
+    public int addBuildingAndGetMin() {
+        heap.addBuilding(spare);
+        spare = heap.getMin();
+        //the building comes back later, like a building whose slice of work has ended.
+        store.setExecutedTime(spare, store.getExecutedTime(spare) + 5);
+        return spare;
+    }
+
+    /**
+     * Requeues the minimum in place, like the end of a slice of work does.
+     *
+     * @return the slot of the minimum.
+     */
+    @Benchmark
+    public int requeueMin() {
+        int min = heap.peekMin();
+        store.setExecutedTime(min, store.getExecutedTime(min) + 5);
+        heap.updateBuilding(min);
+        return min;
+    }
+}
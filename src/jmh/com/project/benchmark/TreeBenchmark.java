@@ -0,0 +1,132 @@
+package jmh.com.project.benchmark;
+
+import com.project.bean.BuildingStore;
+import com.project.tree.BPlusTree;
+import com.project.tree.BuildingIndex;
+import com.project.tree.DirectAddressIndex;
+import com.project.tree.PooledRedBlackTree;
+import com.project.tree.RedBackTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.IntConsumer;
+
+/**
+ * Benchmarks the operations of the {@link BuildingIndex} engines on an index which holds {@code size} buildings. The
+ * direct engine is a {@link DirectAddressIndex} in front of a {@link RedBackTree}.
+ */
+@State(Scope.Thread)
+public class TreeBenchmark {
+    /**
+     * The largest number of random range starts, which are used over and over.
+     */
+    private static final int RANGE_START_COUNT = 1 << 16;
+    @Param({"redblack", "pooled", "bplus", "direct"})
+    public String engine;
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int size;
+    @Param({"SEQUENTIAL", "RANDOM", "CLUSTERED"})
+    public KeyDistribution distribution;
+    /**
+     * The number of buildings in the range of {@link #forEachInRange(Blackhole)}.
+     */
+    @Param({"100"})
+    public int rangeWidth;
+
+    private BuildingStore store;
+    private BuildingIndex index;
+    /**
+     * The building numbers of the buildings in the index, in the order in which the benchmarks use them.
+     */
+    private int[] keys;
+    /**
+     * The building numbers in increasing order, used to pick ranges which hold {@link #rangeWidth} buildings.
+     */
+    private int[] sortedKeys;
+    /**
+     * The position in {@code keys} of the next building to use.
+     */
+    private int next;
+    /**
+     * The positions in {@code sortedKeys} of the first buildings of the ranges, drawn at random so that consecutive
+     * ranges do not read the same part of the index.
+     */
+    private int[] rangeStarts;
+    /**
+     * The position in {@code rangeStarts} of the next range to walk.
+     */
+    private int nextRange;
+    /**
+     * Visitor which hands the slots of a range to the blackhole.
+     */
+    private IntConsumer visitor;
+
+    @Setup
+    public void setUp(Blackhole blackhole) throws Exception {
+        visitor = blackhole::consume;
+        Random random = new Random(42);
+        keys = distribution.keys(size, random);
+        store = new BuildingStore(size);
+        if ("pooled".equals(engine)) {
+            index = new PooledRedBlackTree(store, size);
+        } else if ("bplus".equals(engine)) {
+            index = new BPlusTree(store);
+        } else if ("direct".equals(engine)) {
+            index = new DirectAddressIndex(store, new RedBackTree(store));
+        } else {
+            index = new RedBackTree(store);
+        }
+        for (int key : keys) {
+            index.addBuilding(store.add(key, 0, 1000));
+        }
+        sortedKeys = keys.clone();
+        Arrays.sort(sortedKeys);
+        //the lookups follow another order than the inserts.
+        KeyDistribution.shuffle(keys, random);
+        next = 0;
+        rangeStarts = new int[Math.min(size, RANGE_START_COUNT)];
+        int lastStart = Math.max(sortedKeys.length - rangeWidth, 0);
+        for (int i = 0; i < rangeStarts.length; i++) {
+            rangeStarts[i] = random.nextInt(lastStart + 1);
+        }
+        nextRange = 0;
+    }
+
+    /**
+     * @return Returns the building number of the next building to use.
+     */
+    private int nextKey() {
+        int key = keys[next];
+        next = next + 1 == keys.length ? 0 : next + 1;
+        return key;
+    }
+
+    @Benchmark
+    public int searchBuilding() {
+        return index.searchBuilding(nextKey());
+    }
+
+    /**
+     * Removes a building and adds it back, which keeps the size of the index steady.
+     */
+    @Benchmark
+    public void removeAndAddBuilding() throws Exception {
+        int slot = index.searchBuilding(nextKey());
+        index.removeBuilding(slot);
+        index.addBuilding(slot);
+    }
+
+    @Benchmark
+    public void forEachInRange() {
+        int start = rangeStarts[nextRange];
+        nextRange = nextRange + 1 == rangeStarts.length ? 0 : nextRange + 1;
+        int end = Math.min(start + rangeWidth - 1, sortedKeys.length - 1);
+        index.forEachInRange(sortedKeys[start], sortedKeys[end], visitor);
+    }
+}
@@ -0,0 +1,143 @@
+package main.java.com.project;
+
+import com.project.command.MappedCommandReader;
+import com.project.metrics.Metrics;
+import com.project.output.OutputSink;
+
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs every input file of a directory as an independent city, many at the same time in one jvm. Every city has its
+ * own {@link RisingCity} and writes its output to {@code <input file name>_output.txt} in the output directory.
+ * <p>
+ * Usage: {@code BatchRunner <input directory> <output directory> [options]} where the options are
+ * <ul>
+ * <li>{@code --threads=<n>} the number of cities simulated at the same time, the number of processors by default.</li>
+ * <li>{@code --virtual} to run every city on its own virtual thread, if the jvm has virtual threads.</li>
+ * <li>{@code --tree=pooled} to keep the buildings in a {@link com.project.tree.PooledRedBlackTree}, or
+ * {@code --tree=bplus} in a {@link com.project.tree.BPlusTree}.</li>
+ * </ul>
+ * With {@code -Drisingcity.metrics=true} the metrics of all the cities are registered with JMX and printed at the end.
+ * The exit code is 1 if any city failed.
+ */
+public class BatchRunner {
+
+    public static void main(String[] args) throws Exception {
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean virtual = false;
+        String tree = "redblack";
+        for (int i = 2; i < args.length; i++) {
+            if (args[i].startsWith("--threads=")) {
+                threads = Integer.parseInt(args[i].substring("--threads=".length()));
+            } else if ("--virtual".equals(args[i])) {
+                virtual = true;
+            } else if (args[i].startsWith("--tree=")) {
+                tree = args[i].substring("--tree=".length());
+            } else {
+                throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        Path outputDirectory = Files.createDirectories(Paths.get(args[1]));
+        List<Path> inputs = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(Paths.get(args[0]))) {
+            for (Path file : files) {
+                if (Files.isRegularFile(file)) {
+                    inputs.add(file);
+                }
+            }
+        }
+        Collections.sort(inputs);
+
+        if (Metrics.ENABLED) {
+            //all the cities record into the same metrics.
+            Metrics.register();
+        }
+        ExecutorService executor = virtual ? newVirtualThreadExecutor(threads) : Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        int failures;
+        try {
+            failures = runAll(executor, inputs, outputDirectory, tree);
+        } finally {
+            executor.shutdown();
+        }
+        System.out.printf("%d cities in %.3f s, %d failed%n", inputs.size(), (System.nanoTime() - start) / 1e9,
+                failures);
+        if (Metrics.ENABLED) {
+            Metrics.dump(System.out);
+        }
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Simulates all the cities on the executor and waits for them.
+     *
+     * @param executor        the executor on which the cities are simulated.
+     * @param inputs          the input files of the cities.
+     * @param outputDirectory the directory in which the output files are written.
+     * @param tree            the name of the ordered index of the buildings.
+     * @return the number of cities which failed.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    static int runAll(ExecutorService executor, List<Path> inputs, Path outputDirectory, String tree)
+            throws InterruptedException {
+        List<Future<Integer>> results = new ArrayList<>(inputs.size());
+        for (Path input : inputs) {
+            Path output = outputDirectory.resolve(input.getFileName() + "_output.txt");
+            results.add(executor.submit(() -> simulate(input, output, tree)));
+        }
+        int failures = 0;
+        for (int i = 0; i < inputs.size(); i++) {
+            try {
+                System.out.println(inputs.get(i).getFileName() + ": " + results.get(i).get() + " days");
+            } catch (ExecutionException e) {
+                failures++;
+                System.out.println(inputs.get(i).getFileName() + ": failed with " + e.getCause());
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * Simulates one city.
+     *
+     * @param input      the input file of the city.
+     * @param output     the file in which the output of the city is written.
+     * @param tree       the name of the ordered index of the buildings.
+     * @return the number of simulated days.
+     * @throws Exception if the simulation fails.
+     */
+    static int simulate(Path input, Path output, String tree) throws Exception {
+        try (MappedCommandReader reader = new MappedCommandReader(input);
+             OutputSink sink = OutputSink.toFile(output)) {
+            return new RisingCity(tree, false, false, sink).simulate(reader);
+        }
+    }
+
+    /**
+     * Returns an executor which runs every task on a new virtual thread. The jvm is asked for it by reflection, so that
+     * the program still runs on jvms without virtual threads, which get a pool of {@code threads} platform threads.
+     *
+     * @param threads the number of threads of the pool used when there are no virtual threads.
+     * @return the executor.
+     */
+    private static ExecutorService newVirtualThreadExecutor(int threads) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            System.out.println("Virtual threads are not available, using " + threads + " threads instead");
+            return Executors.newFixedThreadPool(threads);
+        }
+    }
+}
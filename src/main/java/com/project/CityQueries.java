@@ -0,0 +1,143 @@
+package main.java.com.project;
+
+import com.project.bean.Building;
+import com.project.bean.BuildingStore;
+import com.project.tree.BuildingIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Point and range lookups which any number of threads can run on a city while its simulation is running. The lookups
+ * read the buildings under an optimistic read of the lock of the city, which never blocks the simulation thread, and
+ * retry when the simulation changed the buildings in the meantime. A lookup which keeps on losing the race backs off
+ * for longer and longer before it retries, but never takes the read lock, so it never holds back the simulation.
+ * <p>
+ * A read in the middle of a change may follow links which are torn, the walks of the indexes give up after more steps
+ * than a consistent index takes, and the read then fails to validate. With the buildings outside of the java heap, the
+ * lookups must be done before the city is closed, since closing it frees their memory, see {@link RisingCity#close()}.
+ * <p>
+ * The lookups return copies of the buildings as they were after the last command or the last end of a slice of work.
+ */
+public class CityQueries {
+    /**
+     * The number of optimistic reads retried right away, before backing off.
+     */
+    private static final int SPIN_ATTEMPTS = 8;
+    /**
+     * The number of optimistic reads retried after yielding the processor, before parking.
+     */
+    private static final int YIELD_ATTEMPTS = 16;
+    /**
+     * The longest time a retry is parked for, in nanoseconds.
+     */
+    private static final long MAX_PARK_NANOS = 1_000_000L;
+    /**
+     * Thrown to stop an optimistic walk over a range as soon as the simulation changed the buildings. Only the type of
+     * the exception matters, so a single instance without a stack trace is used.
+     */
+    private static final RuntimeException INVALIDATED = new RuntimeException("invalidated", null, false, false) {
+    };
+    private final BuildingStore store;
+    private final BuildingIndex tree;
+    private final StampedLock lock;
+
+    CityQueries(BuildingStore store, BuildingIndex tree, StampedLock lock) {
+        this.store = store;
+        this.tree = tree;
+        this.lock = lock;
+    }
+
+    /**
+     * Search the building in the city.
+     *
+     * @param buildingNumber the number of building which is to be searched.
+     * @return a copy of the building, or {@code null} if the building is not in the city.
+     */
+    public Building searchBuilding(int buildingNumber) {
+        for (int attempt = 0; ; attempt++) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp == 0) {
+                //the simulation is changing the buildings right now.
+                backOff(attempt);
+                continue;
+            }
+            Building building;
+            try {
+                building = readBuilding(buildingNumber);
+            } catch (RuntimeException e) {
+                //the structures were read in the middle of a change, which is detected below.
+                building = null;
+            }
+            if (lock.validate(stamp)) {
+                return building;
+            }
+            backOff(attempt);
+        }
+    }
+
+    /**
+     * Returns the buildings in the range [buildingNumber1, buildingNumber2].
+     *
+     * @param buildingNumber1 the starting building number.
+     * @param buildingNumber2 the ending building number.
+     * @return copies of the buildings in the range, in increasing order of the building number.
+     */
+    public List<Building> getBuildingsInRange(int buildingNumber1, int buildingNumber2) {
+        List<Building> buildings = new ArrayList<>();
+        for (int attempt = 0; ; attempt++) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp == 0) {
+                //the simulation is changing the buildings right now.
+                backOff(attempt);
+                continue;
+            }
+            buildings.clear();
+            try {
+                tree.forEachInRange(buildingNumber1, buildingNumber2, slot -> {
+                    if (!lock.validate(stamp)) {
+                        //no need to walk the rest of the range, the walk is retried anyway.
+                        throw INVALIDATED;
+                    }
+                    buildings.add(store.getBuilding(slot));
+                });
+            } catch (RuntimeException e) {
+                //the structures were read in the middle of a change, which is detected below.
+            }
+            if (lock.validate(stamp)) {
+                return buildings;
+            }
+            backOff(attempt);
+        }
+    }
+
+    /**
+     * Waits before an optimistic read is retried, first spinning, then yielding the processor and then parking for
+     * twice as long on each attempt, up to {@link #MAX_PARK_NANOS}.
+     *
+     * @param attempt the number of reads which failed before.
+     */
+    private static void backOff(int attempt) {
+        if (attempt < SPIN_ATTEMPTS) {
+            Thread.onSpinWait();
+        } else if (attempt < SPIN_ATTEMPTS + YIELD_ATTEMPTS) {
+            Thread.yield();
+        } else {
+            int shift = Math.min(attempt - SPIN_ATTEMPTS - YIELD_ATTEMPTS, 20);
+            LockSupport.parkNanos(Math.min(1_000L << shift, MAX_PARK_NANOS));
+        }
+    }
+
+    /**
+     * Reads a copy of the building without any locking.
+     *
+     * @param buildingNumber the number of building which is to be searched.
+     * @return a copy of the building, or {@code null} if the building is not in the city.
+     */
+    private Building readBuilding(int buildingNumber) {
+        int slot = tree.searchBuilding(buildingNumber);
+        return slot == BuildingStore.NO_SLOT ? null : store.getBuilding(slot);
+    }
+}
@@ -1,52 +1,227 @@
 package main.java.com.project;
 
-import com.project.bean.Building;
+import com.project.bean.BuildingStore;
+import com.project.bean.OffHeapBuildingStore;
+import com.project.checkpoint.Checkpoint;
+import com.project.checkpoint.SimulationState;
+import com.project.command.Command;
+import com.project.command.CommandReader;
+import com.project.command.InsertQueue;
+import com.project.command.MappedCommandReader;
+import com.project.command.StreamCommandReader;
+import com.project.heap.BucketQueue;
 import com.project.heap.MinHeap;
+import com.project.heap.OffHeapMinHeap;
+import com.project.heap.SchedulerQueue;
+import com.project.jfr.BuildingCompletedEvent;
+import com.project.jfr.CommandExecuteEvent;
+import com.project.jfr.CommandParseEvent;
+import com.project.jfr.RangeQueryEvent;
+import com.project.jfr.SliceEndEvent;
+import com.project.jfr.SliceStartEvent;
+import com.project.journal.CommandJournal;
+import com.project.metrics.Metrics;
+import com.project.output.OutputSink;
+import com.project.tree.BPlusTree;
+import com.project.tree.BuildingIndex;
+import com.project.tree.DirectAddressIndex;
+import com.project.tree.OffHeapBPlusTree;
+import com.project.tree.PooledRedBlackTree;
 import com.project.tree.RedBackTree;
-import com.project.tree.TreeNode;
 
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.PrintWriter;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Scanner;
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.IntConsumer;
 
 /**
- * The Driver class of the program which will process the input and produce the output in output_file.txt.
+ * The Driver class of the program which will process the input and produce the output in output_file.txt, or in the
+ * file given with the {@code --output} option.
  */
-public class RisingCity {
-    private final MinHeap heap;
-    private final RedBackTree tree;
-    PrintWriter writer;
+public class RisingCity implements AutoCloseable {
+    private final BuildingStore store;
+    private final SchedulerQueue heap;
+    private final BuildingIndex tree;
+    /**
+     * The structures whose memory is outside of the java heap and is freed by {@link #close()}.
+     */
+    private final Closeable[] offHeapStorage;
+    /**
+     * The tree of the buildings if it is kept outside of the java heap, or {@code null}.
+     */
+    private final OffHeapBPlusTree offHeapTree;
+    /**
+     * Lock which is held for writing while the simulation changes the buildings, so that {@link CityQueries} can read
+     * them from other threads.
+     */
+    private final StampedLock lock;
+    /**
+     * Visitor which prints the buildings of a range, separated by commas.
+     */
+    private final IntConsumer rangePrinter;
+    /**
+     * The number of buildings printed so far for the current range.
+     */
+    private int printedInRange;
+    /**
+     * The slot of the building under construction while a print command is executed, or
+     * {@link BuildingStore#NO_SLOT}. Its executed time in the store is the one of the start of its slice of work, the
+     * executed time of the day is {@link #progressTime} and is only written to the store at the end of the slice.
+     */
+    private int progressSlot = BuildingStore.NO_SLOT;
+    private int progressTime;
+    /**
+     * Flag which tells whether other threads read the buildings through {@link CityQueries}, in which case the
+     * progress of the building under construction is written to the store before every print command so that they
+     * see it too.
+     */
+    private volatile boolean sharedWithQueries;
+    OutputSink writer;
+    /**
+     * Flag which tells whether to flush the output at the end of every simulated day, so that the output of a stream
+     * of commands can be read while the program is still running.
+     */
+    private boolean flushEveryDay;
+    /**
+     * The queue through which other threads insert buildings, or {@code null} if the commands only come from the input.
+     */
+    private InsertQueue insertQueue;
+    /**
+     * The command into which the inserts of the queue are taken.
+     */
+    private final Command queuedInsert = new Command();
+    /**
+     * The slots of the buildings of the insert queue which are inserted together.
+     */
+    private int[] insertBatch = new int[16];
+    /**
+     * The file to which the checkpoints are written, or {@code null} if no checkpoints are written.
+     */
+    private Path checkpointFile;
+    /**
+     * The number of days between two checkpoints.
+     */
+    private int checkpointInterval;
+    /**
+     * The state restored from a checkpoint, from which the next simulation goes on.
+     */
+    private SimulationState restoredState;
+    /**
+     * The journal in which every command is written before it is executed, or {@code null}.
+     */
+    private CommandJournal journal;
 
     /**
      * Initialises the rising city class
      *
-     * @throws FileNotFoundException if the file is not found.
+     * @param pooledTree flag which tells whether to use the {@link PooledRedBlackTree} instead of the
+     *                   {@link RedBackTree}.
+     * @param writer     the sink to which the output is written.
      */
-    public RisingCity() throws FileNotFoundException {
-        heap = new MinHeap();
-        tree = new RedBackTree();
-        writer = new PrintWriter("output_file.txt");
+    public RisingCity(boolean pooledTree, OutputSink writer) {
+        this(pooledTree ? "pooled" : "redblack", false, false, writer);
+    }
+
+    /**
+     * Initialises the rising city class
+     *
+     * @param tree        the name of the index which keeps the buildings in order: {@code redblack} for the
+     *                    {@link RedBackTree}, {@code pooled} for the {@link PooledRedBlackTree} or {@code bplus} for
+     *                    the {@link BPlusTree}.
+     * @param directIndex flag which tells whether to look the buildings up in a {@link DirectAddressIndex} in front of
+     *                    the tree.
+     * @param bucketQueue flag which tells whether to schedule the buildings with a {@link BucketQueue} instead of the
+     *                    {@link MinHeap}.
+     * @param writer      the sink to which the output is written.
+     */
+    public RisingCity(String tree, boolean directIndex, boolean bucketQueue, OutputSink writer) {
+        this(tree, directIndex, bucketQueue, false, writer);
+    }
+
+    /**
+     * Initialises the rising city class
+     *
+     * @param tree        the name of the index which keeps the buildings in order, see
+     *                    {@link #newIndex(String, BuildingStore)}.
+     * @param directIndex flag which tells whether to look the buildings up in a {@link DirectAddressIndex} in front of
+     *                    the tree.
+     * @param bucketQueue flag which tells whether to schedule the buildings with a {@link BucketQueue} instead of the
+     *                    {@link MinHeap}.
+     * @param offHeap     flag which tells whether to keep the buildings, the heap and the tree outside of the java heap,
+     *                    in an {@link OffHeapBuildingStore}, an {@link OffHeapMinHeap} and an {@link OffHeapBPlusTree},
+     *                    in which case the tree and the queue flag are not used. The memory is freed by
+     *                    {@link #close()}.
+     * @param writer      the sink to which the output is written.
+     */
+    public RisingCity(String tree, boolean directIndex, boolean bucketQueue, boolean offHeap, OutputSink writer) {
+        BuildingIndex ordered;
+        if (offHeap) {
+            OffHeapBuildingStore offHeapStore = new OffHeapBuildingStore();
+            OffHeapMinHeap offHeapHeap = new OffHeapMinHeap(offHeapStore);
+            offHeapTree = new OffHeapBPlusTree(offHeapStore);
+            store = offHeapStore;
+            heap = offHeapHeap;
+            ordered = offHeapTree;
+            offHeapStorage = new Closeable[]{offHeapTree, offHeapHeap, offHeapStore};
+        } else {
+            store = new BuildingStore();
+            heap = bucketQueue ? new BucketQueue(store) : new MinHeap(store);
+            ordered = newIndex(tree, store);
+            offHeapStorage = new Closeable[0];
+            offHeapTree = null;
+        }
+        this.tree = directIndex ? new DirectAddressIndex(store, ordered) : ordered;
+        rangePrinter = slot -> {
+            if (printedInRange++ > 0) {
+                writer.print(',');
+            }
+            printBuilding(slot);
+        };
+        this.writer = writer;
+        lock = new StampedLock();
     }
 
     /**
      * This method is responsible to perform the operations specified in the command.
      *
      * @param command              the command to execute.
-     * @param buildingNumber       the building number which is to be updated in case of print operation.
+     * @param slot                 the slot of the building which is to be updated in case of print operation.
      * @param daysOfWorkDone       the number of days worked on the building.
      * @param updateBeforePrinting flags which tells whether to update the building before printing or not.
      * @throws Exception if there is any error while processing the command.
      */
-    private void executeCommand(String command, int buildingNumber, int daysOfWorkDone, boolean updateBeforePrinting) throws Exception {
-        if (command.contains("Ins")) {
+    private void executeCommand(Command command, int slot, int daysOfWorkDone, boolean updateBeforePrinting) throws Exception {
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        CommandExecuteEvent event = new CommandExecuteEvent();
+        event.begin();
+        if (journal != null) {
+            //the command is written ahead, so that it can be replayed if the program crashes while executing it.
+            journal.append(command);
+        }
+        if (command.getOpcode() == Command.INSERT) {
             //insert command is passed and the insert operation will be performed.
             performInsertOperation(command);
         } else {
             //print operation will be performed.
-            performPrintOperation(command, buildingNumber, daysOfWorkDone, updateBeforePrinting);
+            performPrintOperation(command, slot, daysOfWorkDone, updateBeforePrinting);
+        }
+        if (Metrics.ENABLED) {
+            long nanos = System.nanoTime() - start;
+            if (command.getOpcode() == Command.INSERT) {
+                Metrics.INSERT_LATENCY.record(nanos);
+            } else {
+                Metrics.PRINT_LATENCY.record(nanos);
+            }
+        }
+        if (event.shouldCommit()) {
+            event.command = command.toString();
+            event.commit();
         }
     }
 
@@ -56,99 +231,414 @@ public class RisingCity {
      * @param command the insert command which contains the detail to insert the building.
      * @throws Exception id there is any problem in getting the data from the command.
      */
-    private void performInsertOperation(String command) throws Exception {
-        String arguments = command.substring(command.indexOf('(') + 1, command.indexOf(')'));
-        String[] parameters = arguments.split(",");
-        Building building = new Building(Integer.parseInt(parameters[0]), Integer.parseInt(parameters[1]));
-        heap.addBuilding(building);
-        tree.addBuilding(building);
+    private void performInsertOperation(Command command) throws Exception {
+        long stamp = lock.writeLock();
+        try {
+            addBuilding(command);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Inserts all the buildings of the insert queue which are due on the day, as one batch.
+     *
+     * @param day the current day.
+     * @throws Exception if a building cannot be inserted.
+     */
+    private void performQueuedInserts(int day) throws Exception {
+        if (insertQueue.getNextTime() > day) {
+            //nothing is due yet, and taking the write lock would invalidate the optimistic reads for nothing.
+            return;
+        }
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        CommandExecuteEvent event = new CommandExecuteEvent();
+        event.begin();
+        int count = 0;
+        long stamp = lock.writeLock();
+        try {
+            while (insertQueue.poll(queuedInsert, day)) {
+                if (count == insertBatch.length) {
+                    insertBatch = Arrays.copyOf(insertBatch, count << 1);
+                }
+                insertBatch[count++] = store.add(queuedInsert.getArgument1(), 0, queuedInsert.getArgument2());
+            }
+            //a large batch, like the initial load of a city, is heapified and built into the tree in linear time.
+            heap.addBuildings(insertBatch, count);
+            sortOnBuildingNumber(insertBatch, count);
+            tree.addBuildings(insertBatch, count);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        if (Metrics.ENABLED) {
+            Metrics.INSERT_BATCH_SIZE.record(count);
+            Metrics.INSERT_BATCH_LATENCY.record(System.nanoTime() - start);
+        }
+        if (event.shouldCommit()) {
+            event.command = day + ": InsertBatch(" + count + ")";
+            event.commit();
+        }
+    }
+
+    /**
+     * Sorts the slots in increasing order of the building number. The inserts of one day come out of the queue sorted
+     * already, so the slots are only sorted when the batch has inserts of several days.
+     *
+     * @param slots the slots of the buildings.
+     * @param count the number of slots.
+     */
+    private void sortOnBuildingNumber(int[] slots, int count) {
+        int i = 1;
+        while (i < count && store.getBuildingNumber(slots[i - 1]) < store.getBuildingNumber(slots[i])) {
+            i++;
+        }
+        if (i >= count) {
+            return;
+        }
+        //sort the packed (building number, slot) pairs, which orders them on the building number.
+        long[] packed = new long[count];
+        for (i = 0; i < count; i++) {
+            packed[i] = MinHeap.packKey(store.getBuildingNumber(slots[i]), slots[i]);
+        }
+        Arrays.sort(packed);
+        for (i = 0; i < count; i++) {
+            slots[i] = (int) packed[i] ^ Integer.MIN_VALUE;
+        }
+    }
+
+    /**
+     * Adds the building of the insert command to the store, the min heap and the red black tree. The caller holds the
+     * write lock.
+     *
+     * @param command the insert command which contains the detail to insert the building.
+     * @throws Exception if the building is already present.
+     */
+    private void addBuilding(Command command) throws Exception {
+        int slot = store.add(command.getArgument1(), 0, command.getArgument2());
+        heap.addBuilding(slot);
+        tree.addBuilding(slot);
     }
 
     /**
      * Performs the printing of currently active buildings on which construction needs to be done.
      *
      * @param command              the print command.
-     * @param buildingNumber       the building number which needs to be updated before the print command.
-     * @param daysOfWorkDone       the number of days worked on the building.
-     * @param updateBeforePrinting the flag which suggest if we need to update the building.
+     * @param slot                 the slot of the building under construction.
+     * @param daysOfWorkDone       the number of days worked on the building, including the current day.
+     * @param updateBeforePrinting the flag which tells whether a building is under construction, in which case it is
+     *                             printed with {@code daysOfWorkDone} instead of its executed time in the store.
      */
-    private void performPrintOperation(String command, int buildingNumber, int daysOfWorkDone, boolean updateBeforePrinting) {
-        String arguments = command.substring(command.indexOf('(') + 1, command.indexOf(')'));
-        List<Building> allBuildings = new ArrayList<>();
+    private void performPrintOperation(Command command, int slot, int daysOfWorkDone, boolean updateBeforePrinting) {
         if (updateBeforePrinting) {
-            updateBuildingInRedBlackTree(buildingNumber, daysOfWorkDone);
+            //the building under construction is printed with the progress of the day, which nothing else reads until
+            //the end of its slice, so it is only written to the store when other threads may read it.
+            progressSlot = slot;
+            progressTime = daysOfWorkDone;
+            if (sharedWithQueries) {
+                //the tree shares the building with the heap, so only the aggregates of the tree need to be updated.
+                long stamp = lock.writeLock();
+                try {
+                    store.setExecutedTime(slot, daysOfWorkDone);
+                    tree.updateBuilding(slot);
+                } finally {
+                    lock.unlockWrite(stamp);
+                }
+            }
         }
-        if (arguments.contains(",")) {
-            String[] parameters = arguments.split(",");
-            allBuildings.addAll(tree.getBuildingsInRange(Integer.parseInt(parameters[0]), Integer.parseInt(parameters[1])));
+        if (command.getOpcode() == Command.PRINT_RANGE) {
+            //walk the buildings of the range in place, without collecting them first.
+            printedInRange = 0;
+            RangeQueryEvent event = new RangeQueryEvent();
+            event.begin();
+            tree.forEachInRange(command.getArgument1(), command.getArgument2(), rangePrinter);
+            //the minimum count of the recording decides on the count, so it is set before asking.
+            event.count = printedInRange;
+            if (event.shouldCommit()) {
+                event.start = command.getArgument1();
+                event.end = command.getArgument2();
+                event.commit();
+            }
+            if (printedInRange == 0) {
+                printNoBuilding();
+            }
+            if (Metrics.ENABLED) {
+                Metrics.RANGE_SIZE.record(printedInRange);
+            }
         } else {
-            TreeNode building = tree.searchBuilding(Integer.parseInt(arguments));
-            if (building != null) {
-                allBuildings.add(building.getBuilding());
+            int building = tree.searchBuilding(command.getArgument1());
+            if (building != BuildingStore.NO_SLOT) {
+                printBuilding(building);
+            } else {
+                printNoBuilding();
             }
         }
-        printBuildingInformation(allBuildings);
+        progressSlot = BuildingStore.NO_SLOT;
+        writer.println();
     }
 
     /**
-     * Prints the active buildings. If the {@code buildings} is empty, then (0,0,0) is printed.
+     * Returns the queries which other threads can run on the buildings while the simulation is running. With the
+     * buildings outside of the java heap, the tree then keeps the memory which a rebuild leaves over until the city is
+     * closed, and the queries must be done before it is closed, see {@link #close()}.
      *
-     * @param buildings the buildings to be printed.
+     * @return the queries on the buildings of the city.
      */
-    private void printBuildingInformation(List<Building> buildings) {
-        if (buildings.isEmpty()) {
-            writer.print("(0,0,0)");
-        } else {
-            writer.print(buildings.get(0).toString());
-            for (int i = 1; i < buildings.size(); i++) {
-                writer.print("," + buildings.get(i).toString());
+    public CityQueries getQueries() {
+        if (offHeapTree != null) {
+            offHeapTree.shareWithReaders();
+        }
+        sharedWithQueries = true;
+        return new CityQueries(store, tree, lock);
+    }
+
+    /**
+     * Sets whether to flush the output at the end of every simulated day.
+     *
+     * @param flushEveryDay {@code true} to flush the output at the end of every simulated day.
+     */
+    public void setFlushEveryDay(boolean flushEveryDay) {
+        this.flushEveryDay = flushEveryDay;
+    }
+
+    /**
+     * Sets the queue through which other threads insert buildings while the simulation is running. The simulation then
+     * only ends once the queue is closed, and waits for new buildings when it has nothing else to do.
+     *
+     * @param insertQueue the queue of the inserts.
+     */
+    public void setInsertQueue(InsertQueue insertQueue) {
+        this.insertQueue = insertQueue;
+    }
+
+    /**
+     * Sets the file to which a checkpoint of the simulation is written every {@code intervalDays} simulated days.
+     *
+     * @param file         the checkpoint file.
+     * @param intervalDays the number of days between two checkpoints.
+     */
+    public void setCheckpoint(Path file, int intervalDays) {
+        this.checkpointFile = file;
+        this.checkpointInterval = Math.max(intervalDays, 1);
+    }
+
+    /**
+     * Sets the journal in which every command of the input is written before it is executed. When the simulation goes
+     * on from a checkpoint, the reader must start with the commands of the journal after the checkpoint, see
+     * {@link CommandJournal#replay(Path, long)}.
+     *
+     * @param journal the journal of the commands.
+     */
+    public void setJournal(CommandJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Frees the memory of the buildings which is outside of the java heap, the city cannot be used afterwards. The
+     * memory is returned right away and not when the garbage collector runs, so the {@link CityQueries} must be done
+     * before the city is closed: an optimistic read would otherwise read freed memory. The writer is closed by its
+     * owner.
+     *
+     * @throws IOException if the storage cannot be freed.
+     */
+    @Override
+    public void close() throws IOException {
+        long stamp = lock.writeLock();
+        try {
+            for (Closeable storage : offHeapStorage) {
+                storage.close();
             }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Restores the buildings and the state of a simulation from a checkpoint. The next call of
+     * {@link #simulate(CommandReader)} goes on from the day after the checkpoint, with a reader of the same input.
+     *
+     * @param file the checkpoint file.
+     * @return the restored state.
+     * @throws Exception if the checkpoint cannot be read.
+     */
+    public SimulationState restore(Path file) throws Exception {
+        long stamp = lock.writeLock();
+        try {
+            //the storage outside of the java heap is restored in batches, so that the restore needs no heap either.
+            restoredState = Checkpoint.restore(file, store, heap, tree, offHeapStorage.length > 0);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        return restoredState;
+    }
+
+    /**
+     * Writes a checkpoint at the end of the day, from which the simulation can go on with the next day.
+     *
+     * @param state  the state of the simulation, of which the clock and the command are already filled.
+     * @param slot   the slot of the building which is being worked on, if a slice is in progress.
+     * @param reader  the reader from which the commands are read.
+     * @throws Exception if the checkpoint cannot be written.
+     */
+    private void writeCheckpoint(SimulationState state, int slot, CommandReader reader) throws Exception {
+        state.workingOn = state.working ? store.getBuildingNumber(slot) : 0;
+        state.inputPosition = reader.getPosition();
+        state.lineNumber = reader.getLineNumber();
+        state.commandCount = reader.getCommandCount();
+        if (journal != null) {
+            //the commands up to the checkpoint must be durable before the checkpoint says so.
+            journal.sync();
+            state.journalPosition = journal.getPosition();
         }
+        //the output up to the checkpoint must be in the file before the checkpoint says so.
+        writer.flush();
+        state.outputLength = writer.getBytesWritten();
+        Checkpoint.write(checkpointFile, state, store, tree);
+    }
+
+    /**
+     * Prints (0,0,0) which is printed when there is no active building to print.
+     */
+    private void printNoBuilding() {
+        writer.print("(0,0,0)");
+    }
+
+    /**
+     * Prints the building details in the format (buildingNumber,executedTime,totalTime).
+     *
+     * @param slot the slot of the building to be printed.
+     */
+    private void printBuilding(int slot) {
+        writer.print('(');
+        writer.print(store.getBuildingNumber(slot));
+        writer.print(',');
+        writer.print(slot == progressSlot ? progressTime : store.getExecutedTime(slot));
+        writer.print(',');
+        writer.print(store.getTotalTime(slot));
+        writer.print(')');
+    }
+
+    /**
+     * Prints the line which shows the day on which the construction of the building finished, like (50,120).
+     *
+     * @param slot the slot of the building which is finished.
+     * @param day  the day on which the building is finished.
+     */
+    private void printCompletion(int slot, int day) {
+        writer.print('(');
+        writer.print(store.getBuildingNumber(slot));
+        writer.print(',');
+        writer.print(day);
+        writer.print(')');
         writer.println();
     }
 
     /**
-     * Function responsible to drive the program.
+     * Runs the simulation on the commands of the reader until all the commands are executed and all the buildings are
+     * finished.
      *
-     * @param args program arguments which will help us get the file name as input.
-     * @throws Exception if any problem occurs while running the program.
+     * @param reader the reader from which the commands are read.
+     * @return the number of simulated days.
+     * @throws Exception if any problem occurs while running the simulation.
      */
-    public static void main(String[] args) throws Exception {
+    public int simulate(CommandReader reader) throws Exception {
         int globalTime = 0; //stores the global time
-        Scanner scanner = new Scanner(new File(args[0]));
-        String command = scanner.nextLine();
+        //the same command is filled again for every line of the input.
+        Command command = new Command();
+        boolean hasCommand = false;
+        //the next command is only read once the day of the previous one is over, so that a stream is not waited on
+        //before the output of the day is flushed.
+        boolean readNext = true;
         boolean working = false;
-        Building workingOn = null;
+        int workingOn = BuildingStore.NO_SLOT;
         int endDate = 0;
         int daysWorked = 0;
-
-        RisingCity city = new RisingCity();
+        if (restoredState != null) {
+            //go on from the day after the checkpoint.
+            SimulationState state = restoredState;
+            restoredState = null;
+            globalTime = state.globalTime;
+            working = state.working;
+            workingOn = working ? tree.searchBuilding(state.workingOn) : BuildingStore.NO_SLOT;
+            endDate = state.endDate;
+            daysWorked = state.daysWorked;
+            if (journal == null) {
+                Command pending = state.command;
+                command.set(pending.getTime(), pending.getOpcode(), pending.getArgument1(), pending.getArgument2());
+                hasCommand = state.hasCommand;
+                readNext = state.readNext;
+                reader.resume(state.inputPosition, state.lineNumber, state.commandCount);
+            }
+            //else the reader starts with the commands journaled after the checkpoint, which include the command read
+            //before the checkpoint if it was executed before the crash.
+        }
+        SimulationState checkpoint = checkpointFile == null ? null : new SimulationState();
+        long nextCheckpoint = (long) globalTime + checkpointInterval;
 
         do {
-            if (!working && !city.heap.isEmpty()) {
+            if (readNext) {
+                CommandParseEvent event = new CommandParseEvent();
+                event.begin();
+                hasCommand = reader.next(command);
+                readNext = false;
+                if (hasCommand && event.shouldCommit()) {
+                    event.line = reader.getLineNumber();
+                    event.command = command.toString();
+                    event.commit();
+                }
+            }
+            //the day boundary, at which the buildings published by the other threads are taken as one batch.
+            boolean hasQueuedInsert = insertQueue != null && insertQueue.drain();
+            if (insertQueue != null && !hasQueuedInsert && !hasCommand && !working && heap.isEmpty()) {
+                //there is nothing to do until another building is published.
+                insertQueue.await();
+                hasQueuedInsert = insertQueue.drain();
+                if (!hasQueuedInsert) {
+                    //the queue was closed.
+                    break;
+                }
+            }
+            if (!working && !heap.isEmpty()) {
                 //if there is no building to work on and the heap is not empty, then we can start working on a building.
-                workingOn = city.heap.getMin(); //get a new building to work on
+                //get a new building to work on, the building stays in the heap until its slice of work ends.
+                workingOn = heap.peekMin();
                 //calculate the number of days for which we need to work on the current building.
-                endDate = Math.min(workingOn.getExecutedTime() + 5, workingOn.getTotalTime());
-                daysWorked = workingOn.getExecutedTime();
+                endDate = Math.min(store.getExecutedTime(workingOn) + 5, store.getTotalTime(workingOn));
+                daysWorked = store.getExecutedTime(workingOn);
                 working = true;
+                SliceStartEvent.emit(store.getBuildingNumber(workingOn), daysWorked, endDate, globalTime);
+            }
+            //nothing can change between two events, so jump the clock straight to the next one which is either the
+            //last day of the current slice of work or the day of the next command.
+            int nextEventTime = working ? globalTime + endDate - daysWorked - 1 : Integer.MAX_VALUE;
+            if (hasCommand) {
+                nextEventTime = Math.min(nextEventTime, Math.max(command.getTime(), globalTime));
             }
-            if (command != null && command.startsWith(globalTime + ":")) {
+            if (hasQueuedInsert) {
+                nextEventTime = Math.min(nextEventTime, Math.max(insertQueue.getNextTime(), globalTime));
+            }
+            if (nextEventTime == Integer.MAX_VALUE) {
+                nextEventTime = globalTime;
+            }
+            if (working) {
+                daysWorked += nextEventTime - globalTime;
+            }
+            globalTime = nextEventTime;
+            if (hasQueuedInsert) {
+                //the published buildings go before the command of the input of the same day.
+                performQueuedInserts(globalTime);
+            }
+            if (hasCommand && command.getTime() <= globalTime) {
                 //in case there is some input present and it is time to execute the input command, then start working on it.
                 if (working) {
                     // in case of Print operation we need to update the building first and then print the output
-                    workingOn.setExecutedTime(daysWorked);
-                    city.executeCommand(command, workingOn.getBuildingNumber(), workingOn.getExecutedTime() + 1, true);
+                    executeCommand(command, workingOn, daysWorked + 1, true);
                 } else {
                     //if we are not currently working on a building then there is not need to update the building.
-                    city.executeCommand(command, 0, daysWorked, false);
-                }
-                if (scanner.hasNextLine()) {
-                    //if there is more input to process then store it.
-                    command = scanner.nextLine();
-                } else {
-                    command = null;
+                    executeCommand(command, 0, daysWorked, false);
                 }
+                //if there is more input to process then it is read on the next day.
+                hasCommand = false;
+                readNext = true;
             }
             if (working) {
                 //if currently working on a building
@@ -156,36 +646,204 @@ public class RisingCity {
                 if (daysWorked == endDate) {
                     //if the number of days that we need to work on the building is completed, then stop the work on the building.
                     working = false;
-                    int totalTime = workingOn.getTotalTime();
-                    if (daysWorked == totalTime) {
-                        //if the number of days worked matches the number total_time, then remove the building red black tree.
-                        city.tree.removeBuilding(workingOn);
-                        //print the data showing when the work of the building finished.
-                        city.writer.println("(" + workingOn.getBuildingNumber() + "," + (globalTime) + ")");
-                    } else {
-                        //if we still need to work on the building, then add the building to min heap so that we can continue to work on the building afterwards.
-                        Building building = new Building(workingOn.getBuildingNumber(), daysWorked, workingOn.getTotalTime());
-                        city.heap.addBuilding(building);
-                        city.updateBuildingInRedBlackTree(workingOn.getBuildingNumber(), daysWorked);
+                    int totalTime = store.getTotalTime(workingOn);
+                    SliceEndEvent.emit(store.getBuildingNumber(workingOn), daysWorked, globalTime);
+                    long stamp = lock.writeLock();
+                    try {
+                        if (daysWorked == totalTime) {
+                            //if the number of days worked matches the number total_time, then remove the building from the
+                            //min heap and the red black tree.
+                            heap.removeBuilding(workingOn);
+                            tree.removeBuilding(workingOn);
+                            //print the data showing when the work of the building finished.
+                            printCompletion(workingOn, globalTime);
+                            BuildingCompletedEvent.emit(store.getBuildingNumber(workingOn), totalTime, globalTime);
+                            store.release(workingOn);
+                        } else {
+                            //if we still need to work on the building, then move the building to its new place in the min heap
+                            //so that we can continue to work on the building afterwards. The tree shares the building, so it
+                            //sees the new execution time as well and only updates its aggregates.
+                            store.setExecutedTime(workingOn, daysWorked);
+                            heap.updateBuilding(workingOn);
+                            tree.updateBuilding(workingOn);
+                        }
+                    } finally {
+                        lock.unlockWrite(stamp);
                     }
                 }
             }
+            if (flushEveryDay) {
+                //the day is over, so its output can be handed on before waiting for the next command.
+                writer.flush();
+            }
+            if (checkpoint != null && globalTime >= nextCheckpoint) {
+                //the day is over, so the simulation can go on from the next day.
+                checkpoint.globalTime = globalTime + 1;
+                checkpoint.working = working;
+                checkpoint.endDate = endDate;
+                checkpoint.daysWorked = daysWorked;
+                checkpoint.hasCommand = hasCommand;
+                checkpoint.readNext = readNext;
+                checkpoint.command.set(command.getTime(), command.getOpcode(), command.getArgument1(),
+                        command.getArgument2());
+                writeCheckpoint(checkpoint, workingOn, reader);
+                nextCheckpoint = (long) globalTime + checkpointInterval;
+            }
             globalTime++;
-        } while (!city.heap.isEmpty() || working || command != null);
-        //flush the data to file and close the writer.
-        city.writer.flush();
-        city.writer.close();
+        } while (!heap.isEmpty() || working || hasCommand || readNext
+                || (insertQueue != null && !insertQueue.isFinished()));
+        return globalTime;
+    }
+
+    /**
+     * Creates the ordered index of the buildings.
+     *
+     * @param name  the name of the index, {@code redblack}, {@code pooled} or {@code bplus}.
+     * @param store the store which holds the buildings.
+     * @return the empty index.
+     */
+    public static BuildingIndex newIndex(String name, BuildingStore store) {
+        switch (name) {
+            case "redblack":
+                return new RedBackTree(store);
+            case "pooled":
+                return new PooledRedBlackTree(store);
+            case "bplus":
+                return new BPlusTree(store);
+            default:
+                throw new IllegalArgumentException("Unknown tree " + name);
+        }
     }
 
     /**
-     * Updates the building in the red black tree.
+     * Function responsible to drive the program.
      *
-     * @param buildingNumber   the building number of the building which is to be updated.
-     * @param newExecutionTime the total number of days spent on working on the building.
+     * @param args program arguments which will help us get the file name as input. The file name can be followed by
+     *             {@code --tree=pooled} to keep the buildings in a {@link PooledRedBlackTree} or with
+     *             {@code --tree=bplus} in a {@link BPlusTree}, by
+     *             {@code --index=direct} to look the buildings up in a {@link DirectAddressIndex}, by
+     *             {@code --queue=bucket} to schedule the buildings with a {@link BucketQueue}, by
+     *             {@code --storage=offheap} to keep the buildings, the heap and the tree outside of the java heap and by
+     *             {@code --output=<file>} to write the output to another file than output_file.txt. When the file
+     *             name is {@code -} the commands are read from the standard input, and with {@code --tail} the file
+     *             is followed like {@code tail -f} does. In both cases the output of every day is flushed as soon as
+     *             the day finishes. With {@code --checkpoint=<file>} a checkpoint is written to the file every
+     *             {@code --checkpoint-every=<days>} simulated days, 100000 by default, and with
+     *             {@code --restore=<file>} the simulation goes on from a checkpoint of the same input, appending to the
+     *             output which was written up to the checkpoint. With {@code --journal=<file>} the commands of the
+     *             standard input are journaled before they are executed, committing every
+     *             {@code --journal-sync-every=<n>} commands and every {@code --journal-sync-millis=<ms>}, and the
+     *             commands already in the journal after the restored checkpoint are replayed first. When the jvm
+     *             runs with {@code -Drisingcity.metrics=true}, the metrics of the simulation are registered with JMX,
+     *             printed to the standard error every {@code --metrics-every=<ms>} and printed once more at the end.
+     * @throws Exception if any problem occurs while running the program.
      */
-    private void updateBuildingInRedBlackTree(int buildingNumber, int newExecutionTime) {
-        TreeNode treeNode = tree.searchBuilding(buildingNumber);
-        treeNode.getBuilding().setExecutedTime(newExecutionTime);
+    public static void main(String[] args) throws Exception {
+        String tree = "redblack";
+        boolean directIndex = false;
+        boolean bucketQueue = false;
+        boolean offHeap = false;
+        boolean tail = false;
+        String outputFile = "output_file.txt";
+        String checkpointFile = null;
+        int checkpointInterval = 100000;
+        String restoreFile = null;
+        String journalFile = null;
+        int journalSyncEvery = 64;
+        long journalSyncMillis = 10;
+        long metricsPeriod = 0;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].startsWith("--tree=")) {
+                tree = args[i].substring("--tree=".length());
+            } else if ("--index=direct".equals(args[i])) {
+                directIndex = true;
+            } else if ("--queue=bucket".equals(args[i])) {
+                bucketQueue = true;
+            } else if ("--storage=offheap".equals(args[i])) {
+                offHeap = true;
+            } else if ("--tail".equals(args[i])) {
+                tail = true;
+            } else if (args[i].startsWith("--output=")) {
+                outputFile = args[i].substring("--output=".length());
+            } else if (args[i].startsWith("--checkpoint=")) {
+                checkpointFile = args[i].substring("--checkpoint=".length());
+            } else if (args[i].startsWith("--checkpoint-every=")) {
+                checkpointInterval = Integer.parseInt(args[i].substring("--checkpoint-every=".length()));
+            } else if (args[i].startsWith("--restore=")) {
+                restoreFile = args[i].substring("--restore=".length());
+            } else if (args[i].startsWith("--journal=")) {
+                journalFile = args[i].substring("--journal=".length());
+            } else if (args[i].startsWith("--journal-sync-every=")) {
+                journalSyncEvery = Integer.parseInt(args[i].substring("--journal-sync-every=".length()));
+            } else if (args[i].startsWith("--journal-sync-millis=")) {
+                journalSyncMillis = Long.parseLong(args[i].substring("--journal-sync-millis=".length()));
+            } else if (args[i].startsWith("--metrics-every=")) {
+                metricsPeriod = Long.parseLong(args[i].substring("--metrics-every=".length()));
+            } else {
+                throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        if (offHeap && (bucketQueue || !"redblack".equals(tree))) {
+            throw new IllegalArgumentException("The off heap storage has its own tree and queue");
+        }
+        if (journalFile != null && !"-".equals(args[0])) {
+            throw new IllegalArgumentException("Only the commands of the standard input need a journal");
+        }
+        if (Metrics.ENABLED) {
+            Metrics.register();
+            if (metricsPeriod > 0) {
+                Metrics.startDump(System.err, metricsPeriod);
+            }
+        }
+        RisingCity city;
+        long journalPosition = 0;
+        if (restoreFile == null) {
+            city = new RisingCity(tree, directIndex, bucketQueue, offHeap,
+                    OutputSink.toFile(Paths.get(outputFile)));
+        } else {
+            //keep the output up to the checkpoint, and drop what was written after it.
+            long outputLength = Checkpoint.readState(Paths.get(restoreFile)).outputLength;
+            city = new RisingCity(tree, directIndex, bucketQueue, offHeap,
+                    OutputSink.toFile(Paths.get(outputFile), outputLength));
+            journalPosition = city.restore(Paths.get(restoreFile)).journalPosition;
+        }
+        if (checkpointFile != null) {
+            city.setCheckpoint(Paths.get(checkpointFile), checkpointInterval);
+        }
+        CommandReader reader;
+        CommandJournal journal = null;
+        if ("-".equals(args[0])) {
+            InputStream input = System.in;
+            if (journalFile != null) {
+                //the commands journaled after the checkpoint, or all of them without one, are replayed before the
+                //commands which come next on the standard input.
+                input = new SequenceInputStream(CommandJournal.replay(Paths.get(journalFile), journalPosition), input);
+                journal = new CommandJournal(Paths.get(journalFile), journalPosition, journalSyncEvery,
+                        journalSyncMillis);
+                city.setJournal(journal);
+            }
+            reader = new StreamCommandReader(input, false);
+            city.setFlushEveryDay(true);
+        } else if (tail) {
+            reader = new StreamCommandReader(new FileInputStream(args[0]), true);
+            city.setFlushEveryDay(true);
+        } else {
+            reader = new MappedCommandReader(Paths.get(args[0]));
+        }
+
+        city.simulate(reader);
+        reader.close();
+        if (journal != null) {
+            journal.close();
+            System.err.printf("Journal: %d commands, %d syncs, %.3f ms syncing%n", journal.getCommandCount(),
+                    journal.getSyncCount(), journal.getSyncNanos() / 1e6);
+        }
+        //flush the data to file and close the writer.
+        city.writer.close();
+        city.close();
+        if (Metrics.ENABLED) {
+            Metrics.dump(System.err);
+        }
     }
 
 }
@@ -0,0 +1,177 @@
+package main.java.com.project.bean;
+
+import java.util.Arrays;
+
+/**
+ * Columnar store of all the active buildings. Instead of one {@link Building} object per building, the building number,
+ * the execution time and the total time are kept in primitive columns and a building is addressed by its slot, i.e.
+ * its index in the columns. A slot stays the same for as long as the building is in the store and the slots of removed
+ * buildings are reused for new buildings.
+ */
+public class BuildingStore {
+    /**
+     * The initial number of slots in the store. The store doubles its capacity whenever it is full.
+     */
+    private static final int INITIAL_CAPACITY = 64;
+    /**
+     * Slot value used to represent the absence of a building.
+     */
+    public static final int NO_SLOT = -1;
+    /**
+     * The building numbers of the buildings.
+     */
+    private int[] buildingNumbers;
+    /**
+     * Total number of days spent so far on the buildings.
+     */
+    private int[] executedTimes;
+    /**
+     * The total number of days needed to complete the construction of the buildings.
+     */
+    private int[] totalTimes;
+    /**
+     * Stack of the slots which were released and can be reused.
+     */
+    private int[] freeSlots;
+    /**
+     * The number of slots in {@code freeSlots}.
+     */
+    private int freeCount;
+    /**
+     * The number of slots which have ever been handed out, the next new slot.
+     */
+    private int highWaterMark;
+
+    public BuildingStore() {
+        this(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Initialises the store so that it can hold {@code capacity} buildings before it needs to grow.
+     *
+     * @param capacity the number of buildings the store can hold before growing.
+     */
+    public BuildingStore(int capacity) {
+        capacity = Math.max(capacity, 1);
+        buildingNumbers = new int[capacity];
+        executedTimes = new int[capacity];
+        totalTimes = new int[capacity];
+        freeSlots = new int[capacity];
+        freeCount = 0;
+        highWaterMark = 0;
+    }
+
+    /**
+     * Adds a building to the store.
+     *
+     * @param buildingNumber the building number.
+     * @param executedTime   the number of days spent on the building.
+     * @param totalTime      the total number of days needed to complete the building.
+     * @return the slot of the building.
+     */
+    public int add(int buildingNumber, int executedTime, int totalTime) {
+        int slot;
+        if (freeCount > 0) {
+            //reuse the slot of a building which was removed.
+            slot = freeSlots[--freeCount];
+        } else {
+            if (highWaterMark == buildingNumbers.length) {
+                grow();
+            }
+            slot = highWaterMark++;
+        }
+        buildingNumbers[slot] = buildingNumber;
+        executedTimes[slot] = executedTime;
+        totalTimes[slot] = totalTime;
+        return slot;
+    }
+
+    /**
+     * Removes the building from the store so that its slot can be reused.
+     *
+     * @param slot the slot of the building to remove.
+     */
+    public void release(int slot) {
+        freeSlots[freeCount++] = slot;
+    }
+
+    /**
+     * Returns the number of buildings in the store.
+     *
+     * @return the number of buildings in the store.
+     */
+    public int size() {
+        return highWaterMark - freeCount;
+    }
+
+    /**
+     * Returns the number of slots handed out so far. Every slot of the store is less than this number.
+     *
+     * @return the number of slots handed out so far.
+     */
+    public int getSlotLimit() {
+        return highWaterMark;
+    }
+
+    /**
+     * Returns the building number of the building in the slot.
+     *
+     * @param slot the slot of the building.
+     * @return the building number
+     */
+    public int getBuildingNumber(int slot) {
+        return buildingNumbers[slot];
+    }
+
+    /**
+     * Returns the time spent in the construction of the building in the slot.
+     *
+     * @param slot the slot of the building.
+     * @return the time spent on construction of the building.
+     */
+    public int getExecutedTime(int slot) {
+        return executedTimes[slot];
+    }
+
+    /**
+     * Sets the number of days spent on construction of the building in the slot.
+     *
+     * @param slot         the slot of the building.
+     * @param executedTime the number of days spent.
+     */
+    public void setExecutedTime(int slot, int executedTime) {
+        executedTimes[slot] = executedTime;
+    }
+
+    /**
+     * The total time to be spent on the construction of the building in the slot.
+     *
+     * @param slot the slot of the building.
+     * @return the total time to be spent on the construction of the building.
+     */
+    public int getTotalTime(int slot) {
+        return totalTimes[slot];
+    }
+
+    /**
+     * Returns a copy of the building in the slot. Meant for callers outside of the simulation loop, the copy does not
+     * change when the store is updated.
+     *
+     * @param slot the slot of the building.
+     * @return a copy of the building.
+     */
+    public Building getBuilding(int slot) {
+        return new Building(buildingNumbers[slot], executedTimes[slot], totalTimes[slot]);
+    }
+
+    /**
+     * Doubles the capacity of the store.
+     */
+    private void grow() {
+        int newCapacity = Math.max(buildingNumbers.length << 1, 1);
+        buildingNumbers = Arrays.copyOf(buildingNumbers, newCapacity);
+        executedTimes = Arrays.copyOf(executedTimes, newCapacity);
+        totalTimes = Arrays.copyOf(totalTimes, newCapacity);
+        freeSlots = Arrays.copyOf(freeSlots, newCapacity);
+    }
+}
@@ -0,0 +1,111 @@
+package main.java.com.project.bean;
+
+import com.project.offheap.OffHeapInts;
+
+import java.io.Closeable;
+
+/**
+ * {@link BuildingStore} whose columns are kept outside of the java heap, in {@link OffHeapInts}. The slots are handed
+ * out and reused the same way, so the store can be used wherever a store is expected, and growing it allocates new
+ * chunks instead of copying the columns.
+ */
+public class OffHeapBuildingStore extends BuildingStore implements Closeable {
+    private final OffHeapInts buildingNumbers = new OffHeapInts();
+    private final OffHeapInts executedTimes = new OffHeapInts();
+    private final OffHeapInts totalTimes = new OffHeapInts();
+    /**
+     * Stack of the slots which were released and can be reused.
+     */
+    private final OffHeapInts freeSlots = new OffHeapInts();
+    private int freeCount;
+    /**
+     * The number of slots which have ever been handed out, the next new slot.
+     */
+    private int highWaterMark;
+
+    public OffHeapBuildingStore() {
+        //the columns of the parent store are left at their smallest, every method reads the columns of this store.
+        super(1);
+    }
+
+    @Override
+    public int add(int buildingNumber, int executedTime, int totalTime) {
+        int slot;
+        if (freeCount > 0) {
+            slot = freeSlots.get(--freeCount);
+        } else {
+            if (highWaterMark == buildingNumbers.capacity()) {
+                grow();
+            }
+            slot = highWaterMark++;
+        }
+        buildingNumbers.set(slot, buildingNumber);
+        executedTimes.set(slot, executedTime);
+        totalTimes.set(slot, totalTime);
+        return slot;
+    }
+
+    @Override
+    public void release(int slot) {
+        freeSlots.set(freeCount++, slot);
+    }
+
+    @Override
+    public int size() {
+        return highWaterMark - freeCount;
+    }
+
+    @Override
+    public int getSlotLimit() {
+        return highWaterMark;
+    }
+
+    @Override
+    public int getBuildingNumber(int slot) {
+        return buildingNumbers.get(slot);
+    }
+
+    @Override
+    public int getExecutedTime(int slot) {
+        return executedTimes.get(slot);
+    }
+
+    @Override
+    public void setExecutedTime(int slot, int executedTime) {
+        executedTimes.set(slot, executedTime);
+    }
+
+    @Override
+    public int getTotalTime(int slot) {
+        return totalTimes.get(slot);
+    }
+
+    @Override
+    public Building getBuilding(int slot) {
+        return new Building(buildingNumbers.get(slot), executedTimes.get(slot), totalTimes.get(slot));
+    }
+
+    /**
+     * Frees the columns, the store is empty afterwards.
+     */
+    @Override
+    public void close() {
+        buildingNumbers.close();
+        executedTimes.close();
+        totalTimes.close();
+        freeSlots.close();
+        freeCount = 0;
+        highWaterMark = 0;
+    }
+
+    /**
+     * Adds a chunk to every column.
+     */
+    private void grow() {
+        long capacity = buildingNumbers.capacity() + 1;
+        buildingNumbers.ensureCapacity(capacity);
+        executedTimes.ensureCapacity(capacity);
+        totalTimes.ensureCapacity(capacity);
+        freeSlots.ensureCapacity(capacity);
+    }
+}
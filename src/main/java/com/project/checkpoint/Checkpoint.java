@@ -0,0 +1,229 @@
+package main.java.com.project.checkpoint;
+
+import com.project.bean.BuildingStore;
+import com.project.heap.SchedulerQueue;
+import com.project.tree.BuildingIndex;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes the state of a simulation to a compact binary file and restores it. The file has a fixed size header with the
+ * {@link SimulationState}, followed by the number of buildings and then 12 bytes per building, its building number,
+ * executed time and total time, in increasing order of the building number.
+ * <p>
+ * The buildings are streamed through a fixed size buffer straight from the index, so writing a checkpoint needs no
+ * memory in proportion to the number of buildings. The restore adds them all at once to the heap and the tree, which
+ * bulk load them in linear time. Into the storage outside of the java heap it adds them in batches of
+ * {@link #RESTORE_BATCH} buildings instead, so that it needs no such memory either. Because they come back sorted,
+ * every batch after the first one comes after all the buildings of the tree, which the tree appends, and the heap
+ * moves down only the ancestors of the batch, so that the restore stays linear.
+ */
+public final class Checkpoint {
+    /**
+     * The first bytes of every checkpoint, "RCCP".
+     */
+    private static final int MAGIC = 0x52434350;
+    private static final int VERSION = 2;
+    /**
+     * The size of the buffer through which the file is written and read.
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+    /**
+     * The number of buildings which a restore in batches adds to the heap and the tree at a time.
+     */
+    private static final int RESTORE_BATCH = 1 << 16;
+    /**
+     * The size of the header, the number of buildings included.
+     */
+    private static final int HEADER_SIZE = 3 * 4 + 1 + 3 * 4 + 4 * 4 + 5 * 8 + 4;
+    /**
+     * The size of one building in the file.
+     */
+    private static final int BUILDING_SIZE = 3 * 4;
+    private static final int WORKING = 1;
+    private static final int HAS_COMMAND = 2;
+    private static final int READ_NEXT = 4;
+
+    private Checkpoint() {
+    }
+
+    /**
+     * Writes the checkpoint. It is first written to a temporary file next to the file, which is synced and then renamed,
+     * so that a crash while writing leaves the previous checkpoint in place.
+     *
+     * @param file  the checkpoint file.
+     * @param state the state of the simulation.
+     * @param store the store which holds the buildings.
+     * @param tree  the index of the buildings, which gives them in increasing order of the building number.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void write(Path file, SimulationState state, BuildingStore store, BuildingIndex tree)
+            throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            buffer.putInt(MAGIC).putInt(VERSION);
+            buffer.putInt(state.globalTime);
+            buffer.put((byte) ((state.working ? WORKING : 0) | (state.hasCommand ? HAS_COMMAND : 0)
+                    | (state.readNext ? READ_NEXT : 0)));
+            buffer.putInt(state.workingOn).putInt(state.endDate).putInt(state.daysWorked);
+            buffer.putInt(state.command.getTime()).putInt(state.command.getOpcode());
+            buffer.putInt(state.command.getArgument1()).putInt(state.command.getArgument2());
+            buffer.putLong(state.inputPosition).putLong(state.lineNumber).putLong(state.commandCount);
+            buffer.putLong(state.outputLength).putLong(state.journalPosition);
+            buffer.putInt(store.size());
+            try {
+                tree.forEachInRange(Integer.MIN_VALUE, Integer.MAX_VALUE, slot -> {
+                    if (buffer.remaining() < BUILDING_SIZE) {
+                        drain(channel, buffer);
+                    }
+                    buffer.putInt(store.getBuildingNumber(slot));
+                    buffer.putInt(store.getExecutedTime(slot));
+                    buffer.putInt(store.getTotalTime(slot));
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            drain(channel, buffer);
+            channel.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads the state of the simulation from the checkpoint, without its buildings. This tells how much of the output
+     * to keep before the simulation itself is set up.
+     *
+     * @param file the checkpoint file.
+     * @return the state of the simulation.
+     * @throws IOException if the file cannot be read or is not a checkpoint.
+     */
+    public static SimulationState readState(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE);
+            SimulationState state = new SimulationState();
+            readHeader(file, channel, buffer, state);
+            return state;
+        }
+    }
+
+    /**
+     * Restores the buildings of the checkpoint into an empty store, heap and index, and reads the state of the
+     * simulation. The building number of the building which is being worked on is left in
+     * {@link SimulationState#workingOn}.
+     *
+     * @param file    the checkpoint file.
+     * @param store   the empty store into which the buildings are restored.
+     * @param heap    the empty queue into which the buildings are restored.
+     * @param tree    the empty index into which the buildings are restored.
+     * @param batched flag which tells whether to add the buildings in batches of {@link #RESTORE_BATCH}, which keeps
+     *                the memory of the restore fixed, or all at once.
+     * @return the state of the simulation.
+     * @throws Exception if the file cannot be read or is not a checkpoint.
+     */
+    public static SimulationState restore(Path file, BuildingStore store, SchedulerQueue heap, BuildingIndex tree,
+                                          boolean batched) throws Exception {
+        if (store.size() != 0) {
+            throw new IllegalStateException("A checkpoint can only be restored into an empty city");
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            SimulationState state = new SimulationState();
+            int count = readHeader(file, channel, buffer, state);
+            int[] slots = new int[batched ? Math.min(count, RESTORE_BATCH) : count];
+            for (int restored = 0; restored < count; ) {
+                int batch = Math.min(count - restored, slots.length);
+                for (int i = 0; i < batch; i++) {
+                    if (buffer.remaining() < BUILDING_SIZE) {
+                        fill(file, channel, buffer, BUILDING_SIZE);
+                    }
+                    slots[i] = store.add(buffer.getInt(), buffer.getInt(), buffer.getInt());
+                }
+                //the buildings come in increasing order of the building number, which the batches of the tree need.
+                heap.addBuildings(slots, batch);
+                tree.addBuildings(slots, batch);
+                restored += batch;
+            }
+            return state;
+        }
+    }
+
+    /**
+     * Reads the header of the checkpoint into the state.
+     *
+     * @param file    the checkpoint file, for the error messages.
+     * @param channel the channel of the checkpoint file.
+     * @param buffer  the buffer through which the file is read.
+     * @param state   the state which is to be filled.
+     * @return the number of buildings in the checkpoint.
+     * @throws IOException if the file cannot be read or is not a checkpoint.
+     */
+    private static int readHeader(Path file, FileChannel channel, ByteBuffer buffer, SimulationState state)
+            throws IOException {
+        buffer.limit(0);
+        fill(file, channel, buffer, HEADER_SIZE);
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            throw new IOException(file + " is not a checkpoint of this version");
+        }
+        state.globalTime = buffer.getInt();
+        int flags = buffer.get();
+        state.working = (flags & WORKING) != 0;
+        state.hasCommand = (flags & HAS_COMMAND) != 0;
+        state.readNext = (flags & READ_NEXT) != 0;
+        state.workingOn = buffer.getInt();
+        state.endDate = buffer.getInt();
+        state.daysWorked = buffer.getInt();
+        state.command.set(buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt());
+        state.inputPosition = buffer.getLong();
+        state.lineNumber = buffer.getLong();
+        state.commandCount = buffer.getLong();
+        state.outputLength = buffer.getLong();
+        state.journalPosition = buffer.getLong();
+        return buffer.getInt();
+    }
+
+    /**
+     * Reads more of the file into the buffer until it holds at least {@code needed} bytes which are not read yet.
+     *
+     * @param file    the checkpoint file, for the error messages.
+     * @param channel the channel of the checkpoint file.
+     * @param buffer  the buffer, ready to be read from.
+     * @param needed  the number of bytes needed.
+     * @throws IOException if the file cannot be read or ends too early.
+     */
+    private static void fill(Path file, FileChannel channel, ByteBuffer buffer, int needed) throws IOException {
+        buffer.compact();
+        while (buffer.position() < needed) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException(file + " ends too early");
+            }
+        }
+        buffer.flip();
+    }
+
+    /**
+     * Writes the content of the buffer to the channel and empties the buffer.
+     *
+     * @param channel the channel of the checkpoint file.
+     * @param buffer  the buffer, ready to be written to.
+     */
+    private static void drain(FileChannel channel, ByteBuffer buffer) {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,62 @@
+package main.java.com.project.checkpoint;
+
+import com.project.command.Command;
+
+/**
+ * The state of a running simulation beside its buildings: the clock, the building which is being worked on, the
+ * command which was read but not executed yet, and how far the input and the output have come.
+ */
+public class SimulationState {
+    /**
+     * The day on which the simulation goes on.
+     */
+    public int globalTime;
+    /**
+     * Flag which tells whether a slice of work on a building is in progress.
+     */
+    public boolean working;
+    /**
+     * The building number of the building which is being worked on, if a slice is in progress.
+     */
+    public int workingOn;
+    /**
+     * The executed time at which the slice of work ends.
+     */
+    public int endDate;
+    /**
+     * The executed time of the building which is being worked on, days of the current slice included.
+     */
+    public int daysWorked;
+    /**
+     * Flag which tells whether {@link #command} was read but not executed yet.
+     */
+    public boolean hasCommand;
+    /**
+     * Flag which tells whether the next command is still to be read.
+     */
+    public boolean readNext;
+    /**
+     * The command which was read but not executed yet.
+     */
+    public final Command command = new Command();
+    /**
+     * The position of the reader in the input, after the last command read.
+     */
+    public long inputPosition;
+    /**
+     * The number of lines read from the input.
+     */
+    public long lineNumber;
+    /**
+     * The number of commands read from the input.
+     */
+    public long commandCount;
+    /**
+     * The number of bytes of output written.
+     */
+    public long outputLength;
+    /**
+     * The position in the journal after the last command executed, or 0 without a journal.
+     */
+    public long journalPosition;
+}
@@ -0,0 +1,98 @@
+package main.java.com.project.command;
+
+/**
+ * A command of the input file, decoded into primitive fields. The same instance is filled again by the
+ * {@link CommandReader} for every command, so a command must be used before the next one is read.
+ */
+public class Command {
+    /**
+     * Opcode of {@code Insert(buildingNumber,totalTime)}.
+     */
+    public static final int INSERT = 0;
+    /**
+     * Opcode of {@code PrintBuilding(buildingNumber)}.
+     */
+    public static final int PRINT = 1;
+    /**
+     * Opcode of {@code PrintBuilding(buildingNumber1,buildingNumber2)}.
+     */
+    public static final int PRINT_RANGE = 2;
+
+    /**
+     * The day on which the command is to be executed.
+     */
+    int time;
+    /**
+     * The operation of the command, one of {@link #INSERT}, {@link #PRINT} or {@link #PRINT_RANGE}.
+     */
+    int opcode;
+    /**
+     * The first argument of the command.
+     */
+    int argument1;
+    /**
+     * The second argument of the command, only set for {@link #INSERT} and {@link #PRINT_RANGE}.
+     */
+    int argument2;
+
+    /**
+     * @return Returns the day on which the command is to be executed.
+     */
+    public int getTime() {
+        return time;
+    }
+
+    /**
+     * @return Returns the operation of the command.
+     */
+    public int getOpcode() {
+        return opcode;
+    }
+
+    /**
+     * @return Returns the first argument of the command, the building number.
+     */
+    public int getArgument1() {
+        return argument1;
+    }
+
+    /**
+     * @return Returns the second argument of the command, the total time of an insert or the ending building number
+     * of a range print.
+     */
+    public int getArgument2() {
+        return argument2;
+    }
+
+    /**
+     * Fills the command with the given values.
+     *
+     * @param time      the day on which the command is to be executed.
+     * @param opcode    the operation of the command.
+     * @param argument1 the first argument of the command.
+     * @param argument2 the second argument of the command.
+     * @return this command.
+     */
+    public Command set(int time, int opcode, int argument1, int argument2) {
+        this.time = time;
+        this.opcode = opcode;
+        this.argument1 = argument1;
+        this.argument2 = argument2;
+        return this;
+    }
+
+    /**
+     * Returns the command in the format of the input file, like {@code 5: Insert(50,20)}.
+     *
+     * @return the command in the format of the input file.
+     */
+    @Override
+    public String toString() {
+        if (opcode == INSERT) {
+            return time + ": Insert(" + argument1 + "," + argument2 + ")";
+        } else if (opcode == PRINT) {
+            return time + ": PrintBuilding(" + argument1 + ")";
+        }
+        return time + ": PrintBuilding(" + argument1 + "," + argument2 + ")";
+    }
+}
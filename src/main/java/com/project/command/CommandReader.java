@@ -0,0 +1,183 @@
+package main.java.com.project.command;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Decodes the commands of the input straight from its bytes into a reusable {@link Command}, so that reading a command
+ * allocates nothing. A command looks like {@code 5: Insert(50,20)}, {@code 7: PrintBuilding(50)} or
+ * {@code 9: PrintBuilding(10,60)}, with one command per line. The sub classes provide the bytes.
+ */
+public abstract class CommandReader implements Closeable {
+    /**
+     * Returned by {@link #read()} at the end of the input.
+     */
+    protected static final int END_OF_INPUT = -1;
+    /**
+     * The number of the line which is being decoded, used in the error messages.
+     */
+    private long lineNumber;
+    /**
+     * The value of the number decoded by the last call of {@link #parseNumber(int)}.
+     */
+    private int number;
+    /**
+     * The number of commands read so far.
+     */
+    private long commandCount;
+
+    /**
+     * Returns the next byte of the input.
+     *
+     * @return the next byte, or {@link #END_OF_INPUT} if there are no more bytes.
+     * @throws IOException if the input cannot be read.
+     */
+    protected abstract int read() throws IOException;
+
+    /**
+     * Returns the position in the input of the next byte which {@link #read()} returns.
+     *
+     * @return the number of bytes of the input before the next byte.
+     */
+    public abstract long getPosition();
+
+    /**
+     * Moves the input forward to the position, so that the next byte which {@link #read()} returns is the byte at the
+     * position.
+     *
+     * @param position the position in the input, not before the current position.
+     * @throws IOException if the input cannot be read up to the position.
+     */
+    protected abstract void seek(long position) throws IOException;
+
+    /**
+     * Continues reading the input from where an earlier reader of the same input stopped, for instance when a
+     * simulation is restored from a checkpoint.
+     *
+     * @param position     the position returned by {@link #getPosition()} of the earlier reader.
+     * @param lineNumber   the line number of the earlier reader.
+     * @param commandCount the number of commands read by the earlier reader.
+     * @throws IOException if the input cannot be read up to the position.
+     */
+    public void resume(long position, long lineNumber, long commandCount) throws IOException {
+        seek(position);
+        this.lineNumber = lineNumber;
+        this.commandCount = commandCount;
+    }
+
+    /**
+     * Reads the next command of the input into {@code command}. Blank lines are skipped.
+     *
+     * @param command the command which is to be filled.
+     * @return {@code true} if a command was read, {@code false} at the end of the input.
+     * @throws IOException if the input cannot be read or the command is malformed.
+     */
+    public boolean next(Command command) throws IOException {
+        int b = skipBlanks(read());
+        while (b == '\n') {
+            //skip the empty lines.
+            lineNumber++;
+            b = skipBlanks(read());
+        }
+        if (b == END_OF_INPUT) {
+            return false;
+        }
+        lineNumber++;
+        b = parseNumber(b);
+        command.time = number;
+        b = skipBlanks(b);
+        if (b != ':') {
+            throw malformed();
+        }
+        b = skipBlanks(read());
+        boolean insert = b == 'I';
+        while (b != '(') {
+            //skip the name of the command.
+            if (b == '\n' || b == END_OF_INPUT) {
+                throw malformed();
+            }
+            b = read();
+        }
+        b = parseNumber(skipBlanks(read()));
+        command.argument1 = number;
+        b = skipBlanks(b);
+        if (b == ',') {
+            b = parseNumber(skipBlanks(read()));
+            command.argument2 = number;
+            command.opcode = insert ? Command.INSERT : Command.PRINT_RANGE;
+            b = skipBlanks(b);
+        } else if (insert) {
+            throw malformed();
+        } else {
+            command.opcode = Command.PRINT;
+        }
+        if (b != ')') {
+            throw malformed();
+        }
+        while (b != '\n' && b != END_OF_INPUT) {
+            //skip the rest of the line.
+            b = read();
+        }
+        commandCount++;
+        return true;
+    }
+
+    /**
+     * @return Returns the number of lines read so far.
+     */
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * @return Returns the number of commands read so far.
+     */
+    public long getCommandCount() {
+        return commandCount;
+    }
+
+    /**
+     * Decodes the decimal number which starts with the byte {@code b} into {@link #number}.
+     *
+     * @param b the first byte of the number.
+     * @return the byte after the number.
+     * @throws IOException if the input cannot be read or there is no number.
+     */
+    private int parseNumber(int b) throws IOException {
+        boolean negative = b == '-';
+        if (negative) {
+            b = read();
+        }
+        if (b < '0' || b > '9') {
+            throw malformed();
+        }
+        int value = 0;
+        do {
+            value = value * 10 + (b - '0');
+            b = read();
+        } while (b >= '0' && b <= '9');
+        number = negative ? -value : value;
+        return b;
+    }
+
+    /**
+     * Skips the spaces, the tabs and the carriage returns starting with the byte {@code b}.
+     *
+     * @param b the current byte.
+     * @return the first byte which is not blank.
+     * @throws IOException if the input cannot be read.
+     */
+    private int skipBlanks(int b) throws IOException {
+        while (b == ' ' || b == '\t' || b == '\r') {
+            b = read();
+        }
+        return b;
+    }
+
+    /**
+     * @return Returns the exception thrown for a malformed command.
+     */
+    private IOException malformed() {
+        return new IOException("Malformed command on line " + lineNumber);
+    }
+}
@@ -0,0 +1,157 @@
+package main.java.com.project.command;
+
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A queue through which any number of producer threads hand new buildings to one running simulation, next to the
+ * commands of its input. Publishing an insert is a single compare and swap on the head of a lock-free stack, so the
+ * producers never wait for the simulation thread nor take a lock. The simulation takes everything published so far in
+ * one swap at every day boundary and keeps it in a local batch ordered by (time, building number).
+ * <p>
+ * An insert is executed on its day, exactly like an {@code Insert} command of the input, if it was published before
+ * the simulation reached that day, and on the first day after it was published otherwise. Inserts which share a day
+ * are executed in the order of their building numbers whichever thread published them first, so the output only
+ * depends on the times of the inserts as long as the producers stay ahead of the simulation.
+ */
+public class InsertQueue {
+    /**
+     * The most recently published insert, which links to the ones published before it.
+     */
+    private final AtomicReference<Insert> published;
+    /**
+     * The inserts taken by the simulation which are still to be executed, used by the simulation thread only.
+     */
+    private final PriorityQueue<Insert> pending;
+    /**
+     * The simulation thread while it waits for inserts, so that the producers can wake it up.
+     */
+    private volatile Thread waiter;
+    private volatile boolean closed;
+
+    /**
+     * Initialises an open queue.
+     */
+    public InsertQueue() {
+        published = new AtomicReference<>();
+        pending = new PriorityQueue<>((a, b) -> a.time != b.time ? Integer.compare(a.time, b.time)
+                : Integer.compare(a.buildingNumber, b.buildingNumber));
+    }
+
+    /**
+     * Publishes a new building. Can be called from any thread.
+     *
+     * @param time           the day on which the building is inserted.
+     * @param buildingNumber the number of the building.
+     * @param totalTime      the total time needed to construct the building.
+     * @throws IllegalStateException if the queue is closed.
+     */
+    public void submit(int time, int buildingNumber, int totalTime) {
+        if (closed) {
+            throw new IllegalStateException("The queue is closed");
+        }
+        Insert insert = new Insert(time, buildingNumber, totalTime);
+        Insert head;
+        do {
+            head = published.get();
+            insert.next = head;
+        } while (!published.compareAndSet(head, insert));
+        Thread thread = waiter;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Tells the simulation that no more buildings will be published. All the calls of {@link #submit(int, int, int)}
+     * must have returned before.
+     */
+    public void close() {
+        closed = true;
+        Thread thread = waiter;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Takes all the published inserts into the batch of the simulation. Called by the simulation thread only.
+     *
+     * @return {@code true} if there are inserts to execute.
+     */
+    public boolean drain() {
+        Insert insert = published.getAndSet(null);
+        while (insert != null) {
+            pending.add(insert);
+            insert = insert.next;
+        }
+        return !pending.isEmpty();
+    }
+
+    /**
+     * Returns the day of the first insert to execute. Called by the simulation thread only, after {@link #drain()}
+     * returned {@code true}.
+     *
+     * @return the day of the first insert.
+     */
+    public int getNextTime() {
+        return pending.peek().time;
+    }
+
+    /**
+     * Fills the command with the next insert which is due on the day. Called by the simulation thread only.
+     *
+     * @param command the command which is to be filled.
+     * @param day     the current day of the simulation.
+     * @return {@code true} if the command was filled, {@code false} if no more inserts are due.
+     */
+    public boolean poll(Command command, int day) {
+        Insert insert = pending.peek();
+        if (insert == null || insert.time > day) {
+            return false;
+        }
+        pending.poll();
+        command.set(day, Command.INSERT, insert.buildingNumber, insert.totalTime);
+        return true;
+    }
+
+    /**
+     * Waits until a building is published or the queue is closed. Called by the simulation thread only, when it has
+     * nothing else to do.
+     */
+    public void await() {
+        waiter = Thread.currentThread();
+        //the producers look at the waiter after publishing, so checking again after setting it misses nothing.
+        while (published.get() == null && !closed) {
+            LockSupport.park(this);
+        }
+        waiter = null;
+    }
+
+    /**
+     * @return Returns {@code true} once the queue is closed and all its inserts have been executed.
+     */
+    public boolean isFinished() {
+        return closed && published.get() == null && pending.isEmpty();
+    }
+
+    /**
+     * A published building.
+     */
+    private static final class Insert {
+        private final int time;
+        private final int buildingNumber;
+        private final int totalTime;
+        /**
+         * The insert which was published before this one.
+         */
+        private Insert next;
+
+        private Insert(int time, int buildingNumber, int totalTime) {
+            this.time = time;
+            this.buildingNumber = buildingNumber;
+            this.totalTime = totalTime;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package main.java.com.project.command;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads the commands from a file which is mapped into memory. Files larger than a mapping can be are mapped one window
+ * at a time, the next window is mapped when the current one has been read.
+ */
+public class MappedCommandReader extends CommandReader {
+    /**
+     * The size of the window of the file which is mapped at a time.
+     */
+    private static final long WINDOW_SIZE = 1L << 28;
+    private final FileChannel channel;
+    private final long fileSize;
+    /**
+     * The position in the file of the first byte of the current window.
+     */
+    private long windowStart;
+    private MappedByteBuffer window;
+
+    /**
+     * Opens the file and maps its first window.
+     *
+     * @param file the file which contains the commands.
+     * @throws IOException if the file cannot be opened or mapped.
+     */
+    public MappedCommandReader(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        fileSize = channel.size();
+        windowStart = 0;
+        map();
+    }
+
+    @Override
+    protected int read() throws IOException {
+        if (!window.hasRemaining()) {
+            if (windowStart + window.capacity() >= fileSize) {
+                return END_OF_INPUT;
+            }
+            windowStart += window.capacity();
+            map();
+        }
+        return window.get() & 0xFF;
+    }
+
+    @Override
+    public long getPosition() {
+        return windowStart + window.position();
+    }
+
+    @Override
+    protected void seek(long position) throws IOException {
+        //the window is mapped again so that it starts at the position.
+        windowStart = Math.min(position, fileSize);
+        map();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Maps the window of the file which starts at {@code windowStart}.
+     *
+     * @throws IOException if the file cannot be mapped.
+     */
+    private void map() throws IOException {
+        window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, Math.min(WINDOW_SIZE, fileSize - windowStart));
+    }
+}
@@ -0,0 +1,121 @@
+package main.java.com.project.command;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads the commands from a stream, like the standard input or a pipe, through a fixed size buffer so that the memory
+ * used does not depend on the length of the stream. In tail mode the end of the stream is not the end of the input:
+ * the reader waits for more bytes to be appended, which lets it follow a file which is still being written.
+ */
+public class StreamCommandReader extends CommandReader {
+    /**
+     * The size of the buffer in which the bytes of the stream are read.
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+    /**
+     * The time to wait in tail mode before looking for new bytes again.
+     */
+    private static final long POLL_INTERVAL_MILLIS = 100;
+    private final InputStream stream;
+    private final boolean tail;
+    private final byte[] buffer;
+    /**
+     * The position of the next byte to read in the buffer.
+     */
+    private int position;
+    /**
+     * The number of bytes in the buffer.
+     */
+    private int limit;
+    /**
+     * The position in the stream of the first byte of the buffer.
+     */
+    private long bufferStart;
+
+    /**
+     * Initialises the reader.
+     *
+     * @param stream the stream from which the commands are read.
+     * @param tail   flag which tells whether to wait for more bytes at the end of the stream.
+     */
+    public StreamCommandReader(InputStream stream, boolean tail) {
+        this.stream = stream;
+        this.tail = tail;
+        buffer = new byte[BUFFER_SIZE];
+        position = 0;
+        limit = 0;
+        bufferStart = 0;
+    }
+
+    @Override
+    protected int read() throws IOException {
+        if (position == limit) {
+            int count = stream.read(buffer, 0, buffer.length);
+            while (count <= 0) {
+                if (count < 0 && !tail) {
+                    return END_OF_INPUT;
+                }
+                //in tail mode wait for the bytes which are still to be written.
+                waitForInput();
+                count = stream.read(buffer, 0, buffer.length);
+            }
+            bufferStart += limit;
+            position = 0;
+            limit = count;
+        }
+        return buffer[position++] & 0xFF;
+    }
+
+    @Override
+    public long getPosition() {
+        return bufferStart + position;
+    }
+
+    /**
+     * Moves the stream forward to the position. A stream cannot go back, so the position must not be before the
+     * current one.
+     *
+     * @param position the position in the stream.
+     * @throws IOException if the stream ends before the position or the position is behind.
+     */
+    @Override
+    protected void seek(long position) throws IOException {
+        long remaining = position - getPosition();
+        if (remaining < 0) {
+            throw new IOException("Cannot move a stream back to position " + position);
+        }
+        while (remaining > 0) {
+            if (this.position == limit) {
+                //fill the buffer again, the byte which is read counts as skipped.
+                if (read() == END_OF_INPUT) {
+                    throw new IOException("The input ends before position " + position);
+                }
+                remaining--;
+            } else {
+                int skipped = (int) Math.min(remaining, limit - this.position);
+                this.position += skipped;
+                remaining -= skipped;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        stream.close();
+    }
+
+    /**
+     * Waits before the stream is read again.
+     *
+     * @throws IOException if the thread is interrupted while waiting.
+     */
+    private void waitForInput() throws IOException {
+        try {
+            Thread.sleep(POLL_INTERVAL_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for more commands", e);
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package main.java.com.project.heap;
+
+import com.project.bean.BuildingStore;
+
+import java.util.Arrays;
+
+/**
+ * Scheduler queue which keeps the buildings in one bucket per executed time, instead of one heap ordered on the
+ * executed time. The executed times are small integers which only grow by a slice of work at a time, so most buildings
+ * wait in a few hundred buckets, and the first non empty bucket is found from a bitmap of the buckets in a couple of
+ * word scans. Within a bucket the buildings are ordered on the building number by a small heap of packed keys, so the
+ * order is the one of {@link MinHeap}: the smallest executed time, then the smallest building number.
+ * <p>
+ * New buildings come in with an executed time of 0, below the buildings which are already worked on, so the keys of
+ * the queue are not monotone and a radix heap, which needs every key to be at least the last minimum, does not fit.
+ * The bucket of the smallest executed time is tracked instead, and moves back when a smaller building is added.
+ * <p>
+ * The buckets cover the executed times below {@link #BUCKET_COUNT}, the buildings which have been worked on longer
+ * wait in a {@link MinHeap} behind the buckets, so the memory of the queue does not grow with the executed times.
+ */
+public class BucketQueue implements SchedulerQueue {
+    /**
+     * The number of buckets, the executed times from 0 to {@code BUCKET_COUNT - 1}.
+     */
+    static final int BUCKET_COUNT = 1 << 16;
+    private static final int INITIAL_BUCKET_CAPACITY = 4;
+    /**
+     * The bucket of a slot which is not in the queue.
+     */
+    private static final int NOT_IN_QUEUE = -1;
+    /**
+     * The bucket of a slot which waits in the overflow heap.
+     */
+    private static final int OVERFLOW = -2;
+    /**
+     * The value of {@link #minBucket} when all the buckets are empty.
+     */
+    private static final int NO_BUCKET = Integer.MAX_VALUE;
+    private final BuildingStore store;
+    /**
+     * The heap of every bucket, made of the packed (building number, slot) keys of its buildings. The buckets are
+     * allocated up to the largest executed time seen so far.
+     */
+    private long[][] buckets = new long[0][];
+    private int[] bucketSizes = new int[0];
+    /**
+     * One bit per bucket, set when the bucket holds a building.
+     */
+    private final long[] occupied = new long[BUCKET_COUNT >>> 6];
+    /**
+     * One bit per word of {@link #occupied}, set when the word has a bit set.
+     */
+    private final long[] occupiedWords = new long[BUCKET_COUNT >>> 12];
+    /**
+     * The bucket of every slot, {@link #NOT_IN_QUEUE} or {@link #OVERFLOW}.
+     */
+    private int[] bucketOf = new int[0];
+    /**
+     * The index of every slot in the heap of its bucket.
+     */
+    private int[] positions = new int[0];
+    /**
+     * The buildings whose executed time is beyond the buckets.
+     */
+    private final MinHeap overflow;
+    /**
+     * The first bucket which holds a building, or {@link #NO_BUCKET}.
+     */
+    private int minBucket = NO_BUCKET;
+    private int size;
+
+    public BucketQueue(BuildingStore store) {
+        this.store = store;
+        overflow = new MinHeap(store);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    public boolean contains(int slot) {
+        return slot < bucketOf.length && bucketOf[slot] != NOT_IN_QUEUE;
+    }
+
+    @Override
+    public void addBuilding(int slot) {
+        if (slot >= bucketOf.length) {
+            int length = Math.max(bucketOf.length << 1, Math.max(slot + 1, 64));
+            int old = bucketOf.length;
+            bucketOf = Arrays.copyOf(bucketOf, length);
+            Arrays.fill(bucketOf, old, length, NOT_IN_QUEUE);
+            positions = Arrays.copyOf(positions, length);
+        }
+        int executedTime = store.getExecutedTime(slot);
+        if (executedTime < 0) {
+            throw new IllegalArgumentException("The executed time " + executedTime + " of slot " + slot
+                    + " is negative");
+        }
+        size++;
+        if (executedTime >= BUCKET_COUNT) {
+            bucketOf[slot] = OVERFLOW;
+            overflow.addBuilding(slot);
+            return;
+        }
+        int bucket = executedTime;
+        if (bucket >= buckets.length) {
+            int length = Math.min(Math.max(buckets.length << 1, bucket + 1), BUCKET_COUNT);
+            buckets = Arrays.copyOf(buckets, length);
+            bucketSizes = Arrays.copyOf(bucketSizes, length);
+        }
+        long[] heap = buckets[bucket];
+        int count = bucketSizes[bucket];
+        if (heap == null) {
+            heap = new long[INITIAL_BUCKET_CAPACITY];
+            buckets[bucket] = heap;
+        } else if (count == heap.length) {
+            heap = Arrays.copyOf(heap, count << 1);
+            buckets[bucket] = heap;
+        }
+        if (count == 0) {
+            setOccupied(bucket);
+            minBucket = Math.min(minBucket, bucket);
+        }
+        bucketSizes[bucket] = count + 1;
+        bucketOf[slot] = bucket;
+        moveUp(heap, count, ((long) store.getBuildingNumber(slot) << 32) | slot);
+    }
+
+    /**
+     * {@inheritDoc} The buildings go to their buckets one by one, which costs O(1) per building on average since a
+     * building only moves up the small heap of its bucket.
+     */
+    @Override
+    public void addBuildings(int[] slots, int count) {
+        for (int i = 0; i < count; i++) {
+            addBuilding(slots[i]);
+        }
+    }
+
+    @Override
+    public int peekMin() {
+        if (minBucket == NO_BUCKET) {
+            return overflow.peekMin();
+        }
+        return (int) buckets[minBucket][0];
+    }
+
+    @Override
+    public int getMin() {
+        int min = peekMin();
+        removeBuilding(min);
+        return min;
+    }
+
+    @Override
+    public void updateBuilding(int slot) {
+        removeBuilding(slot);
+        addBuilding(slot);
+    }
+
+    @Override
+    public void removeBuilding(int slot) {
+        int bucket = bucketOf[slot];
+        bucketOf[slot] = NOT_IN_QUEUE;
+        size--;
+        if (bucket == OVERFLOW) {
+            overflow.removeBuilding(slot);
+            return;
+        }
+        long[] heap = buckets[bucket];
+        int count = bucketSizes[bucket] - 1;
+        bucketSizes[bucket] = count;
+        int index = positions[slot];
+        if (index < count) {
+            //the last building of the heap fills the hole, unless it was the one removed.
+            long last = heap[count];
+            if (last < heap[index]) {
+                moveUp(heap, index, last);
+            } else {
+                moveDown(heap, count, index, last);
+            }
+        }
+        if (count == 0) {
+            clearOccupied(bucket);
+            if (bucket == minBucket) {
+                minBucket = nextOccupied(bucket + 1);
+            }
+        }
+    }
+
+    /**
+     * Places the key at the index of the heap of a bucket and moves it up until its parent is smaller than it.
+     *
+     * @param heap  the heap of the bucket.
+     * @param index the index where the key is to be placed.
+     * @param key   the packed key of the building.
+     */
+    private void moveUp(long[] heap, int index, long key) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (heap[parent] < key) {
+                break;
+            }
+            heap[index] = heap[parent];
+            positions[(int) heap[index]] = index;
+            index = parent;
+        }
+        heap[index] = key;
+        positions[(int) key] = index;
+    }
+
+    /**
+     * Places the key at the index of the heap of a bucket and moves it down until its children are larger than it.
+     *
+     * @param heap  the heap of the bucket.
+     * @param count the number of keys in the heap.
+     * @param index the index where the key is to be placed.
+     * @param key   the packed key of the building.
+     */
+    private void moveDown(long[] heap, int count, int index, long key) {
+        int child;
+        while ((child = 2 * index + 1) < count) {
+            if (child + 1 < count && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (key < heap[child]) {
+                break;
+            }
+            heap[index] = heap[child];
+            positions[(int) heap[index]] = index;
+            index = child;
+        }
+        heap[index] = key;
+        positions[(int) key] = index;
+    }
+
+    private void setOccupied(int bucket) {
+        int word = bucket >>> 6;
+        occupied[word] |= 1L << bucket;
+        occupiedWords[word >>> 6] |= 1L << word;
+    }
+
+    private void clearOccupied(int bucket) {
+        int word = bucket >>> 6;
+        occupied[word] &= ~(1L << bucket);
+        if (occupied[word] == 0) {
+            occupiedWords[word >>> 6] &= ~(1L << word);
+        }
+    }
+
+    /**
+     * Returns the first bucket from the bucket on which holds a building.
+     *
+     * @param bucket the first bucket to look at.
+     * @return the first bucket which holds a building, or {@link #NO_BUCKET}.
+     */
+    private int nextOccupied(int bucket) {
+        if (bucket >= BUCKET_COUNT) {
+            return NO_BUCKET;
+        }
+        int word = bucket >>> 6;
+        long bits = occupied[word] & (-1L << bucket);
+        if (bits != 0) {
+            return (word << 6) + Long.numberOfTrailingZeros(bits);
+        }
+        //look for the next word with a bit set, a summary word at a time.
+        word++;
+        for (int summary = word >>> 6; summary < occupiedWords.length; summary++) {
+            long words = occupiedWords[summary];
+            if (summary == word >>> 6) {
+                words &= -1L << word;
+            }
+            if (words != 0) {
+                int next = (summary << 6) + Long.numberOfTrailingZeros(words);
+                return (next << 6) + Long.numberOfTrailingZeros(occupied[next]);
+            }
+        }
+        return NO_BUCKET;
+    }
+}
@@ -1,35 +1,85 @@
 package main.java.com.project.heap;
 
 import com.project.bean.Building;
+import com.project.bean.BuildingStore;
+import com.project.metrics.Metrics;
+
+import java.util.Arrays;
 
 /**
- * Class which has the implementation of a min heap.
+ * Class which has the implementation of a min heap. The heap holds the slots of the buildings in the
+ * {@link BuildingStore}. It grows on demand, and next to every slot it stores a packed comparison key so that the heap
+ * can be adjusted by comparing primitives instead of looking up the buildings. The heap also remembers the position of
+ * every slot, which lets a building be updated or removed in place.
  */
-public class MinHeap {
+public class MinHeap implements SchedulerQueue {
     /**
-     * max size of the heap. As the problem statement says that there won't be more than 2000 buildings
+     * The initial capacity of the heap. The heap doubles its capacity whenever it is full.
      */
-    private static final int MAX_SIZE = 2002;
+    private static final int INITIAL_CAPACITY = 64;
     private static final int ROOT_INDEX = 1;
     /**
-     * used to store all the buildings
+     * Position of a slot which is not in the heap.
+     */
+    private static final int NOT_IN_HEAP = 0;
+    /**
+     * The store which holds the buildings whose slots are kept in the heap.
+     */
+    private final BuildingStore store;
+    /**
+     * used to store the slots of all the buildings
      */
-    private Building[] array;
+    private int[] array;
+    /**
+     * The packed (executedTime, buildingNumber) key of the building stored at the same index of {@code array}.
+     */
+    private long[] keys;
+    /**
+     * The index in {@code array} of every slot, or {@link #NOT_IN_HEAP} if the slot is not in the heap.
+     */
+    private int[] positions;
     /**
      * The current size of the heap.
      */
     private int size;
 
-    public MinHeap() {
-        array = new Building[MAX_SIZE];
+    public MinHeap(BuildingStore store) {
+        this(store, INITIAL_CAPACITY);
+    }
+
+    /**
+     * Initialises the heap so that it can hold {@code capacity} buildings before it needs to grow.
+     *
+     * @param store    the store which holds the buildings.
+     * @param capacity the number of buildings the heap can hold before growing.
+     */
+    public MinHeap(BuildingStore store, int capacity) {
+        this.store = store;
+        array = new int[Math.max(capacity, 1) + ROOT_INDEX];
+        keys = new long[array.length];
+        positions = new int[array.length];
         size = 0;
     }
 
+    /**
+     * Packs the execution time and the building number in a single long such that comparing the keys gives the same
+     * order as {@link Building#isExecutionTimeLessAsComparedTo(Building)}. The execution time takes the upper 32 bits
+     * and the building number, with its sign bit flipped so that it sorts as a signed number, the lower 32 bits.
+     *
+     * @param executedTime   the number of days spent on the building.
+     * @param buildingNumber the building number.
+     * @return the packed comparison key.
+     */
+    public static long packKey(int executedTime, int buildingNumber) {
+        return ((long) executedTime << 32) | ((buildingNumber ^ Integer.MIN_VALUE) & 0xFFFFFFFFL);
+    }
+
     /**
      * Returns true if the heap is empty.
      *
      * @return {@code true} if the heap is empty or else {@code false}.
      */
+    @Override
     public boolean isEmpty() {
         return size == 0;
     }
@@ -39,44 +89,136 @@ public class MinHeap {
      *
      * @return returns the current size of the heap.
      */
+    @Override
     public int getSize() {
         return size;
     }
 
+    /**
+     * Returns true if the building is in the heap.
+     *
+     * @param slot the slot of the building.
+     * @return {@code true} if the building is in the heap or else {@code false}.
+     */
+    @Override
+    public boolean contains(int slot) {
+        return slot < positions.length && positions[slot] != NOT_IN_HEAP;
+    }
+
     /**
      * Adds a building in the min heap. In case, wherein, the execution time is equal to the other building then
      * the building with smaller building number will come to the top of the heap.
      *
-     * @param building the building to be added to the min heap.
+     * @param slot the slot of the building to be added to the min heap.
      */
-    public void addBuilding(Building building) {
+    @Override
+    public void addBuilding(int slot) {
+        if (size + 1 == array.length) {
+            grow();
+        }
+        if (slot >= positions.length) {
+            positions = Arrays.copyOf(positions, Math.max(positions.length << 1, slot + 1));
+        }
         size = size + 1;
-        array[size] = building;
-        int currentIndex = size;
-        while (currentIndex > 1) {
-            int parentIndex = getParentIndex(currentIndex);
-            if (array[parentIndex].isExecutionTimeLessAsComparedTo(array[currentIndex])) {
-                //in case the the execution time of parent node is less than the current node then there is not need to further adjust the heap.
-                break;
+        moveUp(size, slot, packKey(store.getExecutedTime(slot), store.getBuildingNumber(slot)));
+    }
+
+    /**
+     * Adds a batch of buildings in the min heap. The batch is appended as it is and then only the ancestors of the new
+     * buildings are moved down, a level at a time from the bottom, since the other sub trees are heaps already. Every
+     * level holds about half the ancestors of the level below, so this takes time linear in the batch instead of moving
+     * every building up, also when a large heap grows by one batch after the other. A batch which is at least as large
+     * as the heap rebuilds the whole heap bottom up.
+     *
+     * @param slots the slots of the buildings to be added to the min heap.
+     * @param count the number of slots in the batch.
+     */
+    @Override
+    public void addBuildings(int[] slots, int count) {
+        if (count < 32 - Integer.numberOfLeadingZeros(size)) {
+            //a batch smaller than the height of the heap is cheaper to move up one building at a time.
+            for (int i = 0; i < count; i++) {
+                addBuilding(slots[i]);
             }
-            swapNodes(currentIndex, parentIndex);
-            currentIndex = parentIndex;
+            return;
+        }
+        int first = size + 1;
+        while (size + count >= array.length) {
+            grow();
+        }
+        for (int i = 0; i < count; i++) {
+            int slot = slots[i];
+            if (slot >= positions.length) {
+                positions = Arrays.copyOf(positions, Math.max(positions.length << 1, slot + 1));
+            }
+            size = size + 1;
+            array[size] = slot;
+            keys[size] = packKey(store.getExecutedTime(slot), store.getBuildingNumber(slot));
+            positions[slot] = size;
+        }
+        //the leaves are heaps already, so sift down the parents of the new buildings starting from the last one.
+        int low = count < first ? Math.max(getParentIndex(first), ROOT_INDEX) : ROOT_INDEX;
+        int high = getParentIndex(size);
+        while (true) {
+            for (int index = high; index >= low; index--) {
+                adjustHeap(index);
+            }
+            if (low == ROOT_INDEX) {
+                return;
+            }
+            low = Math.max(getParentIndex(low), ROOT_INDEX);
+            high = getParentIndex(high);
         }
     }
 
     /**
-     * Returns the building whose executed time is minimum and removes it from the min heap.
+     * Returns the slot of the building whose executed time is minimum without removing it from the min heap.
      *
-     * @return the building whose executed time is minimum.
+     * @return the slot of the building whose executed time is minimum.
      */
-    public Building getMin() {
-        Building min = array[ROOT_INDEX];
-        swapNodes(ROOT_INDEX, size);
-        size = size - 1;
-        adjustHeap(ROOT_INDEX);
+    @Override
+    public int peekMin() {
+        return array[ROOT_INDEX];
+    }
+
+    /**
+     * Returns the slot of the building whose executed time is minimum and removes it from the min heap.
+     *
+     * @return the slot of the building whose executed time is minimum.
+     */
+    @Override
+    public int getMin() {
+        int min = array[ROOT_INDEX];
+        removeAt(ROOT_INDEX);
         return min;
     }
 
+    /**
+     * Moves the building to its new place in the heap after its execution time was changed in the store.
+     *
+     * @param slot the slot of the building which was updated.
+     */
+    @Override
+    public void updateBuilding(int slot) {
+        int index = positions[slot];
+        long key = packKey(store.getExecutedTime(slot), store.getBuildingNumber(slot));
+        if (key < keys[index]) {
+            moveUp(index, slot, key);
+        } else {
+            keys[index] = key;
+            adjustHeap(index);
+        }
+    }
+
+    /**
+     * Removes the building from the heap.
+     *
+     * @param slot the slot of the building to be removed.
+     */
+    @Override
+    public void removeBuilding(int slot) {
+        removeAt(positions[slot]);
+    }
 
     /**
      * Return the index of the parent node.
@@ -88,26 +230,93 @@ public class MinHeap {
         return currentIndex / 2;
     }
 
+    /**
+     * Removes the building at the index by moving the last building of the heap in its place.
+     *
+     * @param index the index of the building to be removed.
+     */
+    private void removeAt(int index) {
+        positions[array[index]] = NOT_IN_HEAP;
+        int last = array[size];
+        long lastKey = keys[size];
+        size = size - 1;
+        if (index > size) {
+            //the last building was removed, nothing needs to be adjusted.
+            return;
+        }
+        if (lastKey < keys[index]) {
+            moveUp(index, last, lastKey);
+        } else {
+            array[index] = last;
+            keys[index] = lastKey;
+            positions[last] = index;
+            adjustHeap(index);
+        }
+    }
+
+    /**
+     * Places the building at the index and moves it up until its parent is smaller than it.
+     *
+     * @param currentIndex the index where the building is to be placed.
+     * @param slot         the slot of the building.
+     * @param key          the packed key of the building.
+     */
+    private void moveUp(int currentIndex, int slot, long key) {
+        int startIndex = currentIndex;
+        while (currentIndex > ROOT_INDEX) {
+            int parentIndex = getParentIndex(currentIndex);
+            if (keys[parentIndex] < key) {
+                //in case the the execution time of parent node is less than the current node then there is not need to further adjust the heap.
+                break;
+            }
+            //move the parent down into the hole instead of swapping, the slot is written once at the end.
+            array[currentIndex] = array[parentIndex];
+            keys[currentIndex] = keys[parentIndex];
+            positions[array[currentIndex]] = currentIndex;
+            currentIndex = parentIndex;
+        }
+        array[currentIndex] = slot;
+        keys[currentIndex] = key;
+        positions[slot] = currentIndex;
+        if (Metrics.ENABLED) {
+            //the number of levels moved, from the depths of the two indexes.
+            Metrics.HEAP_SIFT_UP.record(Integer.numberOfLeadingZeros(currentIndex)
+                    - Integer.numberOfLeadingZeros(startIndex));
+        }
+    }
+
     /**
      * Adjust the heap nodes so that the min heap properties are maintained.
      *
      * @param parentIndex the index of the node on which the adjustment is being done.
      */
     private void adjustHeap(int parentIndex) {
+        int startIndex = parentIndex;
+        int slot = array[parentIndex];
+        long key = keys[parentIndex];
         while (getLeftChildIndex(parentIndex) <= size) {
             int leftChildIndex = getLeftChildIndex(parentIndex);
             int rightChildIndex = getRightChildIndex(leftChildIndex);
-            if (leftChildIndex < size
-                    && !array[leftChildIndex].isExecutionTimeLessAsComparedTo(array[rightChildIndex])) {
+            if (leftChildIndex < size && keys[rightChildIndex] < keys[leftChildIndex]) {
                 leftChildIndex++;
             }
-            if (array[parentIndex].isExecutionTimeLessAsComparedTo(array[leftChildIndex])) {
+            if (key < keys[leftChildIndex]) {
                 //in case the execution time of the parent is less than that of the child then there is no need to adjust the heap.
                 break;
             }
-            swapNodes(parentIndex, leftChildIndex);
+            //move the child up into the hole, the slot is written once at the end.
+            array[parentIndex] = array[leftChildIndex];
+            keys[parentIndex] = keys[leftChildIndex];
+            positions[array[parentIndex]] = parentIndex;
             parentIndex = leftChildIndex;
         }
+        array[parentIndex] = slot;
+        keys[parentIndex] = key;
+        positions[slot] = parentIndex;
+        if (Metrics.ENABLED) {
+            Metrics.HEAP_SIFT_DOWN.record(Integer.numberOfLeadingZeros(startIndex)
+                    - Integer.numberOfLeadingZeros(parentIndex));
+        }
     }
 
     /**
@@ -131,14 +340,15 @@ public class MinHeap {
     }
 
     /**
-     * Swaps the nodes at i and j index of the heap.
-     *
-     * @param i the index of the ith node.
-     * @param j the index of the jth node.
+     * Doubles the capacity of the heap.
      */
-    private void swapNodes(int i, int j) {
-        Building swap = array[i];
-        array[i] = array[j];
-        array[j] = swap;
+    private void grow() {
+        int newCapacity = array.length << 1;
+        if (newCapacity < 0) {
+            //the capacity overflowed, so go on with the largest array the jvm can allocate.
+            newCapacity = Integer.MAX_VALUE - 8;
+        }
+        array = Arrays.copyOf(array, newCapacity);
+        keys = Arrays.copyOf(keys, newCapacity);
     }
 }
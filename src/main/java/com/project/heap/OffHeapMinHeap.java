@@ -0,0 +1,233 @@
+package main.java.com.project.heap;
+
+import com.project.bean.BuildingStore;
+import com.project.metrics.Metrics;
+import com.project.offheap.OffHeapInts;
+import com.project.offheap.OffHeapLongs;
+
+import java.io.Closeable;
+
+/**
+ * The binary heap of {@link MinHeap} with its slots, packed keys and positions kept outside of the java heap, in
+ * {@link OffHeapInts} and {@link OffHeapLongs}. The order is the one of {@link MinHeap}: the smallest executed time,
+ * then the smallest building number.
+ */
+public class OffHeapMinHeap implements SchedulerQueue, Closeable {
+    private static final int ROOT_INDEX = 1;
+    /**
+     * Position of a slot which is not in the heap, which is also the value of a position which was never written.
+     */
+    private static final int NOT_IN_HEAP = 0;
+    private final BuildingStore store;
+    /**
+     * The slots of the buildings, from {@link #ROOT_INDEX} on.
+     */
+    private final OffHeapInts array = new OffHeapInts();
+    /**
+     * The packed key of the building stored at the same index of {@code array}, see {@link MinHeap#packKey(int, int)}.
+     */
+    private final OffHeapLongs keys = new OffHeapLongs();
+    /**
+     * The index in {@code array} of every slot, or {@link #NOT_IN_HEAP} if the slot is not in the heap.
+     */
+    private final OffHeapInts positions = new OffHeapInts();
+    private int size;
+
+    public OffHeapMinHeap(BuildingStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    public boolean contains(int slot) {
+        return slot < positions.capacity() && positions.get(slot) != NOT_IN_HEAP;
+    }
+
+    @Override
+    public void addBuilding(int slot) {
+        size++;
+        array.ensureCapacity(size + 1);
+        keys.ensureCapacity(size + 1);
+        positions.ensureCapacity(slot + 1L);
+        moveUp(size, slot, MinHeap.packKey(store.getExecutedTime(slot), store.getBuildingNumber(slot)));
+    }
+
+    /**
+     * {@inheritDoc} The batch is appended as it is and only the ancestors of the new buildings are then moved down, in
+     * time linear in the batch, see {@link MinHeap#addBuildings(int[], int)}.
+     */
+    @Override
+    public void addBuildings(int[] slots, int count) {
+        if (count < 32 - Integer.numberOfLeadingZeros(size)) {
+            //a batch smaller than the height of the heap is cheaper to move up one building at a time.
+            for (int i = 0; i < count; i++) {
+                addBuilding(slots[i]);
+            }
+            return;
+        }
+        int first = size + 1;
+        array.ensureCapacity(size + count + 1L);
+        keys.ensureCapacity(size + count + 1L);
+        for (int i = 0; i < count; i++) {
+            int slot = slots[i];
+            positions.ensureCapacity(slot + 1L);
+            size++;
+            array.set(size, slot);
+            keys.set(size, MinHeap.packKey(store.getExecutedTime(slot), store.getBuildingNumber(slot)));
+            positions.set(slot, size);
+        }
+        //the leaves are heaps already, so sift down the parents of the new buildings starting from the last one.
+        int low = count < first ? Math.max(first >>> 1, ROOT_INDEX) : ROOT_INDEX;
+        int high = size >>> 1;
+        while (true) {
+            for (int index = high; index >= low; index--) {
+                moveDown(index);
+            }
+            if (low == ROOT_INDEX) {
+                return;
+            }
+            low = Math.max(low >>> 1, ROOT_INDEX);
+            high >>>= 1;
+        }
+    }
+
+    @Override
+    public int peekMin() {
+        return array.get(ROOT_INDEX);
+    }
+
+    @Override
+    public int getMin() {
+        int min = array.get(ROOT_INDEX);
+        removeAt(ROOT_INDEX);
+        return min;
+    }
+
+    @Override
+    public void updateBuilding(int slot) {
+        int index = positions.get(slot);
+        long key = MinHeap.packKey(store.getExecutedTime(slot), store.getBuildingNumber(slot));
+        if (key < keys.get(index)) {
+            moveUp(index, slot, key);
+        } else {
+            keys.set(index, key);
+            moveDown(index);
+        }
+    }
+
+    @Override
+    public void removeBuilding(int slot) {
+        removeAt(positions.get(slot));
+    }
+
+    /**
+     * Frees the arrays of the heap, the heap is empty afterwards.
+     */
+    @Override
+    public void close() {
+        array.close();
+        keys.close();
+        positions.close();
+        size = 0;
+    }
+
+    /**
+     * Removes the building at the index by moving the last building of the heap in its place.
+     *
+     * @param index the index of the building to be removed.
+     */
+    private void removeAt(int index) {
+        positions.set(array.get(index), NOT_IN_HEAP);
+        int last = array.get(size);
+        long lastKey = keys.get(size);
+        size--;
+        if (index > size) {
+            //the last building was removed, nothing needs to be adjusted.
+            return;
+        }
+        if (lastKey < keys.get(index)) {
+            moveUp(index, last, lastKey);
+        } else {
+            array.set(index, last);
+            keys.set(index, lastKey);
+            positions.set(last, index);
+            moveDown(index);
+        }
+    }
+
+    /**
+     * Places the building at the index and moves it up until its parent is smaller than it.
+     *
+     * @param index the index where the building is to be placed.
+     * @param slot  the slot of the building.
+     * @param key   the packed key of the building.
+     */
+    private void moveUp(int index, int slot, long key) {
+        int startIndex = index;
+        while (index > ROOT_INDEX) {
+            int parent = index >>> 1;
+            long parentKey = keys.get(parent);
+            if (parentKey < key) {
+                break;
+            }
+            int parentSlot = array.get(parent);
+            array.set(index, parentSlot);
+            keys.set(index, parentKey);
+            positions.set(parentSlot, index);
+            index = parent;
+        }
+        array.set(index, slot);
+        keys.set(index, key);
+        positions.set(slot, index);
+        if (Metrics.ENABLED) {
+            Metrics.HEAP_SIFT_UP.record(Integer.numberOfLeadingZeros(index)
+                    - Integer.numberOfLeadingZeros(startIndex));
+        }
+    }
+
+    /**
+     * Moves the building at the index down until its children are larger than it.
+     *
+     * @param index the index of the building.
+     */
+    private void moveDown(int index) {
+        int startIndex = index;
+        int slot = array.get(index);
+        long key = keys.get(index);
+        int child;
+        while ((child = index << 1) <= size) {
+            long childKey = keys.get(child);
+            if (child < size) {
+                long rightKey = keys.get(child + 1);
+                if (rightKey < childKey) {
+                    child++;
+                    childKey = rightKey;
+                }
+            }
+            if (key < childKey) {
+                break;
+            }
+            int childSlot = array.get(child);
+            array.set(index, childSlot);
+            keys.set(index, childKey);
+            positions.set(childSlot, index);
+            index = child;
+        }
+        array.set(index, slot);
+        keys.set(index, key);
+        positions.set(slot, index);
+        if (Metrics.ENABLED) {
+            Metrics.HEAP_SIFT_DOWN.record(Integer.numberOfLeadingZeros(startIndex)
+                    - Integer.numberOfLeadingZeros(index));
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package main.java.com.project.heap;
+
+/**
+ * Priority queue of the buildings which wait for work, ordered on the executed time and then on the building number.
+ * The queue holds the slots of the buildings in the {@link com.project.bean.BuildingStore}, the executed times and the
+ * building numbers are read from the store when a building is added or updated.
+ */
+public interface SchedulerQueue {
+
+    /**
+     * Returns true if the queue is empty.
+     *
+     * @return {@code true} if the queue is empty or else {@code false}.
+     */
+    boolean isEmpty();
+
+    /**
+     * Returns the number of buildings in the queue.
+     *
+     * @return the number of buildings in the queue.
+     */
+    int getSize();
+
+    /**
+     * Returns true if the building is in the queue.
+     *
+     * @param slot the slot of the building.
+     * @return {@code true} if the building is in the queue or else {@code false}.
+     */
+    boolean contains(int slot);
+
+    /**
+     * Adds the building to the queue.
+     *
+     * @param slot the slot of the building which is to be added.
+     */
+    void addBuilding(int slot);
+
+    /**
+     * Adds a batch of buildings to the queue.
+     *
+     * @param slots the slots of the buildings which are to be added.
+     * @param count the number of slots in the batch.
+     */
+    void addBuildings(int[] slots, int count);
+
+    /**
+     * Returns the slot of the building which comes first without removing it from the queue. The queue must not be
+     * empty.
+     *
+     * @return the slot of the building with the smallest executed time, the smallest building number among equals.
+     */
+    int peekMin();
+
+    /**
+     * Returns the slot of the building which comes first and removes it from the queue. The queue must not be empty.
+     *
+     * @return the slot of the building with the smallest executed time, the smallest building number among equals.
+     */
+    int getMin();
+
+    /**
+     * Moves the building to its new place in the queue after its executed time was changed in the store.
+     *
+     * @param slot the slot of the building which was updated.
+     */
+    void updateBuilding(int slot);
+
+    /**
+     * Removes the building from the queue.
+     *
+     * @param slot the slot of the building which is to be removed.
+     */
+    void removeBuilding(int slot);
+}
@@ -0,0 +1,42 @@
+package main.java.com.project.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The construction of a building is finished and the building leaves the city.
+ */
+@Name("com.project.BuildingCompleted")
+@Label("Building Completed")
+@Category("Rising City")
+@Description("The construction of a building is finished")
+@StackTrace(false)
+public final class BuildingCompletedEvent extends Event {
+    @Label("Building")
+    public int building;
+    @Label("Total Time")
+    public int totalTime;
+    @Label("Day")
+    public int day;
+
+    /**
+     * Commits the event if it is recorded.
+     *
+     * @param building  the building number.
+     * @param totalTime the total time of the building.
+     * @param day       the day on which the building is finished.
+     */
+    public static void emit(int building, int totalTime, int day) {
+        BuildingCompletedEvent event = new BuildingCompletedEvent();
+        if (event.shouldCommit()) {
+            event.building = building;
+            event.totalTime = totalTime;
+            event.day = day;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package main.java.com.project.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.SettingDefinition;
+import jdk.jfr.StackTrace;
+
+/**
+ * The execution of one Insert or PrintBuilding command, journaling included, or of one batch of the inserts published
+ * by other threads, whose command reads {@code day: InsertBatch(count)}.
+ */
+@Name("com.project.CommandExecute")
+@Label("Command Execute")
+@Category("Rising City")
+@Description("Executing one Insert or PrintBuilding command")
+@StackTrace(false)
+public final class CommandExecuteEvent extends Event {
+    @Label("Command")
+    public String command;
+
+    /**
+     * The answer of the sample setting, 1 to commit and -1 not to, asked once although both {@link #shouldCommit()}
+     * and {@link #commit()} check the settings.
+     */
+    private transient int sampled;
+
+    @Name("sampleEvery")
+    @Label("Sample Every")
+    @SettingDefinition
+    protected boolean sampleEvery(SampleSetting setting) {
+        if (sampled == 0) {
+            sampled = setting.sample() ? 1 : -1;
+        }
+        return sampled > 0;
+    }
+}
@@ -0,0 +1,41 @@
+package main.java.com.project.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.SettingDefinition;
+import jdk.jfr.StackTrace;
+
+/**
+ * The reading and parsing of one command of the input. When the input is a stream this includes the wait for the
+ * command to arrive.
+ */
+@Name("com.project.CommandParse")
+@Label("Command Parse")
+@Category("Rising City")
+@Description("Reading and parsing one command of the input")
+@StackTrace(false)
+public final class CommandParseEvent extends Event {
+    @Label("Line")
+    public long line;
+    @Label("Command")
+    public String command;
+
+    /**
+     * The answer of the sample setting, 1 to commit and -1 not to, asked once although both {@link #shouldCommit()}
+     * and {@link #commit()} check the settings.
+     */
+    private transient int sampled;
+
+    @Name("sampleEvery")
+    @Label("Sample Every")
+    @SettingDefinition
+    protected boolean sampleEvery(SampleSetting setting) {
+        if (sampled == 0) {
+            sampled = setting.sample() ? 1 : -1;
+        }
+        return sampled > 0;
+    }
+}
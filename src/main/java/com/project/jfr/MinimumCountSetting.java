@@ -0,0 +1,57 @@
+package main.java.com.project.jfr;
+
+import jdk.jfr.SettingControl;
+
+import java.util.Set;
+
+/**
+ * The {@code minimumCount} setting of {@link RangeQueryEvent}: only the ranges with at least so many buildings are
+ * committed, 1000 unless a recording asks otherwise. When several recordings ask for different minimums the smallest
+ * one wins.
+ */
+public final class MinimumCountSetting extends SettingControl {
+    private static final String DEFAULT = "1000";
+    private volatile long minimum = Long.parseLong(DEFAULT);
+    private String value = DEFAULT;
+
+    @Override
+    public String combine(Set<String> values) {
+        long combined = Long.MAX_VALUE;
+        for (String candidate : values) {
+            combined = Math.min(combined, parse(candidate));
+        }
+        return combined == Long.MAX_VALUE ? DEFAULT : Long.toString(combined);
+    }
+
+    @Override
+    public void setValue(String value) {
+        this.value = value;
+        minimum = parse(value);
+    }
+
+    @Override
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * @return Returns the smallest number of buildings of a range which is committed.
+     */
+    long getMinimum() {
+        return minimum;
+    }
+
+    /**
+     * Reads a minimum, anything which is not a number meaning the default.
+     *
+     * @param value the value of the setting.
+     * @return the minimum.
+     */
+    private static long parse(String value) {
+        try {
+            return Math.max(Long.parseLong(value.trim()), 0);
+        } catch (NumberFormatException e) {
+            return Long.parseLong(DEFAULT);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package main.java.com.project.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.SettingDefinition;
+import jdk.jfr.StackTrace;
+
+/**
+ * A PrintBuilding command over a range which printed many buildings, see {@link MinimumCountSetting}.
+ */
+@Name("com.project.RangeQuery")
+@Label("Range Query")
+@Category("Rising City")
+@Description("A range print of many buildings")
+@StackTrace(false)
+public final class RangeQueryEvent extends Event {
+    @Label("Start")
+    public int start;
+    @Label("End")
+    public int end;
+    @Label("Count")
+    @Description("The number of buildings printed")
+    public int count;
+
+    @Name("minimumCount")
+    @Label("Minimum Count")
+    @SettingDefinition
+    protected boolean minimumCount(MinimumCountSetting setting) {
+        return count >= setting.getMinimum();
+    }
+}
@@ -0,0 +1,64 @@
+package main.java.com.project.jfr;
+
+import jdk.jfr.SettingControl;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The {@code sampleEvery} setting of the high volume events: only one in every {@code n} events is committed. When
+ * several recordings ask for different rates the most frequent one wins.
+ * <p>
+ * Set it in a {@code .jfc} file, {@code <setting name="sampleEvery">100</setting>}, or on the command line with
+ * {@code -XX:StartFlightRecording:com.project.SliceEnd#sampleEvery=100}.
+ */
+public final class SampleSetting extends SettingControl {
+    private static final String DEFAULT = "1";
+    private final AtomicLong seen = new AtomicLong();
+    private volatile long every = 1;
+    private String value = DEFAULT;
+
+    @Override
+    public String combine(Set<String> values) {
+        long combined = Long.MAX_VALUE;
+        for (String candidate : values) {
+            combined = Math.min(combined, parse(candidate));
+        }
+        return combined == Long.MAX_VALUE ? DEFAULT : Long.toString(combined);
+    }
+
+    @Override
+    public void setValue(String value) {
+        this.value = value;
+        every = parse(value);
+    }
+
+    @Override
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * Counts an event and tells whether it is the one of its group which is committed.
+     *
+     * @return {@code true} if the event is to be committed.
+     */
+    boolean sample() {
+        long rate = every;
+        return rate <= 1 || seen.getAndIncrement() % rate == 0;
+    }
+
+    /**
+     * Reads a rate, anything which is not a positive number meaning every event.
+     *
+     * @param value the value of the setting.
+     * @return the rate.
+     */
+    private static long parse(String value) {
+        try {
+            return Math.max(Long.parseLong(value.trim()), 1);
+        } catch (NumberFormatException e) {
+            return 1;
+        }
+    }
+}
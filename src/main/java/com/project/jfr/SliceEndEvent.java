@@ -0,0 +1,59 @@
+package main.java.com.project.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.SettingDefinition;
+import jdk.jfr.StackTrace;
+
+/**
+ * A slice of work on a building ends, either because the building is finished or because it goes back to the heap.
+ */
+@Name("com.project.SliceEnd")
+@Label("Slice End")
+@Category("Rising City")
+@Description("A slice of work on a building ends")
+@StackTrace(false)
+public final class SliceEndEvent extends Event {
+    @Label("Building")
+    public int building;
+    @Label("Executed Time")
+    public int executedTime;
+    @Label("Day")
+    public int day;
+
+    /**
+     * The answer of the sample setting, 1 to commit and -1 not to, asked once although both {@link #shouldCommit()}
+     * and {@link #commit()} check the settings.
+     */
+    private transient int sampled;
+
+    @Name("sampleEvery")
+    @Label("Sample Every")
+    @SettingDefinition
+    protected boolean sampleEvery(SampleSetting setting) {
+        if (sampled == 0) {
+            sampled = setting.sample() ? 1 : -1;
+        }
+        return sampled > 0;
+    }
+
+    /**
+     * Commits the event if it is recorded.
+     *
+     * @param building     the building number.
+     * @param executedTime the executed time of the building at the end of the slice.
+     * @param day          the last day of the slice.
+     */
+    public static void emit(int building, int executedTime, int day) {
+        SliceEndEvent event = new SliceEndEvent();
+        if (event.shouldCommit()) {
+            event.building = building;
+            event.executedTime = executedTime;
+            event.day = day;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package main.java.com.project.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.SettingDefinition;
+import jdk.jfr.StackTrace;
+
+/**
+ * The scheduler picked the building with the smallest executed time and starts a slice of work on it.
+ */
+@Name("com.project.SliceStart")
+@Label("Slice Start")
+@Category("Rising City")
+@Description("A slice of work starts on the building with the smallest executed time")
+@StackTrace(false)
+public final class SliceStartEvent extends Event {
+    @Label("Building")
+    public int building;
+    @Label("Executed Time")
+    public int executedTime;
+    @Label("Slice End")
+    @Description("The executed time at which the slice ends")
+    public int sliceEnd;
+    @Label("Day")
+    public int day;
+
+    /**
+     * The answer of the sample setting, 1 to commit and -1 not to, asked once although both {@link #shouldCommit()}
+     * and {@link #commit()} check the settings.
+     */
+    private transient int sampled;
+
+    @Name("sampleEvery")
+    @Label("Sample Every")
+    @SettingDefinition
+    protected boolean sampleEvery(SampleSetting setting) {
+        if (sampled == 0) {
+            sampled = setting.sample() ? 1 : -1;
+        }
+        return sampled > 0;
+    }
+
+    /**
+     * Commits the event if it is recorded.
+     *
+     * @param building     the building number.
+     * @param executedTime the executed time of the building.
+     * @param sliceEnd     the executed time at which the slice ends.
+     * @param day          the day on which the slice starts.
+     */
+    public static void emit(int building, int executedTime, int sliceEnd, int day) {
+        SliceStartEvent event = new SliceStartEvent();
+        if (event.shouldCommit()) {
+            event.building = building;
+            event.executedTime = executedTime;
+            event.sliceEnd = sliceEnd;
+            event.day = day;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package main.java.com.project.journal;
+
+import com.project.command.Command;
+import com.project.metrics.Metrics;
+import com.project.output.OutputSink;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Append-only journal of the commands which the simulation executes, so that the commands which came from a stream can
+ * be replayed after a crash. The commands are written in the format of the input, one per line, so the journal is
+ * itself a valid input file.
+ * <p>
+ * Forcing the file to the disk after every command would cost a disk flush per command, so the journal commits in
+ * groups: the file is forced once {@code syncEvery} commands are waiting, and a background thread forces it every
+ * {@code syncMillis} milliseconds while any command is waiting. A crash loses at most the commands of the last group,
+ * which the producer of the stream must send again.
+ */
+public class CommandJournal implements Closeable {
+    private final FileChannel channel;
+    /**
+     * Formats the commands into a buffer which is written to the channel when it is full or when the journal commits.
+     */
+    private final OutputSink sink;
+    /**
+     * The position in the file of the first command written by this journal.
+     */
+    private final long startPosition;
+    private final int syncEvery;
+    /**
+     * The thread which commits the waiting commands every {@code syncMillis}, or {@code null}.
+     */
+    private final Thread committer;
+    /**
+     * The number of commands which are not forced to the disk yet.
+     */
+    private int pending;
+    private long commandCount;
+    private long syncCount;
+    private long syncNanos;
+    /**
+     * The failure of the background commit, reported by the next call of the simulation.
+     */
+    private IOException failure;
+    private volatile boolean closed;
+
+    /**
+     * Opens the journal so that the next command is written at the position. The commands after the position are
+     * overwritten as the simulation executes them again, which writes the same bytes as long as the commands are
+     * replayed from {@link #replay(Path, long)}.
+     *
+     * @param file       the journal file, created if it does not exist.
+     * @param position   the position at which the next command is written.
+     * @param syncEvery  the number of commands after which the journal commits.
+     * @param syncMillis the most milliseconds a command waits for the commit, or 0 to commit on the count only.
+     * @throws IOException if the file cannot be opened.
+     */
+    public CommandJournal(Path file, long position, int syncEvery, long syncMillis) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        channel.position(position);
+        startPosition = position;
+        sink = new OutputSink(channel);
+        this.syncEvery = Math.max(syncEvery, 1);
+        if (syncMillis > 0) {
+            committer = new Thread(() -> commitPeriodically(syncMillis), "journal-committer");
+            committer.setDaemon(true);
+            committer.start();
+        } else {
+            committer = null;
+        }
+    }
+
+    /**
+     * Returns the commands of the journal from the position on, up to the last complete command. A command which was
+     * only partly written when the program crashed is cut off the file.
+     *
+     * @param file     the journal file.
+     * @param position the position of the first command to replay, as recorded by a checkpoint.
+     * @return the stream of the commands to replay.
+     * @throws IOException if the journal cannot be read or is shorter than the position.
+     */
+    public static InputStream replay(Path file, long position) throws IOException {
+        try (FileChannel journal = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            long end = journal.size();
+            if (end < position) {
+                throw new IOException("The journal " + file + " ends before position " + position);
+            }
+            //a complete command ends with a new line, so look for the last one from the end of the file.
+            ByteBuffer chunk = ByteBuffer.allocate(4096);
+            boolean found = false;
+            while (end > position && !found) {
+                int size = (int) Math.min(chunk.capacity(), end - position);
+                chunk.clear().limit(size);
+                while (chunk.hasRemaining()) {
+                    journal.read(chunk, end - size + chunk.position());
+                }
+                int i = size;
+                while (i > 0 && chunk.get(i - 1) != '\n') {
+                    i--;
+                }
+                found = i > 0;
+                end -= size - i;
+            }
+            journal.truncate(end);
+            MappedByteBuffer commands = journal.map(FileChannel.MapMode.READ_ONLY, position, end - position);
+            return new InputStream() {
+                @Override
+                public int read() {
+                    return commands.hasRemaining() ? commands.get() & 0xFF : -1;
+                }
+
+                @Override
+                public int read(byte[] bytes, int offset, int count) {
+                    if (!commands.hasRemaining()) {
+                        return -1;
+                    }
+                    count = Math.min(count, commands.remaining());
+                    commands.get(bytes, offset, count);
+                    return count;
+                }
+            };
+        }
+    }
+
+    /**
+     * Writes the command to the journal, and commits if enough commands are waiting.
+     *
+     * @param command the command which is about to be executed.
+     * @throws IOException if the journal cannot be written.
+     */
+    public synchronized void append(Command command) throws IOException {
+        if (failure != null) {
+            throw failure;
+        }
+        sink.print(command.getTime());
+        sink.print(": ");
+        if (command.getOpcode() == Command.INSERT) {
+            sink.print("Insert(");
+        } else {
+            sink.print("PrintBuilding(");
+        }
+        sink.print(command.getArgument1());
+        if (command.getOpcode() != Command.PRINT) {
+            sink.print(',');
+            sink.print(command.getArgument2());
+        }
+        sink.print(')');
+        sink.print('\n');
+        commandCount++;
+        if (++pending >= syncEvery) {
+            commit();
+        }
+    }
+
+    /**
+     * Forces all the commands written so far to the disk.
+     *
+     * @throws IOException if the journal cannot be written.
+     */
+    public synchronized void sync() throws IOException {
+        if (failure != null) {
+            throw failure;
+        }
+        commit();
+    }
+
+    /**
+     * @return Returns the position in the journal after the last command written.
+     */
+    public synchronized long getPosition() {
+        return startPosition + sink.getBytesWritten();
+    }
+
+    /**
+     * @return Returns the number of commands written to the journal.
+     */
+    public synchronized long getCommandCount() {
+        return commandCount;
+    }
+
+    /**
+     * @return Returns the number of times the journal was forced to the disk.
+     */
+    public synchronized long getSyncCount() {
+        return syncCount;
+    }
+
+    /**
+     * @return Returns the time spent forcing the journal to the disk, in nanoseconds.
+     */
+    public synchronized long getSyncNanos() {
+        return syncNanos;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        if (committer != null) {
+            committer.interrupt();
+        }
+        synchronized (this) {
+            commit();
+            channel.close();
+        }
+    }
+
+    /**
+     * Writes the buffered commands and forces them to the disk. The caller holds the lock of the journal.
+     *
+     * @throws IOException if the journal cannot be written.
+     */
+    private void commit() throws IOException {
+        if (pending == 0) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            sink.flush();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        //the content is enough, the metadata of the file is rebuilt from it after a crash.
+        channel.force(false);
+        long nanos = System.nanoTime() - start;
+        syncNanos += nanos;
+        if (Metrics.ENABLED) {
+            Metrics.JOURNAL_SYNC.record(nanos);
+        }
+        syncCount++;
+        pending = 0;
+    }
+
+    /**
+     * Commits the waiting commands every {@code syncMillis} until the journal is closed.
+     *
+     * @param syncMillis the time between two commits.
+     */
+    private void commitPeriodically(long syncMillis) {
+        while (!closed) {
+            try {
+                Thread.sleep(syncMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+            synchronized (this) {
+                if (closed || failure != null) {
+                    return;
+                }
+                try {
+                    commit();
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package main.java.com.project.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A count of events, which many threads can increment at the same time without contending on one memory location.
+ */
+public final class Counter {
+    private final String name;
+    private final LongAdder count = new LongAdder();
+
+    Counter(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Counts one event.
+     */
+    public void increment() {
+        count.increment();
+    }
+
+    /**
+     * Counts the events.
+     *
+     * @param events the number of events.
+     */
+    public void add(long events) {
+        count.add(events);
+    }
+
+    /**
+     * @return Returns the name of the counter.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return Returns the number of events counted.
+     */
+    public long get() {
+        return count.sum();
+    }
+
+    /**
+     * Sets the count back to zero.
+     */
+    public void reset() {
+        count.reset();
+    }
+}
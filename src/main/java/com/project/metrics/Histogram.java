@@ -0,0 +1,95 @@
+package main.java.com.project.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The distribution of a non negative value, like a latency in nanoseconds or a number of steps. The values are counted
+ * in buckets of powers of two: bucket {@code i} holds the values of {@code [2^(i-1), 2^i)}, and bucket 0 the zeros. A
+ * value is recorded with a leading zero count and one increment, and the percentiles are known within a factor of two,
+ * which is enough to tell a step of one rotation from one of ten or a microsecond from a millisecond.
+ */
+public final class Histogram {
+    private static final int BUCKETS = 65;
+    private final String name;
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    Histogram(String name) {
+        this.name = name;
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records the value. Negative values are counted as zero.
+     *
+     * @param value the value.
+     */
+    public void record(long value) {
+        value = Math.max(value, 0);
+        buckets[64 - Long.numberOfLeadingZeros(value)].increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * @return Returns the name of the histogram.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Takes a snapshot of the distribution. The values which are recorded while the snapshot is taken may be counted
+     * in some of its figures only.
+     *
+     * @return the snapshot.
+     */
+    public HistogramSnapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets[i].sum();
+            count += counts[i];
+        }
+        long total = sum.sum();
+        long largest = max.get();
+        return new HistogramSnapshot(count, count == 0 ? 0 : (double) total / count,
+                Math.min(percentile(counts, count, 0.5), largest), Math.min(percentile(counts, count, 0.9), largest),
+                Math.min(percentile(counts, count, 0.99), largest), largest);
+    }
+
+    /**
+     * Sets the distribution back to empty.
+     */
+    public void reset() {
+        for (LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+        sum.reset();
+        max.reset();
+    }
+
+    /**
+     * Returns the upper bound of the bucket which holds the percentile. The caller caps it with the largest value.
+     *
+     * @param counts   the number of values of every bucket.
+     * @param count    the number of values.
+     * @param fraction the percentile, as a fraction of the values.
+     * @return the largest value of the bucket of the percentile.
+     */
+    private static long percentile(long[] counts, long count, double fraction) {
+        long rank = (long) Math.ceil(count * fraction);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank && seen > 0) {
+                return i == 0 ? 0 : i == 64 ? Long.MAX_VALUE : (1L << i) - 1;
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,158 @@
+package main.java.com.project.metrics;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The counters and histograms of the hot paths of the simulation: the steps of the heap, the rebalancing and the
+ * searches of the tree, the size of the ranges printed and the latency of every command.
+ * <p>
+ * The metrics are only recorded when the jvm is started with {@code -Drisingcity.metrics=true}. Every call site is
+ * guarded by {@link #ENABLED}, which is a constant once the class is initialized, so without the property the jit
+ * compiler drops the guarded code together with the locals which only feed it, and the hot paths cost what they did
+ * before. The values are kept in {@link java.util.concurrent.atomic.LongAdder}s, so the many cities of a
+ * {@link com.project.BatchRunner} record into the same metrics without contending.
+ */
+public final class Metrics {
+    /**
+     * Whether the metrics are recorded.
+     */
+    public static final boolean ENABLED = Boolean.getBoolean("risingcity.metrics");
+    /**
+     * The name under which the metrics are registered with JMX.
+     */
+    public static final String OBJECT_NAME = "com.project:type=Metrics";
+
+    /**
+     * The number of rotations of the tree, while rebalancing after an insert or a removal.
+     */
+    public static final Counter TREE_ROTATIONS = new Counter("tree.rotations");
+    /**
+     * The number of levels a building moves up the heap when it is inserted or its key gets smaller.
+     */
+    public static final Histogram HEAP_SIFT_UP = new Histogram("heap.siftUp");
+    /**
+     * The number of levels a building moves down the heap when its key gets larger or it fills the hole of a removal.
+     */
+    public static final Histogram HEAP_SIFT_DOWN = new Histogram("heap.siftDown");
+    /**
+     * The number of iterations of the loop which rebalances the tree after an insert.
+     */
+    public static final Histogram TREE_INSERT_FIXUPS = new Histogram("tree.insertFixups");
+    /**
+     * The number of iterations of the loop which rebalances the tree after a removal.
+     */
+    public static final Histogram TREE_DELETE_FIXUPS = new Histogram("tree.deleteFixups");
+    /**
+     * The number of nodes visited by a search of a building number.
+     */
+    public static final Histogram TREE_SEARCH_DEPTH = new Histogram("tree.searchDepth");
+    /**
+     * The number of buildings printed by a range print.
+     */
+    public static final Histogram RANGE_SIZE = new Histogram("range.size");
+    public static final Histogram INSERT_LATENCY = new Histogram("command.insertNanos");
+    public static final Histogram PRINT_LATENCY = new Histogram("command.printNanos");
+    /**
+     * The number of buildings of a batch of the inserts published by other threads, whose sum counts those inserts.
+     */
+    public static final Histogram INSERT_BATCH_SIZE = new Histogram("command.insertBatchSize");
+    /**
+     * The time of a batch of the inserts published by other threads.
+     */
+    public static final Histogram INSERT_BATCH_LATENCY = new Histogram("command.insertBatchNanos");
+    /**
+     * The time of a group commit of the command journal.
+     */
+    public static final Histogram JOURNAL_SYNC = new Histogram("journal.syncNanos");
+
+    private static final Counter[] COUNTERS = {TREE_ROTATIONS};
+    private static final Histogram[] HISTOGRAMS = {HEAP_SIFT_UP, HEAP_SIFT_DOWN, TREE_INSERT_FIXUPS,
+            TREE_DELETE_FIXUPS, TREE_SEARCH_DEPTH, RANGE_SIZE, INSERT_LATENCY, PRINT_LATENCY, INSERT_BATCH_SIZE, INSERT_BATCH_LATENCY,
+            JOURNAL_SYNC};
+
+    private Metrics() {
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server, unless they are registered already.
+     *
+     * @throws JMException if the metrics cannot be registered.
+     */
+    public static void register() throws JMException {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new MetricsView(), new ObjectName(OBJECT_NAME));
+        } catch (InstanceAlreadyExistsException e) {
+            //another simulation of the jvm registered them, and they are shared.
+        }
+    }
+
+    /**
+     * Prints the metrics every {@code periodMillis} milliseconds on a daemon thread.
+     *
+     * @param out          the stream to which the metrics are printed.
+     * @param periodMillis the time between two prints.
+     * @return the thread which prints the metrics, interrupt it to stop the prints.
+     */
+    public static Thread startDump(PrintStream out, long periodMillis) {
+        Thread dumper = new Thread(() -> {
+            while (true) {
+                try {
+                    Thread.sleep(periodMillis);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                dump(out);
+            }
+        }, "metrics-dump");
+        dumper.setDaemon(true);
+        dumper.start();
+        return dumper;
+    }
+
+    /**
+     * Prints the metrics, one per line.
+     *
+     * @param out the stream to which the metrics are printed.
+     */
+    public static void dump(PrintStream out) {
+        StringBuilder text = new StringBuilder();
+        for (Counter counter : COUNTERS) {
+            text.append(counter.getName()).append(' ').append(counter.get()).append('\n');
+        }
+        for (Histogram histogram : HISTOGRAMS) {
+            text.append(histogram.getName()).append(' ').append(histogram.snapshot()).append('\n');
+        }
+        //one write, so that the lines of a dump are not mixed with other output.
+        out.print(text);
+        out.flush();
+    }
+
+    /**
+     * @return Returns the counters by name.
+     */
+    static Map<String, Long> counters() {
+        Map<String, Long> counters = new LinkedHashMap<>();
+        for (Counter counter : COUNTERS) {
+            counters.put(counter.getName(), counter.get());
+        }
+        return counters;
+    }
+
+    /**
+     * Sets all the metrics back to zero.
+     */
+    public static void reset() {
+        for (Counter counter : COUNTERS) {
+            counter.reset();
+        }
+        for (Histogram histogram : HISTOGRAMS) {
+            histogram.reset();
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package main.java.com.project.metrics;
+
+import java.util.Map;
+
+/**
+ * The metrics of the simulations of the jvm, as seen through JMX under {@link Metrics#OBJECT_NAME}.
+ */
+public interface MetricsMXBean {
+    /**
+     * @return Returns whether the metrics are recorded, see {@link Metrics#ENABLED}.
+     */
+    boolean isEnabled();
+
+    /**
+     * @return Returns the counters by name.
+     */
+    Map<String, Long> getCounters();
+
+    HistogramSnapshot getHeapSiftUpSteps();
+
+    HistogramSnapshot getHeapSiftDownSteps();
+
+    HistogramSnapshot getTreeInsertFixups();
+
+    HistogramSnapshot getTreeDeleteFixups();
+
+    HistogramSnapshot getTreeSearchDepth();
+
+    HistogramSnapshot getRangeSize();
+
+    HistogramSnapshot getInsertLatencyNanos();
+
+    HistogramSnapshot getPrintLatencyNanos();
+
+    HistogramSnapshot getJournalSyncNanos();
+
+    /**
+     * Sets all the metrics back to zero.
+     */
+    void reset();
+}
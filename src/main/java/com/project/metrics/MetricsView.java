@@ -0,0 +1,68 @@
+package main.java.com.project.metrics;
+
+import java.util.Map;
+
+/**
+ * Shows the static {@link Metrics} through JMX.
+ */
+class MetricsView implements MetricsMXBean {
+    @Override
+    public boolean isEnabled() {
+        return Metrics.ENABLED;
+    }
+
+    @Override
+    public Map<String, Long> getCounters() {
+        return Metrics.counters();
+    }
+
+    @Override
+    public HistogramSnapshot getHeapSiftUpSteps() {
+        return Metrics.HEAP_SIFT_UP.snapshot();
+    }
+
+    @Override
+    public HistogramSnapshot getHeapSiftDownSteps() {
+        return Metrics.HEAP_SIFT_DOWN.snapshot();
+    }
+
+    @Override
+    public HistogramSnapshot getTreeInsertFixups() {
+        return Metrics.TREE_INSERT_FIXUPS.snapshot();
+    }
+
+    @Override
+    public HistogramSnapshot getTreeDeleteFixups() {
+        return Metrics.TREE_DELETE_FIXUPS.snapshot();
+    }
+
+    @Override
+    public HistogramSnapshot getTreeSearchDepth() {
+        return Metrics.TREE_SEARCH_DEPTH.snapshot();
+    }
+
+    @Override
+    public HistogramSnapshot getRangeSize() {
+        return Metrics.RANGE_SIZE.snapshot();
+    }
+
+    @Override
+    public HistogramSnapshot getInsertLatencyNanos() {
+        return Metrics.INSERT_LATENCY.snapshot();
+    }
+
+    @Override
+    public HistogramSnapshot getPrintLatencyNanos() {
+        return Metrics.PRINT_LATENCY.snapshot();
+    }
+
+    @Override
+    public HistogramSnapshot getJournalSyncNanos() {
+        return Metrics.JOURNAL_SYNC.snapshot();
+    }
+
+    @Override
+    public void reset() {
+        Metrics.reset();
+    }
+}
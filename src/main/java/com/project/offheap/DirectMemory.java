@@ -0,0 +1,59 @@
+package main.java.com.project.offheap;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+
+/**
+ * Allocates the direct buffers of the off-heap arrays and returns their memory as soon as the arrays are closed.
+ * <p>
+ * The memory of a direct buffer is otherwise returned only when the garbage collector finds the buffer unreachable,
+ * which may never happen while the java heap has room. The buffers are freed through
+ * {@code sun.misc.Unsafe.invokeCleaner} of the {@code jdk.unsupported} module, which runs the cleaner the collector
+ * would run. On a runtime without it the buffers are only dropped and their memory is returned by the collector.
+ */
+final class DirectMemory {
+    private static final MethodHandle INVOKE_CLEANER = findInvokeCleaner();
+
+    private DirectMemory() {
+    }
+
+    static ByteBuffer allocate(int bytes) {
+        return ByteBuffer.allocateDirect(bytes);
+    }
+
+    /**
+     * Returns the memory of a buffer. The buffer and all the views on it must not be used afterwards, reading them
+     * would read freed memory.
+     *
+     * @param buffer a buffer returned by {@link #allocate(int)}.
+     */
+    static void free(ByteBuffer buffer) {
+        if (INVOKE_CLEANER == null) {
+            return;
+        }
+        try {
+            INVOKE_CLEANER.invokeExact(buffer);
+        } catch (Throwable e) {
+            throw new IllegalStateException("The direct buffer could not be freed", e);
+        }
+    }
+
+    /**
+     * @return Returns {@code Unsafe.invokeCleaner} bound to the unsafe instance, or null if the runtime has none.
+     */
+    private static MethodHandle findInvokeCleaner() {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            return MethodHandles.lookup()
+                    .findVirtual(unsafeClass, "invokeCleaner", MethodType.methodType(void.class, ByteBuffer.class))
+                    .bindTo(field.get(null));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package main.java.com.project.offheap;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * Growable array of ints kept in direct buffers outside of the java heap. The array is made of chunks of
+ * {@link #CHUNK_SIZE} ints which are allocated as the array grows, so growing never copies the ints which are already
+ * there and the array is not limited by the 2 GB of a single buffer. New ints are 0.
+ * <p>
+ * The memory of the chunks is freed by {@link #close()}, without waiting for the garbage collector to find the buffers
+ * unreachable. Direct buffers count against {@code -XX:MaxDirectMemorySize} and not against the java heap.
+ */
+public final class OffHeapInts implements Closeable {
+    static final int CHUNK_SHIFT = 16;
+    static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private IntBuffer[] chunks = new IntBuffer[0];
+    /**
+     * The buffers which the chunks view, kept to free them on {@link #close()}.
+     */
+    private ByteBuffer[] buffers = new ByteBuffer[0];
+    /**
+     * The number of ints in the chunks.
+     */
+    private long capacity;
+
+    public int get(int index) {
+        return chunks[index >>> CHUNK_SHIFT].get(index & CHUNK_MASK);
+    }
+
+    public void set(int index, int value) {
+        chunks[index >>> CHUNK_SHIFT].put(index & CHUNK_MASK, value);
+    }
+
+    /**
+     * Copies ints within the array. The ranges may overlap, the copy is made as if through a temporary array.
+     *
+     * @param from   the index of the first int to copy.
+     * @param to     the index where the first int is copied.
+     * @param length the number of ints to copy.
+     */
+    public void copy(int from, int to, int length) {
+        if (from < to) {
+            for (int i = length - 1; i >= 0; i--) {
+                set(to + i, get(from + i));
+            }
+        } else {
+            for (int i = 0; i < length; i++) {
+                set(to + i, get(from + i));
+            }
+        }
+    }
+
+    /**
+     * @return Returns the number of ints which the array holds without growing.
+     */
+    public long capacity() {
+        return capacity;
+    }
+
+    /**
+     * Allocates the chunks which are missing for the array to hold {@code capacity} ints.
+     *
+     * @param capacity the number of ints the array needs to hold.
+     */
+    public void ensureCapacity(long capacity) {
+        if (capacity <= this.capacity) {
+            return;
+        }
+        int count = (int) ((capacity + CHUNK_MASK) >>> CHUNK_SHIFT);
+        IntBuffer[] grown = new IntBuffer[count];
+        ByteBuffer[] grownBuffers = new ByteBuffer[count];
+        System.arraycopy(chunks, 0, grown, 0, chunks.length);
+        System.arraycopy(buffers, 0, grownBuffers, 0, buffers.length);
+        for (int i = chunks.length; i < count; i++) {
+            grownBuffers[i] = DirectMemory.allocate(CHUNK_SIZE * Integer.BYTES);
+            grown[i] = grownBuffers[i].order(ByteOrder.nativeOrder()).asIntBuffer();
+        }
+        chunks = grown;
+        buffers = grownBuffers;
+        this.capacity = (long) count << CHUNK_SHIFT;
+    }
+
+    /**
+     * Frees the chunks which are not needed for the array to hold {@code capacity} ints. The ints after them are lost.
+     * No other thread may read the array meanwhile, a read which still holds a freed chunk would read freed memory.
+     *
+     * @param capacity the number of ints the array still needs to hold.
+     */
+    public void shrink(long capacity) {
+        int count = (int) ((capacity + CHUNK_MASK) >>> CHUNK_SHIFT);
+        if (count >= chunks.length) {
+            return;
+        }
+        ByteBuffer[] freed = Arrays.copyOfRange(buffers, count, buffers.length);
+        chunks = Arrays.copyOf(chunks, count);
+        buffers = Arrays.copyOf(buffers, count);
+        this.capacity = (long) count << CHUNK_SHIFT;
+        for (ByteBuffer buffer : freed) {
+            DirectMemory.free(buffer);
+        }
+    }
+
+    /**
+     * Frees all the chunks. The array is empty afterwards and can grow again, reading or writing an index before it
+     * grows again throws an {@link ArrayIndexOutOfBoundsException}.
+     */
+    @Override
+    public void close() {
+        ByteBuffer[] freed = buffers;
+        //the chunks are dropped before their memory is freed, so that no access reaches the freed memory.
+        chunks = new IntBuffer[0];
+        buffers = new ByteBuffer[0];
+        capacity = 0;
+        for (ByteBuffer buffer : freed) {
+            DirectMemory.free(buffer);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package main.java.com.project.offheap;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+
+/**
+ * Growable array of longs kept in direct buffers outside of the java heap, in chunks like {@link OffHeapInts}.
+ */
+public final class OffHeapLongs implements Closeable {
+    private static final int CHUNK_SHIFT = OffHeapInts.CHUNK_SHIFT;
+    private static final int CHUNK_SIZE = OffHeapInts.CHUNK_SIZE;
+    private static final int CHUNK_MASK = OffHeapInts.CHUNK_MASK;
+    private LongBuffer[] chunks = new LongBuffer[0];
+    /**
+     * The buffers which the chunks view, kept to free them on {@link #close()}.
+     */
+    private ByteBuffer[] buffers = new ByteBuffer[0];
+    /**
+     * The number of longs in the chunks.
+     */
+    private long capacity;
+
+    public long get(int index) {
+        return chunks[index >>> CHUNK_SHIFT].get(index & CHUNK_MASK);
+    }
+
+    public void set(int index, long value) {
+        chunks[index >>> CHUNK_SHIFT].put(index & CHUNK_MASK, value);
+    }
+
+    /**
+     * @return Returns the number of longs which the array holds without growing.
+     */
+    public long capacity() {
+        return capacity;
+    }
+
+    /**
+     * Allocates the chunks which are missing for the array to hold {@code capacity} longs.
+     *
+     * @param capacity the number of longs the array needs to hold.
+     */
+    public void ensureCapacity(long capacity) {
+        if (capacity <= this.capacity) {
+            return;
+        }
+        int count = (int) ((capacity + CHUNK_MASK) >>> CHUNK_SHIFT);
+        LongBuffer[] grown = new LongBuffer[count];
+        ByteBuffer[] grownBuffers = new ByteBuffer[count];
+        System.arraycopy(chunks, 0, grown, 0, chunks.length);
+        System.arraycopy(buffers, 0, grownBuffers, 0, buffers.length);
+        for (int i = chunks.length; i < count; i++) {
+            grownBuffers[i] = DirectMemory.allocate(CHUNK_SIZE * Long.BYTES);
+            grown[i] = grownBuffers[i].order(ByteOrder.nativeOrder()).asLongBuffer();
+        }
+        chunks = grown;
+        buffers = grownBuffers;
+        this.capacity = (long) count << CHUNK_SHIFT;
+    }
+
+    /**
+     * Frees all the chunks. The array is empty afterwards and can grow again, reading or writing an index before it
+     * grows again throws an {@link ArrayIndexOutOfBoundsException}.
+     */
+    @Override
+    public void close() {
+        ByteBuffer[] freed = buffers;
+        //the chunks are dropped before their memory is freed, so that no access reaches the freed memory.
+        chunks = new LongBuffer[0];
+        buffers = new ByteBuffer[0];
+        capacity = 0;
+        for (ByteBuffer buffer : freed) {
+            DirectMemory.free(buffer);
+        }
+    }
+}
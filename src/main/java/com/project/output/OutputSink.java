@@ -0,0 +1,199 @@
+package main.java.com.project.output;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes the output of the program. Characters and integers are formatted straight into a reusable byte buffer which is
+ * written to the destination channel in large chunks, so printing allocates nothing. Lines end with the line separator
+ * of the platform, just like {@link java.io.PrintWriter#println()}.
+ */
+public class OutputSink implements Closeable {
+    /**
+     * The size of the buffer, which is written to the channel when it is full.
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+    /**
+     * The most bytes a single int can take, the sign and ten digits.
+     */
+    private static final int MAX_INT_LENGTH = 11;
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+    private final WritableByteChannel channel;
+    private final byte[] buffer;
+    /**
+     * View of {@code buffer} which is handed to the channel.
+     */
+    private final ByteBuffer byteBuffer;
+    /**
+     * The number of bytes in the buffer.
+     */
+    private int position;
+    /**
+     * The number of bytes written to the channel so far.
+     */
+    private long written;
+
+    /**
+     * Initialises the sink which writes to the channel.
+     *
+     * @param channel the channel to which the output is written.
+     */
+    public OutputSink(WritableByteChannel channel) {
+        this.channel = channel;
+        buffer = new byte[BUFFER_SIZE];
+        byteBuffer = ByteBuffer.wrap(buffer);
+        position = 0;
+    }
+
+    /**
+     * Initialises the sink which writes to the stream.
+     *
+     * @param stream the stream to which the output is written.
+     */
+    public OutputSink(OutputStream stream) {
+        this(Channels.newChannel(stream));
+    }
+
+    /**
+     * Creates a sink which writes to the file. The file is created if it does not exist and truncated if it does.
+     *
+     * @param file the file to which the output is written.
+     * @return the sink.
+     * @throws IOException if the file cannot be opened.
+     */
+    public static OutputSink toFile(Path file) throws IOException {
+        return new OutputSink(FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING));
+    }
+
+    /**
+     * Creates a sink which goes on writing to the file after its first {@code length} bytes. The rest of the file, if
+     * any, is cut off, so that the output written after a checkpoint can be written again when it is restored.
+     *
+     * @param file   the file to which the output is written.
+     * @param length the number of bytes of the file which are kept.
+     * @return the sink.
+     * @throws IOException if the file cannot be opened or is shorter than the length.
+     */
+    public static OutputSink toFile(Path file, long length) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        if (channel.size() < length) {
+            channel.close();
+            throw new IOException("The output " + file + " has less than " + length + " bytes");
+        }
+        channel.truncate(length);
+        channel.position(length);
+        OutputSink sink = new OutputSink(channel);
+        sink.written = length;
+        return sink;
+    }
+
+    /**
+     * @return Returns the number of bytes printed so far, the buffered ones included.
+     */
+    public long getBytesWritten() {
+        return written + position;
+    }
+
+    /**
+     * Prints an ascii character.
+     *
+     * @param c the character to print.
+     */
+    public void print(char c) {
+        if (position == buffer.length) {
+            drain();
+        }
+        buffer[position++] = (byte) c;
+    }
+
+    /**
+     * Prints the ascii characters of the string.
+     *
+     * @param s the string to print.
+     */
+    public void print(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            print(s.charAt(i));
+        }
+    }
+
+    /**
+     * Prints the decimal digits of the integer.
+     *
+     * @param value the integer to print.
+     */
+    public void print(int value) {
+        if (buffer.length - position < MAX_INT_LENGTH) {
+            drain();
+        }
+        long remaining = value;
+        if (remaining < 0) {
+            buffer[position++] = '-';
+            remaining = -remaining;
+        }
+        int digits = 1;
+        for (long rest = remaining; rest >= 10; rest /= 10) {
+            digits++;
+        }
+        int end = position + digits;
+        for (int i = end - 1; i >= position; i--) {
+            //the digits are written from the last to the first.
+            buffer[i] = (byte) ('0' + remaining % 10);
+            remaining /= 10;
+        }
+        position = end;
+    }
+
+    /**
+     * Ends the current line.
+     */
+    public void println() {
+        for (byte b : LINE_SEPARATOR) {
+            print((char) b);
+        }
+    }
+
+    /**
+     * Writes the buffered output to the channel.
+     */
+    public void flush() {
+        drain();
+    }
+
+    /**
+     * Writes the buffered output and closes the channel.
+     *
+     * @throws IOException if the channel cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        drain();
+        channel.close();
+    }
+
+    /**
+     * Writes the bytes of the buffer to the channel and empties the buffer.
+     */
+    private void drain() {
+        byteBuffer.clear().limit(position);
+        try {
+            while (byteBuffer.hasRemaining()) {
+                channel.write(byteBuffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        written += position;
+        position = 0;
+    }
+}
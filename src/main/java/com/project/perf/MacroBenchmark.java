@@ -0,0 +1,223 @@
+package main.java.com.project.perf;
+
+import com.project.RisingCity;
+import com.project.command.MappedCommandReader;
+import com.project.output.OutputSink;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Runs the whole program, from parsing the commands to writing the output, on a workload file a few times and reports
+ * the commands per second, the simulated days per second, the time spent in garbage collection and the peak resident
+ * memory. The results can be recorded as a baseline, and later runs are compared with the baseline to flag
+ * regressions.
+ * <p>
+ * Usage: {@code MacroBenchmark <workload file> [options]} where the options are
+ * <ul>
+ * <li>{@code --runs=<n>} the number of runs, the best run counts, 3 by default.</li>
+ * <li>{@code --tree=pooled} to run with the {@link com.project.tree.PooledRedBlackTree}, or {@code --tree=bplus} with
+ * the {@link com.project.tree.BPlusTree}.</li>
+ * <li>{@code --index=direct} to run with a {@link com.project.tree.DirectAddressIndex} in front of the tree.</li>
+ * <li>{@code --queue=bucket} to run with the {@link com.project.heap.BucketQueue} instead of the binary heap.</li>
+ * <li>{@code --storage=offheap} to run with the buildings, the heap and the tree outside of the java heap.</li>
+ * <li>{@code --baseline=<file>} the baseline to compare with, or to record.</li>
+ * <li>{@code --tolerance=<fraction>} how much worse than the baseline a result may be, 0.1 by default.</li>
+ * <li>{@code --record} to write the results to the baseline file instead of comparing them.</li>
+ * </ul>
+ * The exit code is 1 if a regression was found.
+ */
+public class MacroBenchmark {
+    private static final String COMMANDS_PER_SECOND = "commandsPerSecond";
+    private static final String DAYS_PER_SECOND = "daysPerSecond";
+    private static final String GC_MILLIS = "gcMillis";
+    private static final String PEAK_RSS_KB = "peakRssKb";
+    /**
+     * The smallest baselines against which the costs are compared, so that a cost which is close to nothing, as the
+     * time in garbage collection often is, is not flagged for the noise of a few milliseconds or kilobytes.
+     */
+    private static final long GC_MILLIS_FLOOR = 50;
+    private static final long PEAK_RSS_KB_FLOOR = 64 * 1024;
+
+    public static void main(String[] args) throws Exception {
+        int runs = 3;
+        String tree = "redblack";
+        boolean directIndex = false;
+        boolean bucketQueue = false;
+        boolean offHeap = false;
+        String baseline = null;
+        double tolerance = 0.1;
+        boolean record = false;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].startsWith("--runs=")) {
+                runs = Integer.parseInt(args[i].substring("--runs=".length()));
+            } else if (args[i].startsWith("--tree=")) {
+                tree = args[i].substring("--tree=".length());
+            } else if ("--index=direct".equals(args[i])) {
+                directIndex = true;
+            } else if ("--queue=bucket".equals(args[i])) {
+                bucketQueue = true;
+            } else if ("--storage=offheap".equals(args[i])) {
+                offHeap = true;
+            } else if (args[i].startsWith("--baseline=")) {
+                baseline = args[i].substring("--baseline=".length());
+            } else if (args[i].startsWith("--tolerance=")) {
+                tolerance = Double.parseDouble(args[i].substring("--tolerance=".length()));
+            } else if ("--record".equals(args[i])) {
+                record = true;
+            } else {
+                throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        Properties results = run(Paths.get(args[0]), runs, tree, directIndex, bucketQueue, offHeap);
+        results.forEach((key, value) -> System.out.println(key + " = " + value));
+        if (baseline == null) {
+            return;
+        }
+        if (record) {
+            try (OutputStream stream = Files.newOutputStream(Paths.get(baseline))) {
+                results.store(stream, "Baseline of " + args[0]);
+            }
+            System.out.println("Recorded the baseline in " + baseline);
+        } else if (!compare(results, Paths.get(baseline), tolerance)) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Runs the workload and measures it.
+     *
+     * @param workload    the input file.
+     * @param runs        the number of runs.
+     * @param tree        the name of the ordered index of the buildings.
+     * @param directIndex flag which tells whether to look the buildings up in a direct address index.
+     * @param bucketQueue flag which tells whether to schedule the buildings with the bucket queue.
+     * @param offHeap     flag which tells whether to keep the buildings, the heap and the tree off the java heap.
+     * @return the best results of the runs.
+     * @throws Exception if the program fails.
+     */
+    static Properties run(Path workload, int runs, String tree, boolean directIndex, boolean bucketQueue,
+                          boolean offHeap) throws Exception {
+        Path output = Files.createTempFile("macro-benchmark", ".txt");
+        double commandsPerSecond = 0;
+        double daysPerSecond = 0;
+        long gcMillis = Long.MAX_VALUE;
+        try {
+            for (int run = 0; run < runs; run++) {
+                long gcBefore = gcMillis();
+                long start = System.nanoTime();
+                long commands;
+                int days;
+                try (MappedCommandReader reader = new MappedCommandReader(workload);
+                     OutputSink sink = OutputSink.toFile(output);
+                     RisingCity city = new RisingCity(tree, directIndex, bucketQueue, offHeap, sink)) {
+                    days = city.simulate(reader);
+                    commands = reader.getCommandCount();
+                }
+                double seconds = (System.nanoTime() - start) / 1e9;
+                long gc = gcMillis() - gcBefore;
+                System.out.printf("run %d: %.3f s, %d commands, %d days, %d ms gc%n", run + 1, seconds, commands, days, gc);
+                commandsPerSecond = Math.max(commandsPerSecond, commands / seconds);
+                daysPerSecond = Math.max(daysPerSecond, days / seconds);
+                gcMillis = Math.min(gcMillis, gc);
+            }
+        } finally {
+            Files.deleteIfExists(output);
+        }
+        Properties results = new Properties();
+        results.setProperty(COMMANDS_PER_SECOND, String.valueOf((long) commandsPerSecond));
+        results.setProperty(DAYS_PER_SECOND, String.valueOf((long) daysPerSecond));
+        results.setProperty(GC_MILLIS, String.valueOf(gcMillis));
+        results.setProperty(PEAK_RSS_KB, String.valueOf(peakRssKb()));
+        return results;
+    }
+
+    /**
+     * Compares the results with the baseline and prints the regressions.
+     *
+     * @param results   the results of the runs.
+     * @param baseline  the baseline file.
+     * @param tolerance how much worse than the baseline a result may be.
+     * @return {@code true} if there is no regression.
+     * @throws IOException if the baseline cannot be read.
+     */
+    static boolean compare(Properties results, Path baseline, double tolerance) throws IOException {
+        Properties expected = new Properties();
+        try (InputStream stream = Files.newInputStream(baseline)) {
+            expected.load(stream);
+        }
+        //more is better for the throughputs, less is better for the costs.
+        boolean ok = check(results, expected, COMMANDS_PER_SECOND, true, 0, tolerance);
+        ok &= check(results, expected, DAYS_PER_SECOND, true, 0, tolerance);
+        ok &= check(results, expected, GC_MILLIS, false, GC_MILLIS_FLOOR, tolerance);
+        ok &= check(results, expected, PEAK_RSS_KB, false, PEAK_RSS_KB_FLOOR, tolerance);
+        System.out.println(ok ? "No regression" : "Regression found");
+        return ok;
+    }
+
+    /**
+     * Checks one result against the baseline.
+     *
+     * @param results          the results of the runs.
+     * @param expected         the baseline.
+     * @param key              the result to check.
+     * @param higherIsBetter   flag which tells whether a higher value is better.
+     * @param floor            the smallest baseline of a cost, the tolerance applies to the floor when the baseline is
+     *                         smaller.
+     * @param tolerance        how much worse than the baseline the result may be.
+     * @return {@code true} if the result is not a regression.
+     */
+    private static boolean check(Properties results, Properties expected, String key, boolean higherIsBetter,
+                                 long floor, double tolerance) {
+        long actual = Long.parseLong(results.getProperty(key));
+        String baselineValue = expected.getProperty(key);
+        if (baselineValue == null || actual < 0) {
+            //the baseline does not have the result or it could not be measured.
+            return true;
+        }
+        long base = Long.parseLong(baselineValue);
+        boolean ok = higherIsBetter ? actual >= base * (1 - tolerance)
+                : actual <= Math.max(base, floor) * (1 + tolerance);
+        if (!ok) {
+            System.out.println("REGRESSION " + key + ": " + actual + " against a baseline of " + base);
+        }
+        return ok;
+    }
+
+    /**
+     * @return Returns the total time spent in garbage collection by the jvm so far, in milliseconds.
+     */
+    private static long gcMillis() {
+        long total = 0;
+        List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+        for (GarbageCollectorMXBean collector : collectors) {
+            total += Math.max(collector.getCollectionTime(), 0);
+        }
+        return total;
+    }
+
+    /**
+     * @return Returns the peak resident memory of the process in kilobytes, or -1 if the platform does not tell it.
+     */
+    private static long peakRssKb() {
+        try {
+            for (String line : Files.readAllLines(Paths.get("/proc/self/status"))) {
+                if (line.startsWith("VmHWM:")) {
+                    return Long.parseLong(line.replaceAll("[^0-9]", ""));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            //not on linux.
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,174 @@
+package main.java.com.project.perf;
+
+import com.project.output.OutputSink;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * Generates a synthetic input file of {@code Insert} and {@code PrintBuilding} commands for load testing. The commands
+ * are on increasing days, at most one per day, so the files are valid inputs for every version of the program.
+ * <p>
+ * Usage: {@code WorkloadGenerator <output file> [options]} where the options are
+ * <ul>
+ * <li>{@code --buildings=<n>} the number of buildings inserted, 1000 by default.</li>
+ * <li>{@code --total-time=<distribution>} the distribution of the total time of the buildings, which is one of
+ * {@code fixed:<days>}, {@code uniform:<min>:<max>} or {@code exponential:<mean>}, {@code uniform:1:100} by default.</li>
+ * <li>{@code --density=<p>} the probability that a day has a command, 0.5 by default.</li>
+ * <li>{@code --print-ratio=<p>} the share of the commands which are prints, 0.2 by default.</li>
+ * <li>{@code --range-ratio=<p>} the share of the prints which print a range, 0.5 by default.</li>
+ * <li>{@code --range-width=<n>} the number of building numbers in a printed range, 100 by default.</li>
+ * <li>{@code --seed=<n>} the seed of the random numbers, 1 by default.</li>
+ * </ul>
+ */
+public class WorkloadGenerator {
+    private int buildings = 1000;
+    private String totalTime = "uniform:1:100";
+    private double density = 0.5;
+    private double printRatio = 0.2;
+    private double rangeRatio = 0.5;
+    private int rangeWidth = 100;
+    private long seed = 1;
+
+    public static void main(String[] args) throws IOException {
+        WorkloadGenerator generator = new WorkloadGenerator();
+        for (int i = 1; i < args.length; i++) {
+            String option = args[i].substring(0, args[i].indexOf('=') + 1);
+            String value = args[i].substring(option.length());
+            switch (option) {
+                case "--buildings=":
+                    generator.buildings = Integer.parseInt(value);
+                    break;
+                case "--total-time=":
+                    generator.totalTime = value;
+                    break;
+                case "--density=":
+                    generator.density = Double.parseDouble(value);
+                    break;
+                case "--print-ratio=":
+                    generator.printRatio = Double.parseDouble(value);
+                    break;
+                case "--range-ratio=":
+                    generator.rangeRatio = Double.parseDouble(value);
+                    break;
+                case "--range-width=":
+                    generator.rangeWidth = Integer.parseInt(value);
+                    break;
+                case "--seed=":
+                    generator.seed = Long.parseLong(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        if (generator.density <= 0 || generator.density > 1 || generator.printRatio < 0 || generator.printRatio >= 1) {
+            throw new IllegalArgumentException("The density must be in (0, 1] and the print ratio in [0, 1)");
+        }
+        long commands = generator.generate(args[0]);
+        System.out.println("Wrote " + commands + " commands to " + args[0]);
+    }
+
+    /**
+     * Writes the workload to the file.
+     *
+     * @param file the file to which the commands are written.
+     * @return the number of commands written.
+     * @throws IOException if the file cannot be written.
+     */
+    long generate(String file) throws IOException {
+        Random random = new Random(seed);
+        int numberRange = Math.max(2 * buildings, 1);
+        int[] buildingNumbers = pickBuildingNumbers(numberRange, random);
+        String[] distribution = totalTime.split(":");
+        long day = 0;
+        long commands = 0;
+        int inserted = 0;
+        try (OutputSink sink = OutputSink.toFile(Paths.get(file))) {
+            while (inserted < buildings) {
+                day += commands == 0 ? 0 : nextGap(random);
+                if (day > Integer.MAX_VALUE) {
+                    throw new IllegalArgumentException("The workload does not fit in " + Integer.MAX_VALUE + " days");
+                }
+                sink.print((int) day);
+                sink.print(": ");
+                if (inserted > 0 && random.nextDouble() < printRatio) {
+                    int start = 1 + random.nextInt(numberRange);
+                    sink.print("PrintBuilding(");
+                    sink.print(start);
+                    if (random.nextDouble() < rangeRatio) {
+                        sink.print(',');
+                        sink.print((int) Math.min((long) start + rangeWidth - 1, Integer.MAX_VALUE));
+                    }
+                } else {
+                    sink.print("Insert(");
+                    sink.print(buildingNumbers[inserted++]);
+                    sink.print(',');
+                    sink.print(nextTotalTime(distribution, random));
+                }
+                sink.print(')');
+                sink.println();
+                commands++;
+            }
+        }
+        return commands;
+    }
+
+    /**
+     * Picks {@code buildings} distinct building numbers from [1, numberRange] in random order.
+     *
+     * @param numberRange the largest building number.
+     * @param random      the source of randomness.
+     * @return the building numbers.
+     */
+    private int[] pickBuildingNumbers(int numberRange, Random random) {
+        int[] numbers = new int[numberRange];
+        for (int i = 0; i < numberRange; i++) {
+            numbers[i] = i + 1;
+        }
+        //a partial shuffle which moves a random pick to each of the first positions.
+        for (int i = 0; i < buildings; i++) {
+            int j = i + random.nextInt(numberRange - i);
+            int swap = numbers[i];
+            numbers[i] = numbers[j];
+            numbers[j] = swap;
+        }
+        return numbers;
+    }
+
+    /**
+     * Returns the number of days until the next command, which follows a geometric distribution so that each day has
+     * a command with probability {@code density}.
+     *
+     * @param random the source of randomness.
+     * @return the number of days until the next command, at least 1.
+     */
+    private long nextGap(Random random) {
+        if (density >= 1) {
+            return 1;
+        }
+        return 1 + (long) Math.floor(Math.log(1 - random.nextDouble()) / Math.log(1 - density));
+    }
+
+    /**
+     * Returns the total time of a new building.
+     *
+     * @param distribution the distribution of the total time, split on ':'.
+     * @param random       the source of randomness.
+     * @return the total time, at least 1.
+     */
+    private static int nextTotalTime(String[] distribution, Random random) {
+        switch (distribution[0]) {
+            case "fixed":
+                return Integer.parseInt(distribution[1]);
+            case "uniform":
+                int min = Integer.parseInt(distribution[1]);
+                return min + random.nextInt(Integer.parseInt(distribution[2]) - min + 1);
+            case "exponential":
+                double mean = Double.parseDouble(distribution[1]);
+                return 1 + (int) Math.min(-mean * Math.log(1 - random.nextDouble()), Integer.MAX_VALUE - 1);
+            default:
+                throw new IllegalArgumentException("Unknown total time distribution " + distribution[0]);
+        }
+    }
+}
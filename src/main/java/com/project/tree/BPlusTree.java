@@ -0,0 +1,444 @@
+package main.java.com.project.tree;
+
+import com.project.bean.BuildingStore;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * B+ tree of the buildings on the building number. Every node is a pair of wide primitive arrays, so a search reads a
+ * few cache lines per level over a handful of levels instead of one node per level over some twenty levels. The
+ * buildings themselves are only in the leaves, which hold up to {@link #LEAF_CAPACITY} building numbers next to their
+ * slots and are linked in increasing order, so a range is walked by reading the leaves one after the other.
+ * <p>
+ * Removals are relaxed: a leaf which gets fewer buildings is not merged with its neighbours, it is only dropped from
+ * the tree once it is empty, and an inner node likewise once it has no children left. Searches and ranges are as fast
+ * as ever, and the height of the tree stays bounded by the largest number of buildings it ever held.
+ */
+public class BPlusTree implements BuildingIndex {
+    /**
+     * The largest number of buildings in a leaf.
+     */
+    private static final int LEAF_CAPACITY = 64;
+    /**
+     * The largest number of children of an inner node.
+     */
+    private static final int INNER_CAPACITY = 64;
+    /**
+     * The deepest path from the root to a leaf, far more than a tree of any number of buildings an int can count needs.
+     */
+    private static final int MAX_HEIGHT = 32;
+    /**
+     * The store which holds the buildings whose slots are kept in the tree.
+     */
+    private final BuildingStore store;
+    private Node root;
+    /**
+     * The number of buildings in the tree.
+     */
+    private int size;
+    /**
+     * The inner nodes on the path from the root to the last leaf found by {@link #findLeaf(int)}.
+     */
+    private final Inner[] pathNodes = new Inner[MAX_HEIGHT];
+    /**
+     * The index of the child taken in every inner node of {@link #pathNodes}.
+     */
+    private final int[] pathIndexes = new int[MAX_HEIGHT];
+    /**
+     * The number of inner nodes on the path.
+     */
+    private int pathLength;
+
+    /**
+     * A node of the tree, with its keys in increasing order.
+     */
+    private abstract static class Node {
+        int[] keys;
+        int count;
+    }
+
+    /**
+     * A leaf, which holds {@code count} building numbers and their slots. The arrays have one spare entry for the
+     * building which makes the leaf split.
+     */
+    private static final class Leaf extends Node {
+        final int[] slots;
+        Leaf previous;
+        Leaf next;
+
+        Leaf(int capacity) {
+            keys = new int[capacity + 1];
+            slots = new int[capacity + 1];
+        }
+    }
+
+    /**
+     * An inner node, which has {@code count} children and {@code count - 1} separating keys. Child {@code i} holds the
+     * building numbers from {@code keys[i - 1]} included up to {@code keys[i]} excluded. The arrays have one spare
+     * entry for the child which makes the node split.
+     */
+    private static final class Inner extends Node {
+        final Node[] children;
+
+        Inner(int capacity) {
+            keys = new int[capacity];
+            children = new Node[capacity + 1];
+        }
+    }
+
+    public BPlusTree(BuildingStore store) {
+        this.store = store;
+        root = new Leaf(LEAF_CAPACITY);
+    }
+
+    @Override
+    public void addBuilding(int slot) throws Exception {
+        int buildingNumber = store.getBuildingNumber(slot);
+        Leaf leaf = findLeaf(buildingNumber);
+        int index = lowerBound(leaf.keys, leaf.count, buildingNumber);
+        if (index < leaf.count && leaf.keys[index] == buildingNumber) {
+            throw BulkLoad.alreadyPresent(buildingNumber);
+        }
+        System.arraycopy(leaf.keys, index, leaf.keys, index + 1, leaf.count - index);
+        System.arraycopy(leaf.slots, index, leaf.slots, index + 1, leaf.count - index);
+        leaf.keys[index] = buildingNumber;
+        leaf.slots[index] = slot;
+        leaf.count++;
+        size++;
+        if (leaf.count > LEAF_CAPACITY) {
+            splitLeaf(leaf);
+        }
+    }
+
+    /**
+     * Adds a batch of buildings. A batch which is at least as large as the tree is merged with the buildings of the
+     * tree, and the tree is rebuilt bottom up from full leaves in linear time.
+     *
+     * @param slots the slots of the buildings which are to be added, in increasing order of the building number.
+     * @param count the number of slots in the batch.
+     * @throws Exception if a building with the same building number is already present, or is twice in the batch.
+     */
+    @Override
+    public void addBuildings(int[] slots, int count) throws Exception {
+        if (count < size) {
+            //a small batch is cheaper to add one building at a time.
+            for (int i = 0; i < count; i++) {
+                addBuilding(slots[i]);
+            }
+            return;
+        }
+        int[] existing = new int[size];
+        int[] existingCount = {0};
+        forEachInRange(Integer.MIN_VALUE, Integer.MAX_VALUE, slot -> existing[existingCount[0]++] = slot);
+        int[] merged = BulkLoad.merge(store, existing, existingCount[0], slots, count);
+        root = build(merged);
+        size = merged.length;
+    }
+
+    @Override
+    public void updateBuilding(int slot) {
+        //the tree is ordered on the building number only and keeps nothing else about the building.
+    }
+
+    @Override
+    public void removeBuilding(int slot) {
+        int buildingNumber = store.getBuildingNumber(slot);
+        Leaf leaf = findLeaf(buildingNumber);
+        int index = lowerBound(leaf.keys, leaf.count, buildingNumber);
+        if (index == leaf.count || leaf.keys[index] != buildingNumber) {
+            //the building is not in the tree.
+            return;
+        }
+        leaf.count--;
+        System.arraycopy(leaf.keys, index + 1, leaf.keys, index, leaf.count - index);
+        System.arraycopy(leaf.slots, index + 1, leaf.slots, index, leaf.count - index);
+        size--;
+        if (leaf.count == 0 && leaf != root) {
+            //the empty leaf leaves the chain of leaves and its parent.
+            if (leaf.previous != null) {
+                leaf.previous.next = leaf.next;
+            }
+            if (leaf.next != null) {
+                leaf.next.previous = leaf.previous;
+            }
+            removeChild(pathLength - 1);
+        }
+    }
+
+    @Override
+    public int searchBuilding(int buildingNumber) {
+        Node node = root;
+        for (int level = 0; node instanceof Inner; level++) {
+            if (level == MAX_HEIGHT) {
+                //the links were torn by a change in progress, see CityQueries.
+                return BuildingStore.NO_SLOT;
+            }
+            Inner inner = (Inner) node;
+            node = inner.children[upperBound(inner.keys, inner.count - 1, buildingNumber)];
+        }
+        Leaf leaf = (Leaf) node;
+        int index = lowerBound(leaf.keys, leaf.count, buildingNumber);
+        if (index < leaf.count && leaf.keys[index] == buildingNumber) {
+            return leaf.slots[index];
+        }
+        return BuildingStore.NO_SLOT;
+    }
+
+    @Override
+    public void forEachInRange(int start, int end, IntConsumer visitor) {
+        Node node = root;
+        for (int level = 0; node instanceof Inner; level++) {
+            if (level == MAX_HEIGHT) {
+                return;
+            }
+            Inner inner = (Inner) node;
+            node = inner.children[upperBound(inner.keys, inner.count - 1, start)];
+        }
+        Leaf leaf = (Leaf) node;
+        int index = lowerBound(leaf.keys, leaf.count, start);
+        //walk the chain of leaves, the building numbers of a leaf are read in order from its array. Only the first leaf
+        //may be passed without visiting a building, so a walk which passes more was torn by a change in progress.
+        int passed = 0;
+        while (leaf != null && passed < MAX_HEIGHT) {
+            int[] keys = leaf.keys;
+            int[] slots = leaf.slots;
+            int count = leaf.count;
+            passed = index < count ? 0 : passed + 1;
+            for (; index < count; index++) {
+                if (keys[index] > end) {
+                    return;
+                }
+                visitor.accept(slots[index]);
+            }
+            leaf = leaf.next;
+            index = 0;
+        }
+    }
+
+    /**
+     * @return Returns the number of levels of the tree, 1 for a tree which is a single leaf.
+     */
+    int getHeight() {
+        int height = 1;
+        for (Node node = root; node instanceof Inner; node = ((Inner) node).children[0]) {
+            height++;
+        }
+        return height;
+    }
+
+    /**
+     * Finds the leaf which holds the building number if it is in the tree, and remembers the path to it.
+     *
+     * @param buildingNumber the building number.
+     * @return the leaf.
+     */
+    private Leaf findLeaf(int buildingNumber) {
+        pathLength = 0;
+        Node node = root;
+        while (node instanceof Inner) {
+            Inner inner = (Inner) node;
+            int index = upperBound(inner.keys, inner.count - 1, buildingNumber);
+            pathNodes[pathLength] = inner;
+            pathIndexes[pathLength] = index;
+            pathLength++;
+            node = inner.children[index];
+        }
+        return (Leaf) node;
+    }
+
+    /**
+     * Splits the leaf which overflowed in two halves and adds the new half to its parent.
+     *
+     * @param leaf the leaf, the last leaf found by {@link #findLeaf(int)}.
+     */
+    private void splitLeaf(Leaf leaf) {
+        Leaf right = new Leaf(LEAF_CAPACITY);
+        int half = leaf.count >>> 1;
+        right.count = leaf.count - half;
+        System.arraycopy(leaf.keys, half, right.keys, 0, right.count);
+        System.arraycopy(leaf.slots, half, right.slots, 0, right.count);
+        leaf.count = half;
+        right.next = leaf.next;
+        right.previous = leaf;
+        if (leaf.next != null) {
+            leaf.next.previous = right;
+        }
+        leaf.next = right;
+        insertChild(pathLength - 1, right.keys[0], right);
+    }
+
+    /**
+     * Adds a new child right after the child taken by the path at the level, splitting the inner nodes which overflow
+     * on the way up.
+     *
+     * @param level     the level of the path of the parent, -1 if the split node is the root.
+     * @param separator the smallest building number of the new child.
+     * @param child     the new child.
+     */
+    private void insertChild(int level, int separator, Node child) {
+        while (level >= 0) {
+            Inner parent = pathNodes[level];
+            int index = pathIndexes[level] + 1;
+            System.arraycopy(parent.keys, index - 1, parent.keys, index, parent.count - index);
+            System.arraycopy(parent.children, index, parent.children, index + 1, parent.count - index);
+            parent.keys[index - 1] = separator;
+            parent.children[index] = child;
+            parent.count++;
+            if (parent.count <= INNER_CAPACITY) {
+                return;
+            }
+            //the parent overflowed, its upper half becomes the new child of the level above.
+            Inner right = new Inner(INNER_CAPACITY);
+            int half = parent.count >>> 1;
+            right.count = parent.count - half;
+            System.arraycopy(parent.children, half, right.children, 0, right.count);
+            System.arraycopy(parent.keys, half, right.keys, 0, right.count - 1);
+            Arrays.fill(parent.children, half, parent.count, null);
+            separator = parent.keys[half - 1];
+            parent.count = half;
+            child = right;
+            level--;
+        }
+        //the root split, so the tree grows one level.
+        Inner newRoot = new Inner(INNER_CAPACITY);
+        newRoot.children[0] = root;
+        newRoot.children[1] = child;
+        newRoot.keys[0] = separator;
+        newRoot.count = 2;
+        root = newRoot;
+    }
+
+    /**
+     * Removes the child taken by the path at the level, and the inner nodes which are left without children on the way
+     * up. A root with a single child is replaced by the child.
+     *
+     * @param level the level of the path of the parent of the child.
+     */
+    private void removeChild(int level) {
+        while (level >= 0) {
+            Inner parent = pathNodes[level];
+            int index = pathIndexes[level];
+            parent.count--;
+            if (parent.count > 0) {
+                //the separator before the child goes with it, or the one after it for the first child.
+                int key = Math.max(index - 1, 0);
+                System.arraycopy(parent.keys, key + 1, parent.keys, key, parent.count - 1 - key);
+                System.arraycopy(parent.children, index + 1, parent.children, index, parent.count - index);
+                parent.children[parent.count] = null;
+                break;
+            }
+            level--;
+        }
+        while (root instanceof Inner && root.count == 1) {
+            root = ((Inner) root).children[0];
+        }
+        if (root instanceof Inner && root.count == 0) {
+            //every leaf was removed.
+            root = new Leaf(LEAF_CAPACITY);
+        }
+    }
+
+    /**
+     * Builds the tree bottom up from all its slots, with full leaves and full inner nodes.
+     *
+     * @param slots the slots of the buildings in increasing order of the building number.
+     * @return the root of the tree.
+     */
+    private Node build(int[] slots) {
+        if (slots.length == 0) {
+            return new Leaf(LEAF_CAPACITY);
+        }
+        int leafCount = (slots.length + LEAF_CAPACITY - 1) / LEAF_CAPACITY;
+        Node[] level = new Node[leafCount];
+        int[] lowest = new int[leafCount];
+        Leaf previous = null;
+        int from = 0;
+        for (int i = 0; i < leafCount; i++) {
+            //spread the buildings evenly so that the last leaf is not nearly empty.
+            int to = (int) ((long) slots.length * (i + 1) / leafCount);
+            Leaf leaf = new Leaf(LEAF_CAPACITY);
+            for (int j = from; j < to; j++) {
+                leaf.keys[j - from] = store.getBuildingNumber(slots[j]);
+                leaf.slots[j - from] = slots[j];
+            }
+            leaf.count = to - from;
+            leaf.previous = previous;
+            if (previous != null) {
+                previous.next = leaf;
+            }
+            previous = leaf;
+            level[i] = leaf;
+            lowest[i] = leaf.keys[0];
+            from = to;
+        }
+        while (level.length > 1) {
+            int parentCount = (level.length + INNER_CAPACITY - 1) / INNER_CAPACITY;
+            Node[] parents = new Node[parentCount];
+            int[] parentLowest = new int[parentCount];
+            from = 0;
+            for (int i = 0; i < parentCount; i++) {
+                int to = (int) ((long) level.length * (i + 1) / parentCount);
+                Inner inner = new Inner(INNER_CAPACITY);
+                for (int j = from; j < to; j++) {
+                    inner.children[j - from] = level[j];
+                    if (j > from) {
+                        inner.keys[j - from - 1] = lowest[j];
+                    }
+                }
+                inner.count = to - from;
+                parents[i] = inner;
+                parentLowest[i] = lowest[from];
+                from = to;
+            }
+            level = parents;
+            lowest = parentLowest;
+        }
+        return level[0];
+    }
+
+    /**
+     * Returns the index of the first key which is greater than or equal to the key.
+     *
+     * @param keys  the keys, in increasing order.
+     * @param count the number of keys.
+     * @param key   the key.
+     * @return the index, {@code count} if all the keys are smaller.
+     */
+    private static int lowerBound(int[] keys, int count, int key) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (keys[middle] < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the index of the first key which is greater than the key, which is the index of the child of an inner
+     * node which covers the key.
+     *
+     * @param keys  the keys, in increasing order.
+     * @param count the number of keys.
+     * @param key   the key.
+     * @return the index, {@code count} if all the keys are smaller or equal.
+     */
+    private static int upperBound(int[] keys, int count, int key) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (keys[middle] <= key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,60 @@
+package main.java.com.project.tree;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Ordered index of the active buildings on the building number. The index holds the slots of the buildings in the
+ * {@link com.project.bean.BuildingStore}, the building numbers are read from the store.
+ */
+public interface BuildingIndex {
+
+    /**
+     * Adds the building to the index.
+     *
+     * @param slot the slot of the building which is to be added.
+     * @throws Exception if a building with the same building number is already present.
+     */
+    void addBuilding(int slot) throws Exception;
+
+    /**
+     * Adds a batch of buildings to the index. When the batch is large compared with the index, the index is rebuilt
+     * from the merged buildings in linear time instead of adding them one by one.
+     *
+     * @param slots the slots of the buildings which are to be added, in increasing order of the building number.
+     * @param count the number of slots in the batch.
+     * @throws Exception if a building with the same building number is already present, or is twice in the batch.
+     */
+    void addBuildings(int[] slots, int count) throws Exception;
+
+    /**
+     * Tells the index that the executed time of the building was changed in the store.
+     *
+     * @param slot the slot of the building which was updated.
+     */
+    void updateBuilding(int slot);
+
+    /**
+     * Removes the building from the index. Nothing happens if the building is not in the index.
+     *
+     * @param slot the slot of the building which needs to be removed.
+     */
+    void removeBuilding(int slot);
+
+    /**
+     * Search the building in the index.
+     *
+     * @param buildingNumber the number of building which is to be searched.
+     * @return the slot of the building if found else {@link com.project.bean.BuildingStore#NO_SLOT}.
+     */
+    int searchBuilding(int buildingNumber);
+
+    /**
+     * Passes the slot of every building in the range [start, end] to the visitor in increasing order of the building
+     * number.
+     *
+     * @param start   the starting building number.
+     * @param end     the ending building number.
+     * @param visitor the visitor which receives the slots of the buildings.
+     */
+    void forEachInRange(int start, int end, IntConsumer visitor);
+}
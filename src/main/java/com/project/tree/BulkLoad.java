@@ -0,0 +1,93 @@
+package main.java.com.project.tree;
+
+import com.project.bean.BuildingStore;
+
+/**
+ * Helpers shared by the trees to build themselves from a sorted batch of buildings in linear time.
+ * <p>
+ * The tree built from the sorted slots takes the middle slot as the root and the two halves as its sub trees, so the
+ * two sub trees of every node differ in size by at most one. All the missing children are then on the deepest level of
+ * nodes or one level below, so coloring the nodes of the deepest level red and all the others black gives the same
+ * number of black nodes on every path, and the tree is a valid red black tree.
+ */
+final class BulkLoad {
+
+    private BulkLoad() {
+    }
+
+    /**
+     * Merges the slots already in a tree with a batch of new slots, both in increasing order of the building number.
+     *
+     * @param store         the store which holds the buildings.
+     * @param existing      the slots already in the tree.
+     * @param existingCount the number of slots already in the tree.
+     * @param slots         the new slots.
+     * @param count         the number of new slots.
+     * @return all the slots in increasing order of the building number.
+     * @throws Exception if a building number is present twice, with the same message as a single insert.
+     */
+    static int[] merge(BuildingStore store, int[] existing, int existingCount, int[] slots, int count) throws Exception {
+        checkSorted(store, slots, count);
+        int[] merged = new int[existingCount + count];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < existingCount && j < count) {
+            int existingNumber = store.getBuildingNumber(existing[i]);
+            int newNumber = store.getBuildingNumber(slots[j]);
+            if (existingNumber < newNumber) {
+                merged[k++] = existing[i++];
+            } else if (existingNumber > newNumber) {
+                merged[k++] = slots[j++];
+            } else {
+                throw alreadyPresent(newNumber);
+            }
+        }
+        while (i < existingCount) {
+            merged[k++] = existing[i++];
+        }
+        while (j < count) {
+            merged[k++] = slots[j++];
+        }
+        return merged;
+    }
+
+    /**
+     * Checks that the slots are in strictly increasing order of the building number.
+     *
+     * @param store the store which holds the buildings.
+     * @param slots the slots.
+     * @param count the number of slots.
+     * @throws Exception if a building number is present twice.
+     */
+    static void checkSorted(BuildingStore store, int[] slots, int count) throws Exception {
+        for (int i = 1; i < count; i++) {
+            int previous = store.getBuildingNumber(slots[i - 1]);
+            int current = store.getBuildingNumber(slots[i]);
+            if (previous == current) {
+                throw alreadyPresent(current);
+            }
+            if (previous > current) {
+                throw new IllegalArgumentException("The buildings are not sorted on the building number");
+            }
+        }
+    }
+
+    /**
+     * Returns the depth of the deepest nodes of the tree built from {@code n} slots, the root being at depth 0.
+     *
+     * @param n the number of slots, at least one.
+     * @return the depth of the deepest nodes, whose nodes are colored red.
+     */
+    static int redDepth(int n) {
+        return 31 - Integer.numberOfLeadingZeros(n);
+    }
+
+    /**
+     * @param buildingNumber the building number which is present twice.
+     * @return Returns the exception thrown when a building is inserted twice.
+     */
+    static Exception alreadyPresent(int buildingNumber) {
+        return new Exception("com.project.bean.Building " + buildingNumber + " is already present!");
+    }
+}
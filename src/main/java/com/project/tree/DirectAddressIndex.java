@@ -0,0 +1,248 @@
+package main.java.com.project.tree;
+
+import com.project.bean.BuildingStore;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Index which finds a building from its building number in O(1) when the building numbers are dense, next to an
+ * ordered index which answers the range queries. The slots of the buildings are kept in pages of {@link #PAGE_SIZE}
+ * entries indexed by the building number, and a page is only allocated once it holds a building and is freed once it
+ * is empty again.
+ * <p>
+ * When the numbering is sparse the pages would take far more memory than the buildings, so as soon as they would
+ * take more than {@link #INTS_PER_BUILDING} ints per building the pages are dropped and the lookups go to the ordered
+ * index. Whether the numbering became dense again is checked every time the number of buildings doubled, with one
+ * walk over the ordered index, which costs O(1) per insert on average.
+ */
+public class DirectAddressIndex implements BuildingIndex {
+    private static final int PAGE_SHIFT = 12;
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    /**
+     * The number of ints which the pages and the directory may take per building.
+     */
+    private static final long INTS_PER_BUILDING = 16;
+    /**
+     * The number of ints which the pages and the directory may always take, so that a small city always has them.
+     */
+    private static final long MIN_BUDGET = 1 << 18;
+    private final BuildingStore store;
+    /**
+     * The index which holds all the buildings in the order of their building numbers.
+     */
+    private final BuildingIndex ordered;
+    /**
+     * The pages indexed by the building number divided by the page size, {@code null} for the pages without a
+     * building. The whole directory is {@code null} while the numbering is sparse.
+     */
+    private int[][] pages;
+    /**
+     * The number of buildings in every page.
+     */
+    private int[] pageCounts;
+    /**
+     * The number of pages which are allocated.
+     */
+    private int pageCount;
+    /**
+     * The number of buildings in the index.
+     */
+    private int size;
+    /**
+     * The number of buildings at which the density is checked again while the numbering is sparse.
+     */
+    private int nextCheck;
+
+    /**
+     * Initialises an empty index in front of an empty ordered index.
+     *
+     * @param store   the store which holds the buildings.
+     * @param ordered the empty index which gives the buildings in order.
+     */
+    public DirectAddressIndex(BuildingStore store, BuildingIndex ordered) {
+        this.store = store;
+        this.ordered = ordered;
+        pages = new int[16][];
+        pageCounts = new int[16];
+    }
+
+    @Override
+    public void addBuilding(int slot) throws Exception {
+        ordered.addBuilding(slot);
+        size++;
+        if (pages != null) {
+            if (!put(slot)) {
+                goSparse();
+            }
+        } else if (size >= nextCheck) {
+            tryDirect();
+        }
+    }
+
+    @Override
+    public void addBuildings(int[] slots, int count) throws Exception {
+        ordered.addBuildings(slots, count);
+        size += count;
+        if (pages != null) {
+            for (int i = 0; i < count; i++) {
+                if (!put(slots[i])) {
+                    goSparse();
+                    return;
+                }
+            }
+        } else if (size >= nextCheck) {
+            tryDirect();
+        }
+    }
+
+    @Override
+    public void updateBuilding(int slot) {
+        ordered.updateBuilding(slot);
+    }
+
+    @Override
+    public void removeBuilding(int slot) {
+        int buildingNumber = store.getBuildingNumber(slot);
+        if (pages == null) {
+            if (ordered.searchBuilding(buildingNumber) == slot) {
+                ordered.removeBuilding(slot);
+                size--;
+            }
+            return;
+        }
+        int page = buildingNumber >>> PAGE_SHIFT;
+        if (page >= pages.length || pages[page] == null || pages[page][buildingNumber & PAGE_MASK] != slot) {
+            //the building is not in the index.
+            return;
+        }
+        ordered.removeBuilding(slot);
+        size--;
+        pages[page][buildingNumber & PAGE_MASK] = BuildingStore.NO_SLOT;
+        if (--pageCounts[page] == 0) {
+            pages[page] = null;
+            pageCount--;
+        }
+        if (!withinBudget(pages.length, pageCount)) {
+            //the buildings which are left are spread too thin over the pages.
+            goSparse();
+        }
+    }
+
+    @Override
+    public int searchBuilding(int buildingNumber) {
+        int[][] directory = pages;
+        if (directory == null) {
+            return ordered.searchBuilding(buildingNumber);
+        }
+        //a negative building number has a page beyond the directory, since the directory only holds positive ones.
+        int page = buildingNumber >>> PAGE_SHIFT;
+        if (page >= directory.length || directory[page] == null) {
+            return BuildingStore.NO_SLOT;
+        }
+        return directory[page][buildingNumber & PAGE_MASK];
+    }
+
+    @Override
+    public void forEachInRange(int start, int end, IntConsumer visitor) {
+        ordered.forEachInRange(start, end, visitor);
+    }
+
+    /**
+     * @return Returns whether the lookups are answered by the pages instead of the ordered index.
+     */
+    boolean isDirect() {
+        return pages != null;
+    }
+
+    /**
+     * Puts the building in its page, allocating the page and growing the directory if needed.
+     *
+     * @param slot the slot of the building.
+     * @return {@code false} if the building cannot be put in a page without going over the budget.
+     */
+    private boolean put(int slot) {
+        int buildingNumber = store.getBuildingNumber(slot);
+        if (buildingNumber < 0) {
+            return false;
+        }
+        int page = buildingNumber >>> PAGE_SHIFT;
+        if (page >= pages.length) {
+            int length = Math.max(page + 1, pages.length * 2);
+            if (!withinBudget(length, pageCount + 1)) {
+                return false;
+            }
+            pages = Arrays.copyOf(pages, length);
+            pageCounts = Arrays.copyOf(pageCounts, length);
+        }
+        if (pages[page] == null) {
+            if (!withinBudget(pages.length, pageCount + 1)) {
+                return false;
+            }
+            pages[page] = newPage();
+            pageCount++;
+        }
+        pages[page][buildingNumber & PAGE_MASK] = slot;
+        pageCounts[page]++;
+        return true;
+    }
+
+    /**
+     * Drops the pages, the lookups go to the ordered index until the number of buildings doubled.
+     */
+    private void goSparse() {
+        pages = null;
+        pageCounts = null;
+        pageCount = 0;
+        nextCheck = Math.max(size, 1) * 2;
+    }
+
+    /**
+     * Builds the pages from the ordered index if the numbering is dense enough.
+     */
+    private void tryDirect() {
+        //count the pages which the buildings need, the building numbers come in increasing order.
+        int[] needed = {-1, 0, 0};
+        ordered.forEachInRange(Integer.MIN_VALUE, Integer.MAX_VALUE, slot -> {
+            int buildingNumber = store.getBuildingNumber(slot);
+            if (buildingNumber < 0) {
+                needed[2] = 1;
+                return;
+            }
+            int page = buildingNumber >>> PAGE_SHIFT;
+            if (page != needed[0]) {
+                needed[0] = page;
+                needed[1]++;
+            }
+        });
+        int length = Math.max(needed[0] + 1, 16);
+        if (needed[2] != 0 || !withinBudget(length, needed[1])) {
+            nextCheck = size * 2;
+            return;
+        }
+        pages = new int[length][];
+        pageCounts = new int[length];
+        ordered.forEachInRange(Integer.MIN_VALUE, Integer.MAX_VALUE, this::put);
+    }
+
+    /**
+     * Tells whether a directory and pages of the sizes take at most the memory allowed for the buildings.
+     *
+     * @param directoryLength the length of the directory.
+     * @param pageCount       the number of pages.
+     * @return {@code true} if they fit in the budget.
+     */
+    private boolean withinBudget(int directoryLength, int pageCount) {
+        return directoryLength + (long) pageCount * PAGE_SIZE <= Math.max(MIN_BUDGET, size * INTS_PER_BUILDING);
+    }
+
+    /**
+     * @return Returns a page without any building.
+     */
+    private static int[] newPage() {
+        int[] page = new int[PAGE_SIZE];
+        Arrays.fill(page, BuildingStore.NO_SLOT);
+        return page;
+    }
+}
@@ -0,0 +1,8 @@
+package main.java.com.project.tree;
+
+/**
+ * Enum that represent the color of the node.
+ */
+enum NodeColor {
+    RED, BLACK;
+}
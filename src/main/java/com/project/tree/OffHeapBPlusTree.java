@@ -0,0 +1,644 @@
+package main.java.com.project.tree;
+
+import com.project.bean.BuildingStore;
+import com.project.offheap.OffHeapInts;
+
+import java.io.Closeable;
+import java.util.function.IntConsumer;
+
+/**
+ * The {@link BPlusTree} with its nodes kept outside of the java heap. Every node is a block of {@link #BLOCK_SIZE} ints
+ * in one {@link OffHeapInts}, and a node is referred to by the index of its block, so the tree holds no java object
+ * per node at all. The blocks of the nodes which are removed go to a free list and are reused by the next split.
+ * <p>
+ * A block starts with the number of keys or children of the node and, for a leaf, the links to the next and the
+ * previous leaves. Whether a block is a leaf follows from its depth, since all the leaves are at the same depth.
+ * Removals are relaxed as in {@link BPlusTree}.
+ */
+public class OffHeapBPlusTree implements BuildingIndex, Closeable {
+    private static final int LEAF_CAPACITY = 64;
+    private static final int INNER_CAPACITY = 64;
+    private static final int MAX_HEIGHT = 32;
+    /**
+     * The offsets in a block of the number of keys of a leaf, or of children of an inner node, and of the links of a
+     * leaf to its neighbours, which also chain the free blocks.
+     */
+    private static final int COUNT = 0;
+    private static final int NEXT = 1;
+    private static final int PREVIOUS = 2;
+    /**
+     * The offset of the keys, with one spare entry for the key which makes the node split.
+     */
+    private static final int KEYS = 3;
+    /**
+     * The offset of the slots of a leaf.
+     */
+    private static final int SLOTS = KEYS + LEAF_CAPACITY + 1;
+    /**
+     * The offset of the children of an inner node, which has one key less than children.
+     */
+    private static final int CHILDREN = KEYS + INNER_CAPACITY;
+    private static final int BLOCK_SIZE = Math.max(SLOTS + LEAF_CAPACITY + 1, CHILDREN + INNER_CAPACITY + 1);
+    /**
+     * The node which stands for a missing leaf or the end of the free list.
+     */
+    private static final int NO_NODE = -1;
+    private final BuildingStore store;
+    private final OffHeapInts blocks = new OffHeapInts();
+    /**
+     * The number of blocks which have ever been handed out.
+     */
+    private int blockCount;
+    /**
+     * The first block of the free list.
+     */
+    private int freeList = NO_NODE;
+    private int root;
+    /**
+     * The number of levels of the tree, 1 when the root is a leaf.
+     */
+    private int height;
+    private int size;
+    /**
+     * Flag which tells whether other threads read the tree without a lock, see {@link #shareWithReaders()}.
+     */
+    private volatile boolean sharedWithReaders;
+    private final int[] pathNodes = new int[MAX_HEIGHT];
+    private final int[] pathIndexes = new int[MAX_HEIGHT];
+    private int pathLength;
+
+    public OffHeapBPlusTree(BuildingStore store) {
+        this.store = store;
+        root = allocateNode();
+        height = 1;
+    }
+
+    @Override
+    public void addBuilding(int slot) throws Exception {
+        int buildingNumber = store.getBuildingNumber(slot);
+        int node = findLeaf(buildingNumber);
+        int leaf = base(node);
+        int count = blocks.get(leaf + COUNT);
+        int index = lowerBound(leaf + KEYS, count, buildingNumber);
+        if (index < count && blocks.get(leaf + KEYS + index) == buildingNumber) {
+            throw BulkLoad.alreadyPresent(buildingNumber);
+        }
+        blocks.copy(leaf + KEYS + index, leaf + KEYS + index + 1, count - index);
+        blocks.copy(leaf + SLOTS + index, leaf + SLOTS + index + 1, count - index);
+        blocks.set(leaf + KEYS + index, buildingNumber);
+        blocks.set(leaf + SLOTS + index, slot);
+        blocks.set(leaf + COUNT, ++count);
+        size++;
+        if (count > LEAF_CAPACITY) {
+            splitLeaf(node);
+        }
+    }
+
+    /**
+     * {@inheritDoc} A batch whose buildings all come after those of the tree, as the batches of a restore do, fills the
+     * last leaf and then new full leaves. Any other batch which is at least as large as the tree is merged with the
+     * chain of leaves straight into new full leaves, from which the tree is rebuilt bottom up in linear time. Neither
+     * copies the buildings of the tree to the java heap.
+     */
+    @Override
+    public void addBuildings(int[] slots, int count) throws Exception {
+        if (count == 0) {
+            return;
+        }
+        int last = findLeaf(Integer.MAX_VALUE);
+        int lastCount = blocks.get(base(last) + COUNT);
+        //only the root leaf of an empty tree is ever empty.
+        if (lastCount == 0
+                || blocks.get(base(last) + KEYS + lastCount - 1) < store.getBuildingNumber(slots[0])) {
+            BulkLoad.checkSorted(store, slots, count);
+            append(last, slots, count);
+            return;
+        }
+        if (count < size) {
+            //a small batch is cheaper to add one building at a time.
+            for (int i = 0; i < count; i++) {
+                addBuilding(slots[i]);
+            }
+            return;
+        }
+        BulkLoad.checkSorted(store, slots, count);
+        int firstBlock = blockCount;
+        int freeBlocks = freeList;
+        //the new nodes take blocks after all the others, so that the old leaves stay intact while they are read.
+        freeList = NO_NODE;
+        int leafCount;
+        try {
+            leafCount = rebuild(slots, count);
+        } catch (Exception e) {
+            //the batch holds a building of the tree, which is left as it was.
+            blockCount = firstBlock;
+            freeList = freeBlocks;
+            throw e;
+        }
+        relocate(firstBlock, leafCount);
+        size += count;
+    }
+
+    @Override
+    public void updateBuilding(int slot) {
+        //the tree is ordered on the building number only and keeps nothing else about the building.
+    }
+
+    @Override
+    public void removeBuilding(int slot) {
+        int buildingNumber = store.getBuildingNumber(slot);
+        int node = findLeaf(buildingNumber);
+        int leaf = base(node);
+        int count = blocks.get(leaf + COUNT);
+        int index = lowerBound(leaf + KEYS, count, buildingNumber);
+        if (index == count || blocks.get(leaf + KEYS + index) != buildingNumber) {
+            //the building is not in the tree.
+            return;
+        }
+        count--;
+        blocks.copy(leaf + KEYS + index + 1, leaf + KEYS + index, count - index);
+        blocks.copy(leaf + SLOTS + index + 1, leaf + SLOTS + index, count - index);
+        blocks.set(leaf + COUNT, count);
+        size--;
+        if (count == 0 && node != root) {
+            //the empty leaf leaves the chain of leaves and its parent.
+            int previous = blocks.get(leaf + PREVIOUS);
+            int next = blocks.get(leaf + NEXT);
+            if (previous != NO_NODE) {
+                blocks.set(base(previous) + NEXT, next);
+            }
+            if (next != NO_NODE) {
+                blocks.set(base(next) + PREVIOUS, previous);
+            }
+            freeNode(node);
+            removeChild(pathLength - 1);
+        }
+    }
+
+    @Override
+    public int searchBuilding(int buildingNumber) {
+        int leaf = base(descend(buildingNumber));
+        int count = blocks.get(leaf + COUNT);
+        int index = lowerBound(leaf + KEYS, count, buildingNumber);
+        if (index < count && blocks.get(leaf + KEYS + index) == buildingNumber) {
+            return blocks.get(leaf + SLOTS + index);
+        }
+        return BuildingStore.NO_SLOT;
+    }
+
+    @Override
+    public void forEachInRange(int start, int end, IntConsumer visitor) {
+        int node = descend(start);
+        int index = lowerBound(base(node) + KEYS, blocks.get(base(node) + COUNT), start);
+        //only the first leaf may be passed without visiting a building, see BPlusTree#forEachInRange.
+        int passed = 0;
+        while (node != NO_NODE && passed < MAX_HEIGHT) {
+            int leaf = base(node);
+            int count = blocks.get(leaf + COUNT);
+            passed = index < count ? 0 : passed + 1;
+            for (; index < count; index++) {
+                if (blocks.get(leaf + KEYS + index) > end) {
+                    return;
+                }
+                visitor.accept(blocks.get(leaf + SLOTS + index));
+            }
+            node = blocks.get(leaf + NEXT);
+            index = 0;
+        }
+    }
+
+    /**
+     * Tells the tree that other threads read it without a lock, as the {@code CityQueries} do, and fail to validate
+     * when it changed in the meantime. Such a read may still hold a chunk of the blocks after a rebuild of the tree, so
+     * from then on the chunks which a rebuild leaves over are kept for the next blocks instead of being freed, as their
+     * memory would otherwise be read before the read fails to validate. They are only freed by {@link #close()}.
+     */
+    public void shareWithReaders() {
+        sharedWithReaders = true;
+    }
+
+    /**
+     * Frees the blocks of the tree, the tree is empty afterwards and cannot be used any more. No other thread may read
+     * the tree any more, see {@link #shareWithReaders()}.
+     */
+    @Override
+    public void close() {
+        blocks.close();
+        blockCount = 0;
+        freeList = NO_NODE;
+        size = 0;
+    }
+
+    /**
+     * @return Returns the number of levels of the tree, 1 for a tree which is a single leaf.
+     */
+    int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return Returns the number of blocks which have been handed out, those on the free list included.
+     */
+    int getBlockCount() {
+        return blockCount;
+    }
+
+    /**
+     * @return Returns the number of ints which the chunks of the blocks hold, those which are not handed out included.
+     */
+    long getCapacity() {
+        return blocks.capacity();
+    }
+
+    /**
+     * Returns the leaf which holds the building number if it is in the tree.
+     *
+     * @param buildingNumber the building number.
+     * @return the leaf.
+     */
+    private int descend(int buildingNumber) {
+        int node = root;
+        for (int level = 1; level < height; level++) {
+            int inner = base(node);
+            node = blocks.get(inner + CHILDREN + upperBound(inner + KEYS, blocks.get(inner + COUNT) - 1,
+                    buildingNumber));
+        }
+        return node;
+    }
+
+    /**
+     * Finds the leaf which holds the building number if it is in the tree, and remembers the path to it.
+     *
+     * @param buildingNumber the building number.
+     * @return the leaf.
+     */
+    private int findLeaf(int buildingNumber) {
+        pathLength = 0;
+        int node = root;
+        for (int level = 1; level < height; level++) {
+            int inner = base(node);
+            int index = upperBound(inner + KEYS, blocks.get(inner + COUNT) - 1, buildingNumber);
+            pathNodes[pathLength] = node;
+            pathIndexes[pathLength] = index;
+            pathLength++;
+            node = blocks.get(inner + CHILDREN + index);
+        }
+        return node;
+    }
+
+    /**
+     * Splits the leaf which overflowed in two halves and adds the new half to its parent.
+     *
+     * @param node the leaf, the last leaf found by {@link #findLeaf(int)}.
+     */
+    private void splitLeaf(int node) {
+        int rightNode = allocateNode();
+        int leaf = base(node);
+        int right = base(rightNode);
+        int count = blocks.get(leaf + COUNT);
+        int half = count >>> 1;
+        copyBetween(leaf + KEYS + half, right + KEYS, count - half);
+        copyBetween(leaf + SLOTS + half, right + SLOTS, count - half);
+        blocks.set(right + COUNT, count - half);
+        blocks.set(leaf + COUNT, half);
+        int next = blocks.get(leaf + NEXT);
+        blocks.set(right + NEXT, next);
+        blocks.set(right + PREVIOUS, node);
+        if (next != NO_NODE) {
+            blocks.set(base(next) + PREVIOUS, rightNode);
+        }
+        blocks.set(leaf + NEXT, rightNode);
+        insertChild(pathLength - 1, blocks.get(right + KEYS), rightNode);
+    }
+
+    /**
+     * Adds a new child right after the child taken by the path at the level, splitting the inner nodes which overflow
+     * on the way up.
+     *
+     * @param level     the level of the path of the parent, -1 if the split node is the root.
+     * @param separator the smallest building number of the new child.
+     * @param child     the new child.
+     */
+    private void insertChild(int level, int separator, int child) {
+        while (level >= 0) {
+            int parent = base(pathNodes[level]);
+            int index = pathIndexes[level] + 1;
+            int count = blocks.get(parent + COUNT);
+            blocks.copy(parent + KEYS + index - 1, parent + KEYS + index, count - index);
+            blocks.copy(parent + CHILDREN + index, parent + CHILDREN + index + 1, count - index);
+            blocks.set(parent + KEYS + index - 1, separator);
+            blocks.set(parent + CHILDREN + index, child);
+            blocks.set(parent + COUNT, ++count);
+            if (count <= INNER_CAPACITY) {
+                return;
+            }
+            //the parent overflowed, its upper half becomes the new child of the level above.
+            int rightNode = allocateNode();
+            int right = base(rightNode);
+            int half = count >>> 1;
+            copyBetween(parent + CHILDREN + half, right + CHILDREN, count - half);
+            copyBetween(parent + KEYS + half, right + KEYS, count - half - 1);
+            blocks.set(right + COUNT, count - half);
+            blocks.set(parent + COUNT, half);
+            separator = blocks.get(parent + KEYS + half - 1);
+            child = rightNode;
+            level--;
+        }
+        //the root split, so the tree grows one level.
+        int newRoot = allocateNode();
+        int inner = base(newRoot);
+        blocks.set(inner + CHILDREN, root);
+        blocks.set(inner + CHILDREN + 1, child);
+        blocks.set(inner + KEYS, separator);
+        blocks.set(inner + COUNT, 2);
+        root = newRoot;
+        height++;
+    }
+
+    /**
+     * Removes the child taken by the path at the level, and the inner nodes which are left without children on the way
+     * up. A root with a single child is replaced by the child.
+     *
+     * @param level the level of the path of the parent of the child.
+     */
+    private void removeChild(int level) {
+        while (level >= 0) {
+            int parent = base(pathNodes[level]);
+            int index = pathIndexes[level];
+            int count = blocks.get(parent + COUNT) - 1;
+            blocks.set(parent + COUNT, count);
+            if (count > 0) {
+                //the separator before the child goes with it, or the one after it for the first child.
+                int key = Math.max(index - 1, 0);
+                blocks.copy(parent + KEYS + key + 1, parent + KEYS + key, count - 1 - key);
+                blocks.copy(parent + CHILDREN + index + 1, parent + CHILDREN + index, count - index);
+                break;
+            }
+            freeNode(pathNodes[level]);
+            level--;
+        }
+        if (level < 0) {
+            //every leaf was removed.
+            root = allocateNode();
+            height = 1;
+            return;
+        }
+        while (height > 1 && blocks.get(base(root) + COUNT) == 1) {
+            int child = blocks.get(base(root) + CHILDREN);
+            freeNode(root);
+            root = child;
+            height--;
+        }
+    }
+
+    /**
+     * Adds buildings after the last one of the tree, filling the last leaf and then new leaves to the full.
+     *
+     * @param node  the last leaf, the last leaf found by {@link #findLeaf(int)}.
+     * @param slots the slots of the buildings in increasing order of the building number.
+     * @param count the number of slots.
+     */
+    private void append(int node, int[] slots, int count) {
+        int leaf = base(node);
+        int keys = blocks.get(leaf + COUNT);
+        for (int i = 0; i < count; i++) {
+            int buildingNumber = store.getBuildingNumber(slots[i]);
+            if (keys == LEAF_CAPACITY) {
+                blocks.set(leaf + COUNT, keys);
+                int next = allocateNode();
+                blocks.set(base(next) + PREVIOUS, node);
+                blocks.set(leaf + NEXT, next);
+                insertChild(pathLength - 1, buildingNumber, next);
+                //the parents may have split, so the path to the new last leaf is found again.
+                node = findLeaf(buildingNumber);
+                leaf = base(node);
+                keys = 0;
+            }
+            blocks.set(leaf + KEYS + keys, buildingNumber);
+            blocks.set(leaf + SLOTS + keys, slots[i]);
+            keys++;
+        }
+        blocks.set(leaf + COUNT, keys);
+        size += count;
+    }
+
+    /**
+     * Merges the leaves of the tree with a batch into new full leaves, and builds new full inner nodes bottom up over
+     * them. The new nodes take consecutive blocks after all the others, the leaves first and then every level of inner
+     * nodes in turn.
+     *
+     * @param slots the slots of the new buildings in increasing order of the building number.
+     * @param count the number of slots.
+     * @return the number of leaves.
+     * @throws Exception if a building of the batch is already in the tree.
+     */
+    private int rebuild(int[] slots, int count) throws Exception {
+        int total = size + count;
+        int leafCount = (total + LEAF_CAPACITY - 1) / LEAF_CAPACITY;
+        int firstLeaf = blockCount;
+        int oldNode = descend(Integer.MIN_VALUE);
+        int oldIndex = 0;
+        int next = 0;
+        int previous = NO_NODE;
+        int from = 0;
+        for (int i = 0; i < leafCount; i++) {
+            //spread the buildings evenly so that the last leaf is not nearly empty.
+            int to = (int) ((long) total * (i + 1) / leafCount);
+            int node = allocateNode();
+            int leaf = base(node);
+            for (int k = 0; k < to - from; k++) {
+                while (oldNode != NO_NODE && oldIndex == blocks.get(base(oldNode) + COUNT)) {
+                    oldNode = blocks.get(base(oldNode) + NEXT);
+                    oldIndex = 0;
+                }
+                int oldNumber = oldNode == NO_NODE ? 0 : blocks.get(base(oldNode) + KEYS + oldIndex);
+                int newNumber = next == count ? 0 : store.getBuildingNumber(slots[next]);
+                if (next == count || oldNode != NO_NODE && oldNumber < newNumber) {
+                    blocks.set(leaf + KEYS + k, oldNumber);
+                    blocks.set(leaf + SLOTS + k, blocks.get(base(oldNode) + SLOTS + oldIndex++));
+                } else if (oldNode == NO_NODE || oldNumber > newNumber) {
+                    blocks.set(leaf + KEYS + k, newNumber);
+                    blocks.set(leaf + SLOTS + k, slots[next++]);
+                } else {
+                    throw BulkLoad.alreadyPresent(newNumber);
+                }
+            }
+            blocks.set(leaf + COUNT, to - from);
+            blocks.set(leaf + PREVIOUS, previous);
+            if (previous != NO_NODE) {
+                blocks.set(base(previous) + NEXT, node);
+            }
+            previous = node;
+            from = to;
+        }
+        int levelFirst = firstLeaf;
+        int levelCount = leafCount;
+        height = 1;
+        while (levelCount > 1) {
+            int parentFirst = blockCount;
+            int parentCount = (levelCount + INNER_CAPACITY - 1) / INNER_CAPACITY;
+            from = 0;
+            for (int i = 0; i < parentCount; i++) {
+                int to = (int) ((long) levelCount * (i + 1) / parentCount);
+                int inner = base(allocateNode());
+                for (int j = from; j < to; j++) {
+                    blocks.set(inner + CHILDREN + j - from, levelFirst + j);
+                    if (j > from) {
+                        blocks.set(inner + KEYS + j - from - 1, lowestKey(levelFirst + j, height));
+                    }
+                }
+                blocks.set(inner + COUNT, to - from);
+                from = to;
+            }
+            levelFirst = parentFirst;
+            levelCount = parentCount;
+            height++;
+        }
+        root = levelFirst;
+        return leafCount;
+    }
+
+    /**
+     * Moves the blocks of the tree rebuilt by {@link #rebuild(int[], int)} down to the first block, over the blocks of
+     * the old tree, and frees the chunks which are left over unless other threads read the tree.
+     *
+     * @param firstBlock the first block of the rebuilt tree.
+     * @param leafCount  the number of leaves of the rebuilt tree, whose blocks come first.
+     */
+    private void relocate(int firstBlock, int leafCount) {
+        int blockTotal = blockCount - firstBlock;
+        for (int node = 0; node < blockTotal; node++) {
+            int block = base(node);
+            blocks.copy(base(node + firstBlock), block, BLOCK_SIZE);
+            if (node < leafCount) {
+                for (int link = NEXT; link <= PREVIOUS; link++) {
+                    if (blocks.get(block + link) != NO_NODE) {
+                        blocks.set(block + link, blocks.get(block + link) - firstBlock);
+                    }
+                }
+            } else {
+                for (int i = blocks.get(block + COUNT) - 1; i >= 0; i--) {
+                    blocks.set(block + CHILDREN + i, blocks.get(block + CHILDREN + i) - firstBlock);
+                }
+            }
+        }
+        root -= firstBlock;
+        blockCount = blockTotal;
+        freeList = NO_NODE;
+        if (!sharedWithReaders) {
+            blocks.shrink((long) blockCount * BLOCK_SIZE);
+        }
+    }
+
+    /**
+     * @param node   the node.
+     * @param levels the number of levels of the sub tree of the node, 1 for a leaf.
+     * @return Returns the smallest building number in the sub tree of the node.
+     */
+    private int lowestKey(int node, int levels) {
+        for (int level = 1; level < levels; level++) {
+            node = blocks.get(base(node) + CHILDREN);
+        }
+        return blocks.get(base(node) + KEYS);
+    }
+
+    /**
+     * Hands out a block for a new node, from the free list or after the blocks handed out so far.
+     *
+     * @return the node, without any key and without neighbours.
+     */
+    private int allocateNode() {
+        int node;
+        if (freeList != NO_NODE) {
+            node = freeList;
+            freeList = blocks.get(base(node) + NEXT);
+        } else {
+            if ((long) (blockCount + 1) * BLOCK_SIZE > Integer.MAX_VALUE) {
+                throw new IllegalStateException("The off heap tree cannot hold more than " + blockCount + " nodes");
+            }
+            node = blockCount++;
+            blocks.ensureCapacity((long) blockCount * BLOCK_SIZE);
+        }
+        int block = base(node);
+        blocks.set(block + COUNT, 0);
+        blocks.set(block + NEXT, NO_NODE);
+        blocks.set(block + PREVIOUS, NO_NODE);
+        return node;
+    }
+
+    /**
+     * Puts the block of the node on the free list.
+     *
+     * @param node the node which was removed from the tree.
+     */
+    private void freeNode(int node) {
+        blocks.set(base(node) + NEXT, freeList);
+        freeList = node;
+    }
+
+    /**
+     * Copies ints from one block to another one.
+     *
+     * @param from   the index of the first int to copy.
+     * @param to     the index where the first int is copied, in another block.
+     * @param length the number of ints to copy.
+     */
+    private void copyBetween(int from, int to, int length) {
+        for (int i = 0; i < length; i++) {
+            blocks.set(to + i, blocks.get(from + i));
+        }
+    }
+
+    /**
+     * @param node the node.
+     * @return Returns the index in {@link #blocks} of the first int of the block of the node.
+     */
+    private static int base(int node) {
+        return node * BLOCK_SIZE;
+    }
+
+    /**
+     * Returns the index of the first key which is greater than or equal to the key.
+     *
+     * @param from  the index in {@link #blocks} of the first key.
+     * @param count the number of keys.
+     * @param key   the key.
+     * @return the index from the first key, {@code count} if all the keys are smaller.
+     */
+    private int lowerBound(int from, int count, int key) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (blocks.get(from + middle) < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the index of the first key which is greater than the key, which is the index of the child of an inner
+     * node which covers the key.
+     *
+     * @param from  the index in {@link #blocks} of the first key.
+     * @param count the number of keys.
+     * @param key   the key.
+     * @return the index from the first key, {@code count} if all the keys are smaller or equal.
+     */
+    private int upperBound(int from, int count, int key) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (blocks.get(from + middle) <= key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
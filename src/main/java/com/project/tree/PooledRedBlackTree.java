@@ -0,0 +1,576 @@
+package main.java.com.project.tree;
+
+import com.project.bean.BuildingStore;
+import com.project.metrics.Metrics;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Red black tree which keeps its nodes in pooled primitive arrays instead of {@link TreeNode} objects. A node is an
+ * index into the arrays which hold the left child, the right child, the parent, the key and the slot of every node,
+ * and the color of a node is a bit in {@code redBits}. The nodes of removed buildings go to a free list and are reused
+ * by the next insert, so inserting and removing buildings creates no garbage.
+ * <p>
+ * Index {@link #NIL} is a black sentinel which stands for every missing child and the parent of the root.
+ */
+public class PooledRedBlackTree implements BuildingIndex {
+    /**
+     * The initial number of nodes in the pool. The pool doubles its capacity whenever it is full.
+     */
+    private static final int INITIAL_CAPACITY = 64;
+    /**
+     * The sentinel node.
+     */
+    private static final int NIL = 0;
+    /**
+     * The depth after which the walks give up, see {@link RedBackTree#MAX_DEPTH}. The nodes of removed buildings are
+     * reused, so links torn by a change in progress may even run in a cycle.
+     */
+    private static final int MAX_DEPTH = RedBackTree.MAX_DEPTH;
+    /**
+     * The store which holds the buildings whose slots are kept in the tree.
+     */
+    private final BuildingStore store;
+    private int[] leftChild;
+    private int[] rightChild;
+    private int[] parent;
+    /**
+     * The building number of the building of every node.
+     */
+    private int[] keys;
+    /**
+     * The slot of the building of every node.
+     */
+    private int[] slots;
+    /**
+     * One bit per node which is set if the node is red.
+     */
+    private long[] redBits;
+    private int root;
+    /**
+     * The first node of the free list. The free nodes are chained through {@code leftChild}.
+     */
+    private int freeList;
+    /**
+     * The number of nodes which have ever been handed out, including the sentinel.
+     */
+    private int highWaterMark;
+    /**
+     * The number of buildings in the tree.
+     */
+    private int size;
+
+    public PooledRedBlackTree(BuildingStore store) {
+        this(store, INITIAL_CAPACITY);
+    }
+
+    /**
+     * Initialises the tree so that it can hold {@code capacity} buildings before the pool needs to grow.
+     *
+     * @param store    the store which holds the buildings.
+     * @param capacity the number of buildings the tree can hold before growing.
+     */
+    public PooledRedBlackTree(BuildingStore store, int capacity) {
+        this.store = store;
+        capacity = Math.max(capacity, 1) + 1;
+        leftChild = new int[capacity];
+        rightChild = new int[capacity];
+        parent = new int[capacity];
+        keys = new int[capacity];
+        slots = new int[capacity];
+        redBits = new long[(capacity + 63) >>> 6];
+        root = NIL;
+        freeList = NIL;
+        highWaterMark = 1;
+        size = 0;
+    }
+
+    @Override
+    public void addBuilding(int slot) throws Exception {
+        int buildingNumber = store.getBuildingNumber(slot);
+        int x = root;
+        int y = NIL;
+        while (x != NIL) {
+            y = x;
+            if (buildingNumber < keys[x]) {
+                x = leftChild[x];
+            } else if (buildingNumber > keys[x]) {
+                x = rightChild[x];
+            } else {
+                //if the building is already present in the red black tree, then throw exception.
+                throw new Exception("com.project.bean.Building " + buildingNumber + " is already present!");
+            }
+        }
+        int node = allocateNode();
+        keys[node] = buildingNumber;
+        slots[node] = slot;
+        leftChild[node] = NIL;
+        rightChild[node] = NIL;
+        parent[node] = y;
+        setRed(node, true);
+        if (y == NIL) {
+            //if the red black tree is empty.
+            root = node;
+        } else if (buildingNumber < keys[y]) {
+            leftChild[y] = node;
+        } else {
+            rightChild[y] = node;
+        }
+        balanceAfterInsert(node);
+        size++;
+    }
+
+    /**
+     * Adds a batch of buildings. A batch which is at least as large as the tree is merged with the buildings of the
+     * tree and the whole pool is rebuilt in linear time, with the nodes in increasing order of the building number so
+     * that walking a range reads the arrays in order, see {@link BulkLoad}.
+     *
+     * @param slots the slots of the buildings which are to be added, in increasing order of the building number.
+     * @param count the number of slots in the batch.
+     * @throws Exception if a building with the same building number is already present, or is twice in the batch.
+     */
+    @Override
+    public void addBuildings(int[] slots, int count) throws Exception {
+        if (count < size) {
+            //a small batch is cheaper to add one building at a time.
+            for (int i = 0; i < count; i++) {
+                addBuilding(slots[i]);
+            }
+            return;
+        }
+        int[] existing = new int[size];
+        int existingCount = 0;
+        for (int node = ceilingNode(Integer.MIN_VALUE); node != NIL; node = successor(node)) {
+            existing[existingCount++] = this.slots[node];
+        }
+        int[] merged = BulkLoad.merge(store, existing, existingCount, slots, count);
+        //every node of the pool is handed out again, the free list is not needed any more.
+        while (keys.length <= merged.length) {
+            grow();
+        }
+        Arrays.fill(redBits, 0L);
+        freeList = NIL;
+        highWaterMark = merged.length + 1;
+        for (int i = 0; i < merged.length; i++) {
+            keys[i + 1] = store.getBuildingNumber(merged[i]);
+            this.slots[i + 1] = merged[i];
+        }
+        root = merged.length == 0 ? NIL : buildBalanced(1, merged.length, NIL, 0, BulkLoad.redDepth(merged.length));
+        size = merged.length;
+    }
+
+    @Override
+    public void updateBuilding(int slot) {
+        //the tree is ordered on the building number only and keeps nothing else about the building.
+    }
+
+    @Override
+    public void removeBuilding(int slot) {
+        int node = searchNode(store.getBuildingNumber(slot));
+        if (node != NIL) {
+            //if the building is present in the tree then delete the node.
+            removeNode(node);
+            freeNode(node);
+            size--;
+        }
+    }
+
+    @Override
+    public int searchBuilding(int buildingNumber) {
+        int node = searchNode(buildingNumber);
+        return node == NIL ? BuildingStore.NO_SLOT : slots[node];
+    }
+
+    @Override
+    public void forEachInRange(int start, int end, IntConsumer visitor) {
+        int node = ceilingNode(start);
+        while (node != NIL && keys[node] <= end) {
+            visitor.accept(slots[node]);
+            node = successor(node);
+        }
+    }
+
+    /**
+     * Returns the node of the building.
+     *
+     * @param buildingNumber the number of building which is to be searched.
+     * @return the node, or {@link #NIL} if the building is not in the tree.
+     */
+    private int searchNode(int buildingNumber) {
+        int node = root;
+        int depth = 0;
+        while (node != NIL) {
+            if (++depth > MAX_DEPTH) {
+                //the links were torn by a change in progress.
+                node = NIL;
+                break;
+            }
+            if (buildingNumber < keys[node]) {
+                node = leftChild[node];
+            } else if (buildingNumber > keys[node]) {
+                node = rightChild[node];
+            } else {
+                break;
+            }
+        }
+        if (Metrics.ENABLED) {
+            Metrics.TREE_SEARCH_DEPTH.record(depth);
+        }
+        return node;
+    }
+
+    /**
+     * Returns the node with the smallest building number which is greater than or equal to the building number.
+     *
+     * @param buildingNumber the building number.
+     * @return the node, or {@link #NIL} if all the buildings have smaller building numbers.
+     */
+    private int ceilingNode(int buildingNumber) {
+        int node = root;
+        int ceiling = NIL;
+        for (int depth = 0; node != NIL; depth++) {
+            if (depth == MAX_DEPTH) {
+                return NIL;
+            }
+            if (buildingNumber < keys[node]) {
+                ceiling = node;
+                node = leftChild[node];
+            } else if (buildingNumber > keys[node]) {
+                node = rightChild[node];
+            } else {
+                return node;
+            }
+        }
+        return ceiling;
+    }
+
+    /**
+     * Returns the node which comes after the node in the increasing order of the building numbers.
+     *
+     * @param node the node whose successor is to be found.
+     * @return the successor of the node, or {@link #NIL} if the node has the largest building number.
+     */
+    private int successor(int node) {
+        if (rightChild[node] != NIL) {
+            return minimum(rightChild[node]);
+        }
+        int p = parent[node];
+        for (int depth = 0; p != NIL && node == rightChild[p]; depth++) {
+            if (depth == MAX_DEPTH) {
+                return NIL;
+            }
+            node = p;
+            p = parent[p];
+        }
+        return p;
+    }
+
+    /**
+     * Returns the node with the smallest building number in the sub tree of the node.
+     *
+     * @param node the root of the sub tree.
+     * @return the left most node of the sub tree.
+     */
+    private int minimum(int node) {
+        for (int depth = 0; leftChild[node] != NIL; depth++) {
+            if (depth == MAX_DEPTH) {
+                return NIL;
+            }
+            node = leftChild[node];
+        }
+        return node;
+    }
+
+    /**
+     * Removes the node from the tree and re-balances the tree.
+     *
+     * @param node the node which needs to be removed.
+     */
+    private void removeNode(int node) {
+        int replacement = node;
+        boolean replacementWasRed = isRed(replacement);
+        int child;
+        if (leftChild[node] == NIL) {
+            child = rightChild[node];
+            transplant(node, child);
+        } else if (rightChild[node] == NIL) {
+            child = leftChild[node];
+            transplant(node, child);
+        } else {
+            //case wherein degree two node is to be removed, the node is replaced by its successor.
+            replacement = minimum(rightChild[node]);
+            replacementWasRed = isRed(replacement);
+            child = rightChild[replacement];
+            if (parent[replacement] == node) {
+                //the sentinel may be the child, its parent is needed while balancing.
+                parent[child] = replacement;
+            } else {
+                transplant(replacement, child);
+                rightChild[replacement] = rightChild[node];
+                parent[rightChild[replacement]] = replacement;
+            }
+            transplant(node, replacement);
+            leftChild[replacement] = leftChild[node];
+            parent[leftChild[replacement]] = replacement;
+            setRed(replacement, isRed(node));
+        }
+        if (!replacementWasRed) {
+            //if a black node was removed then re-balance the tree.
+            balanceAfterDelete(child);
+        }
+    }
+
+    /**
+     * Puts the sub tree of {@code replacement} in the place of the sub tree of {@code node}.
+     *
+     * @param node        the node which is to be replaced.
+     * @param replacement the node which takes its place.
+     */
+    private void transplant(int node, int replacement) {
+        int p = parent[node];
+        if (p == NIL) {
+            root = replacement;
+        } else if (node == leftChild[p]) {
+            leftChild[p] = replacement;
+        } else {
+            rightChild[p] = replacement;
+        }
+        parent[replacement] = p;
+    }
+
+    /**
+     * Balance the node after insert operation is performed.
+     *
+     * @param node the node on which the balancing is to be done.
+     */
+    private void balanceAfterInsert(int node) {
+        int iterations = 0;
+        while (isRed(parent[node])) {
+            iterations++;
+            int p = parent[node];
+            int gp = parent[p];
+            if (p == leftChild[gp]) {
+                int uncle = rightChild[gp];
+                if (isRed(uncle)) {
+                    //in case the uncle node is red then flip the colors
+                    setRed(uncle, false);
+                    setRed(p, false);
+                    setRed(gp, true);
+                    node = gp;
+                    continue;
+                }
+                if (node == rightChild[p]) {
+                    node = p;
+                    rotateLeft(node);
+                    p = parent[node];
+                }
+                setRed(p, false);
+                setRed(gp, true);
+                rotateRight(gp);
+            } else {
+                int uncle = leftChild[gp];
+                if (isRed(uncle)) {
+                    //in case the uncle node is red then flip the colors
+                    setRed(uncle, false);
+                    setRed(p, false);
+                    setRed(gp, true);
+                    node = gp;
+                    continue;
+                }
+                if (node == leftChild[p]) {
+                    node = p;
+                    rotateRight(node);
+                    p = parent[node];
+                }
+                setRed(p, false);
+                setRed(gp, true);
+                rotateLeft(gp);
+            }
+        }
+        //the root node needs to be black
+        setRed(root, false);
+        if (Metrics.ENABLED) {
+            Metrics.TREE_INSERT_FIXUPS.record(iterations);
+        }
+    }
+
+    /**
+     * After deletion, the red black tree might go out of balance. This function brings the red-black tree back to balance.
+     *
+     * @param node the node which took the place of the removed node, possibly the sentinel.
+     */
+    private void balanceAfterDelete(int node) {
+        int iterations = 0;
+        while (node != root && !isRed(node)) {
+            iterations++;
+            int p = parent[node];
+            if (node == leftChild[p]) {
+                int sibling = rightChild[p];
+                if (isRed(sibling)) {
+                    setRed(sibling, false);
+                    setRed(p, true);
+                    rotateLeft(p);
+                    sibling = rightChild[p];
+                }
+                if (!isRed(leftChild[sibling]) && !isRed(rightChild[sibling])) {
+                    setRed(sibling, true);
+                    node = p;
+                } else {
+                    if (!isRed(rightChild[sibling])) {
+                        setRed(leftChild[sibling], false);
+                        setRed(sibling, true);
+                        rotateRight(sibling);
+                        sibling = rightChild[p];
+                    }
+                    setRed(sibling, isRed(p));
+                    setRed(p, false);
+                    setRed(rightChild[sibling], false);
+                    rotateLeft(p);
+                    node = root;
+                }
+            } else {
+                int sibling = leftChild[p];
+                if (isRed(sibling)) {
+                    setRed(sibling, false);
+                    setRed(p, true);
+                    rotateRight(p);
+                    sibling = leftChild[p];
+                }
+                if (!isRed(leftChild[sibling]) && !isRed(rightChild[sibling])) {
+                    setRed(sibling, true);
+                    node = p;
+                } else {
+                    if (!isRed(leftChild[sibling])) {
+                        setRed(rightChild[sibling], false);
+                        setRed(sibling, true);
+                        rotateLeft(sibling);
+                        sibling = leftChild[p];
+                    }
+                    setRed(sibling, isRed(p));
+                    setRed(p, false);
+                    setRed(leftChild[sibling], false);
+                    rotateRight(p);
+                    node = root;
+                }
+            }
+        }
+        setRed(node, false);
+        if (Metrics.ENABLED) {
+            Metrics.TREE_DELETE_FIXUPS.record(iterations);
+        }
+    }
+
+    /**
+     * Perform left rotation.
+     *
+     * @param node the node on which left rotate is to be performed.
+     */
+    private void rotateLeft(int node) {
+        int temp = rightChild[node];
+        rightChild[node] = leftChild[temp];
+        if (leftChild[temp] != NIL) {
+            parent[leftChild[temp]] = node;
+        }
+        transplant(node, temp);
+        leftChild[temp] = node;
+        parent[node] = temp;
+        if (Metrics.ENABLED) {
+            Metrics.TREE_ROTATIONS.increment();
+        }
+    }
+
+    /**
+     * Perform right rotation.
+     *
+     * @param node the node on which right rotate is to be performed.
+     */
+    private void rotateRight(int node) {
+        int temp = leftChild[node];
+        leftChild[node] = rightChild[temp];
+        if (rightChild[temp] != NIL) {
+            parent[rightChild[temp]] = node;
+        }
+        transplant(node, temp);
+        rightChild[temp] = node;
+        parent[node] = temp;
+        if (Metrics.ENABLED) {
+            Metrics.TREE_ROTATIONS.increment();
+        }
+    }
+
+    /**
+     * Links the nodes [low, high], which are already sorted, into a balanced sub tree.
+     *
+     * @param low      the first node of the sub tree.
+     * @param high     the last node of the sub tree.
+     * @param up       the parent of the sub tree.
+     * @param depth    the depth of the root of the sub tree.
+     * @param redDepth the depth of the nodes which are colored red.
+     * @return the root of the sub tree, or {@link #NIL} if the sub tree is empty.
+     */
+    private int buildBalanced(int low, int high, int up, int depth, int redDepth) {
+        if (low > high) {
+            return NIL;
+        }
+        int node = (low + high) >>> 1;
+        parent[node] = up;
+        //the root stays black even when it is the only node.
+        setRed(node, depth == redDepth && depth > 0);
+        leftChild[node] = buildBalanced(low, node - 1, node, depth + 1, redDepth);
+        rightChild[node] = buildBalanced(node + 1, high, node, depth + 1, redDepth);
+        return node;
+    }
+
+    private boolean isRed(int node) {
+        return (redBits[node >>> 6] & (1L << node)) != 0;
+    }
+
+    private void setRed(int node, boolean red) {
+        if (red) {
+            redBits[node >>> 6] |= 1L << node;
+        } else {
+            redBits[node >>> 6] &= ~(1L << node);
+        }
+    }
+
+    /**
+     * Takes a node from the free list, or a new node from the pool if the free list is empty.
+     *
+     * @return the node.
+     */
+    private int allocateNode() {
+        if (freeList != NIL) {
+            int node = freeList;
+            freeList = leftChild[node];
+            return node;
+        }
+        if (highWaterMark == keys.length) {
+            grow();
+        }
+        return highWaterMark++;
+    }
+
+    /**
+     * Puts the node on the free list so that it can be reused.
+     *
+     * @param node the node which was removed from the tree.
+     */
+    private void freeNode(int node) {
+        leftChild[node] = freeList;
+        freeList = node;
+    }
+
+    /**
+     * Doubles the capacity of the pool.
+     */
+    private void grow() {
+        int newCapacity = keys.length << 1;
+        leftChild = Arrays.copyOf(leftChild, newCapacity);
+        rightChild = Arrays.copyOf(rightChild, newCapacity);
+        parent = Arrays.copyOf(parent, newCapacity);
+        keys = Arrays.copyOf(keys, newCapacity);
+        slots = Arrays.copyOf(slots, newCapacity);
+        redBits = Arrays.copyOf(redBits, (newCapacity + 63) >>> 6);
+    }
+}
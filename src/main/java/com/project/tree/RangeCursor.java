@@ -0,0 +1,71 @@
+package main.java.com.project.tree;
+
+/**
+ * Cursor which walks the buildings of a {@link RedBackTree} whose building numbers are in the range [start, end] in
+ * increasing order of the building number. The cursor moves from a node to its successor using the parent pointers of
+ * the nodes, so it needs no stack or list and can be reused for any number of ranges. The tree must not be modified
+ * while the cursor is being used.
+ */
+public class RangeCursor {
+    private final RedBackTree tree;
+    /**
+     * The node on which the cursor currently is.
+     */
+    private TreeNode current;
+    /**
+     * The node to which the cursor moves on the next call of {@link #next()}.
+     */
+    private TreeNode upcoming;
+    /**
+     * The ending building number of the range.
+     */
+    private int end;
+
+    public RangeCursor(RedBackTree tree) {
+        this.tree = tree;
+    }
+
+    /**
+     * Positions the cursor before the first building of the range [start, end].
+     *
+     * @param start the starting building number.
+     * @param end   the ending building number.
+     * @return this cursor.
+     */
+    public RangeCursor seek(int start, int end) {
+        this.end = end;
+        current = null;
+        upcoming = tree.ceilingNode(start);
+        return this;
+    }
+
+    /**
+     * Moves the cursor to the next building in the range.
+     *
+     * @return {@code true} if the cursor is on a building of the range, {@code false} if the range is exhausted.
+     */
+    public boolean next() {
+        if (upcoming == null || upcoming.getKey() > end) {
+            current = null;
+            upcoming = null;
+            return false;
+        }
+        current = upcoming;
+        upcoming = RedBackTree.successor(current);
+        return true;
+    }
+
+    /**
+     * @return Returns the slot of the building on which the cursor is.
+     */
+    public int getSlot() {
+        return current.getSlot();
+    }
+
+    /**
+     * @return Returns the building number of the building on which the cursor is.
+     */
+    public int getBuildingNumber() {
+        return current.getKey();
+    }
+}
@@ -1,72 +1,434 @@
 package main.java.com.project.tree;
 
-import com.project.bean.Building;
+import com.project.bean.BuildingStore;
+import com.project.metrics.Metrics;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.function.IntConsumer;
 
 /**
- * Data structure which has the implementation of a redd black tree.
+ * Data structure which has the implementation of a redd black tree. The tree is ordered on the building number and
+ * every node holds the slot of its building in the {@link BuildingStore}.
+ * <p>
+ * Every node also holds the number of nodes and the sums of the executed and total times of the buildings in its sub
+ * tree. They are kept up to date on the path to the root whenever a building is added or removed, and by the
+ * rotations, so that the number of buildings in a range, their work, and the building of a given rank are found in
+ * O(log n) without walking the range. The executed time of a building changes at the end of every slice of work, so
+ * an update only marks the node dirty and the sums of the dirty nodes are brought up to date by the next query which
+ * needs them.
  */
-public class RedBackTree {
+public class RedBackTree implements BuildingIndex {
+    /**
+     * The aggregates which can be summed over a range.
+     */
+    private static final int COUNT = 0;
+    private static final int EXECUTED_TIME = 1;
+    private static final int TOTAL_TIME = 2;
+    /**
+     * A depth which no node reaches, since a red black tree of up to 2^31 buildings is at most 62 nodes deep. The
+     * walks of the searches and the ranges give up after so many steps, which only happens when a {@code CityQueries}
+     * reads links torn by a change in progress, and whose read then fails to validate.
+     */
+    static final int MAX_DEPTH = 64;
+    /**
+     * The store which holds the buildings whose slots are kept in the tree.
+     */
+    private final BuildingStore store;
     private TreeNode root;
+    /**
+     * The number of buildings in the tree.
+     */
+    private int size;
+    /**
+     * The node of every slot which is in the tree, so that an updated building is found without a search.
+     */
+    private TreeNode[] nodesBySlot;
+    /**
+     * The slots of the dirty nodes, whose executed times are not yet in the sums.
+     */
+    private int[] dirtySlots;
+    private int dirtyCount;
 
-    public RedBackTree() {
+    public RedBackTree(BuildingStore store) {
+        this.store = store;
         root = null;
+        size = 0;
+        nodesBySlot = new TreeNode[64];
+        dirtySlots = new int[16];
+        dirtyCount = 0;
+    }
+
+    /**
+     * Returns the number of buildings in the range [start, end].
+     *
+     * @param start the starting building number.
+     * @param end   the ending building number.
+     * @return the number of buildings in the range.
+     */
+    public int countInRange(int start, int end) {
+        return start > end ? 0 : (int) (prefix(end, true, COUNT) - prefix(start, false, COUNT));
+    }
+
+    /**
+     * Returns the sum of the executed times of the buildings in the range [start, end].
+     *
+     * @param start the starting building number.
+     * @param end   the ending building number.
+     * @return the number of days already worked on the buildings of the range.
+     */
+    public long executedTimeInRange(int start, int end) {
+        flushUpdates();
+        return start > end ? 0 : prefix(end, true, EXECUTED_TIME) - prefix(start, false, EXECUTED_TIME);
+    }
+
+    /**
+     * Returns the sum of the total times of the buildings in the range [start, end].
+     *
+     * @param start the starting building number.
+     * @param end   the ending building number.
+     * @return the number of days needed to construct all the buildings of the range.
+     */
+    public long totalTimeInRange(int start, int end) {
+        return start > end ? 0 : prefix(end, true, TOTAL_TIME) - prefix(start, false, TOTAL_TIME);
+    }
+
+    /**
+     * Returns the work which remains to be done on the buildings in the range [start, end].
+     *
+     * @param start the starting building number.
+     * @param end   the ending building number.
+     * @return the number of days still needed to construct all the buildings of the range.
+     */
+    public long remainingTimeInRange(int start, int end) {
+        return totalTimeInRange(start, end) - executedTimeInRange(start, end);
+    }
+
+    /**
+     * Returns the rank of the building number, which is the number of buildings with a smaller building number.
+     *
+     * @param buildingNumber the building number.
+     * @return the rank of the building number.
+     */
+    public int rank(int buildingNumber) {
+        return (int) prefix(buildingNumber, false, COUNT);
+    }
+
+    /**
+     * Returns the building of the given rank, the building with the smallest building number having rank 0.
+     *
+     * @param rank the rank of the building.
+     * @return the slot of the building, or {@link BuildingStore#NO_SLOT} if the rank is not in [0, size).
+     */
+    public int select(int rank) {
+        TreeNode node = root;
+        while (node != null) {
+            int leftSize = sizeOf(node.leftChild);
+            if (rank < leftSize) {
+                node = node.leftChild;
+            } else if (rank > leftSize) {
+                //skip the left sub tree and the node.
+                rank -= leftSize + 1;
+                node = node.rightChild;
+            } else {
+                return node.getSlot();
+            }
+        }
+        return BuildingStore.NO_SLOT;
+    }
+
+    /**
+     * Sums one of the aggregates over the buildings whose building number is below the bound. Every node on the
+     * search path which is below the bound adds itself and its whole left sub tree at once.
+     *
+     * @param bound     the building number which bounds the buildings.
+     * @param inclusive flag which tells whether the building with the bound as building number is counted.
+     * @param aggregate the aggregate to sum, one of {@link #COUNT}, {@link #EXECUTED_TIME} and {@link #TOTAL_TIME}.
+     * @return the sum of the aggregate.
+     */
+    private long prefix(int bound, boolean inclusive, int aggregate) {
+        long sum = 0;
+        TreeNode node = root;
+        while (node != null) {
+            if (node.getKey() < bound || (inclusive && node.getKey() == bound)) {
+                sum += aggregateOf(node.leftChild, aggregate);
+                int slot = node.getSlot();
+                switch (aggregate) {
+                    case COUNT:
+                        sum++;
+                        break;
+                    case EXECUTED_TIME:
+                        sum += node.executedTime;
+                        break;
+                    default:
+                        sum += store.getTotalTime(slot);
+                }
+                node = node.rightChild;
+            } else {
+                node = node.leftChild;
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Returns one of the aggregates of the sub tree of the node.
+     *
+     * @param node      the root of the sub tree, may be {@code null}.
+     * @param aggregate the aggregate, one of {@link #COUNT}, {@link #EXECUTED_TIME} and {@link #TOTAL_TIME}.
+     * @return the aggregate of the sub tree, 0 for an empty sub tree.
+     */
+    private static long aggregateOf(TreeNode node, int aggregate) {
+        if (node == null) {
+            return 0;
+        }
+        switch (aggregate) {
+            case COUNT:
+                return node.size;
+            case EXECUTED_TIME:
+                return node.executedTimeSum;
+            default:
+                return node.totalTimeSum;
+        }
+    }
+
+    private static int sizeOf(TreeNode node) {
+        return node == null ? 0 : node.size;
+    }
+
+    /**
+     * Computes the aggregates of the node from its own building and from its children.
+     *
+     * @param node the node whose aggregates are to be computed.
+     */
+    private void updateAggregates(TreeNode node) {
+        int slot = node.getSlot();
+        node.size = 1;
+        node.executedTimeSum = node.executedTime;
+        node.totalTimeSum = store.getTotalTime(slot);
+        if (node.leftChild != null) {
+            node.size += node.leftChild.size;
+            node.executedTimeSum += node.leftChild.executedTimeSum;
+            node.totalTimeSum += node.leftChild.totalTimeSum;
+        }
+        if (node.rightChild != null) {
+            node.size += node.rightChild.size;
+            node.executedTimeSum += node.rightChild.executedTimeSum;
+            node.totalTimeSum += node.rightChild.totalTimeSum;
+        }
+    }
+
+    /**
+     * Moves the aggregates after a rotation. Temp now holds the whole sub tree which the node held, and the node lost
+     * the sub tree of temp but gained the child which moved from temp to the node.
+     *
+     * @param node  the node which was rotated down.
+     * @param temp  the node which was rotated up.
+     * @param moved the child which moved from temp to the node, may be {@code null}.
+     */
+    private static void rotateAggregates(TreeNode node, TreeNode temp, TreeNode moved) {
+        int size = node.size;
+        long executedTimeSum = node.executedTimeSum;
+        long totalTimeSum = node.totalTimeSum;
+        node.size += sizeOf(moved) - temp.size;
+        node.executedTimeSum -= temp.executedTimeSum;
+        node.totalTimeSum -= temp.totalTimeSum;
+        if (moved != null) {
+            node.executedTimeSum += moved.executedTimeSum;
+            node.totalTimeSum += moved.totalTimeSum;
+        }
+        temp.size = size;
+        temp.executedTimeSum = executedTimeSum;
+        temp.totalTimeSum = totalTimeSum;
+    }
+
+    /**
+     * Computes the aggregates of the node and of all its ancestors.
+     *
+     * @param node the lowest node whose sub tree changed, may be {@code null}.
+     */
+    private void updateAggregatesToRoot(TreeNode node) {
+        while (node != null) {
+            updateAggregates(node);
+            node = node.parent;
+        }
+    }
+
+    /**
+     * Remembers the node of the slot.
+     *
+     * @param slot the slot of the building.
+     * @param node the node of the building, or {@code null} when the building leaves the tree.
+     */
+    private void mapSlot(int slot, TreeNode node) {
+        if (slot >= nodesBySlot.length) {
+            nodesBySlot = Arrays.copyOf(nodesBySlot, Math.max(nodesBySlot.length << 1, slot + 1));
+        }
+        nodesBySlot[slot] = node;
     }
 
     /**
-     * Returns the buildings in the range [buildingNumber1, buildingNumber2]
+     * Returns the buildings in the range [buildingNumber1, buildingNumber2]. Large ranges are better walked with a
+     * {@link RangeCursor} or {@link #forEachInRange(int, int, IntConsumer)} which do not build a list.
      *
      * @param buildingNumber1 the starting building number.
      * @param buildingNumber2 the ending building number.
-     * @return the building in the range.
+     * @return the slots of the buildings in the range.
      */
-    public List<Building> getBuildingsInRange(int buildingNumber1, int buildingNumber2) {
-        List<Building> allBuildings = new ArrayList<>();
-        getBuildingsInRange(root, buildingNumber1, buildingNumber2, allBuildings);
+    public List<Integer> getBuildingsInRange(int buildingNumber1, int buildingNumber2) {
+        List<Integer> allBuildings = new ArrayList<>();
+        forEachInRange(buildingNumber1, buildingNumber2, allBuildings::add);
         return allBuildings;
     }
 
     /**
-     * Recursive function which finds the buildings in the range [buildingNumber1, buildingNumber2].
+     * Passes the slot of every building in the range [start, end] to the visitor in increasing order of the building
+     * number. The walk goes from a node to its successor using the parent pointers, so no extra memory is needed.
      *
-     * @param node         the node on which we need to traverse to find the buildings in the range.
-     * @param start        the starting building number.
-     * @param end          the ending building number.
-     * @param allBuildings the list in which the buildings are to be added.
+     * @param start   the starting building number.
+     * @param end     the ending building number.
+     * @param visitor the visitor which receives the slots of the buildings.
      */
-    private void getBuildingsInRange(TreeNode node, int start, int end, List<Building> allBuildings) {
-        if (node == null) {
-            return;
+    @Override
+    public void forEachInRange(int start, int end, IntConsumer visitor) {
+        TreeNode node = ceilingNode(start);
+        while (node != null && node.getKey() <= end) {
+            visitor.accept(node.getSlot());
+            node = successor(node);
         }
-        if (start < node.getBuilding().getBuildingNumber()) {
-            //if the building number of the current node is less than the starting building number, then go on going left.
-            getBuildingsInRange(node.leftChild, start, end, allBuildings);
+    }
+
+    /**
+     * Returns the node with the smallest building number which is greater than or equal to the building number.
+     *
+     * @param buildingNumber the building number.
+     * @return the node, or {@code null} if all the buildings have smaller building numbers.
+     */
+    TreeNode ceilingNode(int buildingNumber) {
+        TreeNode node = root;
+        TreeNode ceiling = null;
+        for (int depth = 0; node != null; depth++) {
+            if (depth == MAX_DEPTH) {
+                return null;
+            }
+            if (buildingNumber < node.getKey()) {
+                //the node is a candidate, but there might be a smaller one in the left sub tree.
+                ceiling = node;
+                node = node.leftChild;
+            } else if (buildingNumber > node.getKey()) {
+                node = node.rightChild;
+            } else {
+                return node;
+            }
         }
-        if (start <= node.getBuilding().getBuildingNumber() && node.getBuilding().getBuildingNumber() <= end) {
-            //the the building number is in the range, then add it to the list which is to be returned.
-            allBuildings.add(node.getBuilding());
+        return ceiling;
+    }
+
+    /**
+     * Returns the node which comes after the node in the increasing order of the building numbers.
+     *
+     * @param node the node whose successor is to be found.
+     * @return the successor of the node, or {@code null} if the node has the largest building number.
+     */
+    static TreeNode successor(TreeNode node) {
+        if (node.rightChild != null) {
+            //the successor is the left most node of the right sub tree.
+            node = node.rightChild;
+            for (int depth = 0; node.leftChild != null; depth++) {
+                if (depth == MAX_DEPTH) {
+                    return null;
+                }
+                node = node.leftChild;
+            }
+            return node;
         }
-        if (end > node.getBuilding().getBuildingNumber()) {
-            //if the building number of the current node is greater than the ending building number, then go on going right.
-            getBuildingsInRange(node.rightChild, start, end, allBuildings);
+        //else the successor is the first ancestor whose left sub tree contains the node.
+        TreeNode parent = node.parent;
+        for (int depth = 0; parent != null && node == parent.rightChild; depth++) {
+            if (depth == MAX_DEPTH) {
+                return null;
+            }
+            node = parent;
+            parent = parent.parent;
         }
+        return parent;
     }
 
     /**
      * Removes the building from the red black tree.
      *
-     * @param building the building which needs to be removed.
+     * @param slot the slot of the building which needs to be removed.
      */
-    public void removeBuilding(Building building) {
-        TreeNode buildingNodeToDelete = searchBuilding(building.getBuildingNumber());
+    @Override
+    public void removeBuilding(int slot) {
+        TreeNode buildingNodeToDelete = slot < nodesBySlot.length ? nodesBySlot[slot] : null;
         if (buildingNodeToDelete != null) {
             //if the building is present in the tree then delete the node.
             removeBuilding(buildingNodeToDelete);
         }
     }
 
+    /**
+     * Updates the aggregates of the building and its ancestors after its executed time was changed in the store.
+     *
+     * @param slot the slot of the building which was updated.
+     */
+    @Override
+    public void updateBuilding(int slot) {
+        TreeNode node = nodesBySlot[slot];
+        if (node.dirtyIndex < 0) {
+            if (dirtyCount == dirtySlots.length) {
+                dirtySlots = Arrays.copyOf(dirtySlots, dirtyCount << 1);
+            }
+            node.dirtyIndex = dirtyCount;
+            dirtySlots[dirtyCount++] = slot;
+        }
+    }
+
+    /**
+     * @return Returns the number of nodes whose executed times are not yet in the sums.
+     */
+    int getDirtyCount() {
+        return dirtyCount;
+    }
+
+    /**
+     * Drops the node from the list of the dirty nodes, by moving the last dirty node in its place, so that the list
+     * only ever holds the nodes of the tree.
+     *
+     * @param node the node which is removed from the tree.
+     */
+    private void dropDirty(TreeNode node) {
+        int index = node.dirtyIndex;
+        if (index < 0) {
+            return;
+        }
+        node.dirtyIndex = -1;
+        int last = dirtySlots[--dirtyCount];
+        if (index < dirtyCount) {
+            dirtySlots[index] = last;
+            nodesBySlot[last].dirtyIndex = index;
+        }
+    }
+
+    /**
+     * Adds the change of the executed time of every dirty node to the sums of the node and of its ancestors.
+     */
+    private void flushUpdates() {
+        for (int i = 0; i < dirtyCount; i++) {
+            TreeNode node = nodesBySlot[dirtySlots[i]];
+            node.dirtyIndex = -1;
+            int executedTime = store.getExecutedTime(node.getSlot());
+            long delta = executedTime - node.executedTime;
+            node.executedTime = executedTime;
+            for (; node != null; node = node.parent) {
+                node.executedTimeSum += delta;
+            }
+        }
+        dirtyCount = 0;
+    }
+
 
     /**
      * Removes the node from the red black tree.
@@ -77,6 +439,9 @@ public class RedBackTree {
         TreeNode parent;
         TreeNode child;
         NodeColor nodeColor = null;
+        size--;
+        dropDirty(node);
+        mapSlot(node.getSlot(), null);
 
         //case wherein degree two node is to be removed
         if (node.leftChild != null && node.rightChild != null) {
@@ -120,6 +485,8 @@ public class RedBackTree {
             temp.setNodeColor(node.getNodeColor());
             temp.leftChild = node.leftChild;
             node.leftChild.parent = temp;
+            //the path from the old place of the successor goes up through its new place to the root.
+            updateAggregatesToRoot(parent);
 
             if (NodeColor.BLACK == nodeColor) {
                 //if the node color is black then re-balance the node.
@@ -153,6 +520,7 @@ public class RedBackTree {
         } else {
             root = child;
         }
+        updateAggregatesToRoot(parent);
 
         if (NodeColor.BLACK == nodeColor) {
             //if the node color is black then re-balance the node.
@@ -169,7 +537,9 @@ public class RedBackTree {
      */
     private void balanceAfterDelete(TreeNode node, TreeNode parent) {
         TreeNode temp;
+        int iterations = 0;
         while ((node == null || node.isBlack()) && (node != root)) {
+            iterations++;
             if (parent.leftChild == node) {
                 //node which is to be balanced is the left child of the parent.
                 temp = parent.rightChild;
@@ -242,61 +612,94 @@ public class RedBackTree {
             //after processing set the color of the node to black.
             node.setNodeColor(NodeColor.BLACK);
         }
+        if (Metrics.ENABLED) {
+            Metrics.TREE_DELETE_FIXUPS.record(iterations);
+        }
     }
 
     /**
      * Search the building in the red black tree.
      *
      * @param buildingNumber the number of building which is to be searched.
+     * @return return the slot of the building if found else {@link BuildingStore#NO_SLOT} is returned.
+     */
+    @Override
+    public int searchBuilding(int buildingNumber) {
+        TreeNode node = searchBuilding(root, buildingNumber);
+        return node == null ? BuildingStore.NO_SLOT : node.getSlot();
+    }
+
+    /**
+     * Search the node of the building in the red black tree.
+     *
+     * @param buildingNumber the number of building which is to be searched.
      * @return return the node if found else null is returned.
      */
-    public TreeNode searchBuilding(int buildingNumber) {
+    public TreeNode searchNode(int buildingNumber) {
         return searchBuilding(root, buildingNumber);
     }
 
+    /**
+     * Search the building in the sub tree of the node without recursion.
+     *
+     * @param currentNode    the node from which the search starts.
+     * @param buildingNumber the number of building which is to be searched.
+     * @return return the node if found else null is returned.
+     */
     public TreeNode searchBuilding(TreeNode currentNode, int buildingNumber) {
-        if (currentNode == null) {
-            return null;
+        int depth = 0;
+        while (currentNode != null) {
+            if (++depth > MAX_DEPTH) {
+                //the links were torn by a change in progress.
+                currentNode = null;
+                break;
+            }
+            if (buildingNumber < currentNode.getKey()) {
+                //the number of the building which to be found is less than the building number of the current building.
+                currentNode = currentNode.leftChild;
+            } else if (buildingNumber > currentNode.getKey()) {
+                //the number of the building which to be found is greater than the building number of the current building.
+                currentNode = currentNode.rightChild;
+            } else {
+                //the number of the building which to be found is equal to the building number of the current building.
+                break;
+            }
         }
-        if (buildingNumber < currentNode.getBuilding().getBuildingNumber()) {
-            //the number of the building which to be found is less than the building number of the current building.
-            return searchBuilding(currentNode.leftChild, buildingNumber);
-        } else if (buildingNumber > currentNode.getBuilding().getBuildingNumber()) {
-            //the number of the building which to be found is greater than the building number of the current building.
-            return searchBuilding(currentNode.rightChild, buildingNumber);
-        } else {
-            //the number of the building which to be found is equal to the building number of the current building.
-            return currentNode;
+        if (Metrics.ENABLED) {
+            Metrics.TREE_SEARCH_DEPTH.record(depth);
         }
+        return currentNode;
     }
 
     /**
      * Adds the building to the red black tree.
      *
-     * @param building the building which is to be added to the read black tree.
+     * @param slot the slot of the building which is to be added to the read black tree.
      * @throws Exception if there is any problem in added the building to the red black tree.
      */
-    public void addBuilding(Building building) throws Exception {
-        TreeNode node = new TreeNode(building.getBuildingNumber(), building, null);
+    @Override
+    public void addBuilding(int slot) throws Exception {
+        int buildingNumber = store.getBuildingNumber(slot);
+        TreeNode node = new TreeNode(buildingNumber, slot, null);
         TreeNode x = root;
         TreeNode y = null;
         while (x != null) {
             y = x;
-            if (building.getBuildingNumber() < x.getBuilding().getBuildingNumber()) {
+            if (buildingNumber < x.getKey()) {
                 //if the building number of the building is less than the current building then move to left.
                 x = x.leftChild;
-            } else if (building.getBuildingNumber() > x.getBuilding().getBuildingNumber()) {
+            } else if (buildingNumber > x.getKey()) {
                 //if the building number of the building is greater than the current building then  move to right.
                 x = x.rightChild;
             } else {
                 //if the building is already present in the red black tree, then throw exception.
-                throw new Exception("com.project.bean.Building " + building.getBuildingNumber() + " is already present!");
+                throw new Exception("com.project.bean.Building " + buildingNumber + " is already present!");
             }
         }
         node.parent = y;
 
         if (y != null) {
-            if (building.getBuildingNumber() < y.getBuilding().getBuildingNumber()) {
+            if (buildingNumber < y.getKey()) {
                 //if the building number of the building is less than the current building then add the node as the left node.
                 y.leftChild = node;
             } else {
@@ -307,8 +710,77 @@ public class RedBackTree {
             //if the red black tree is empty.
             root = node;
         }
+        mapSlot(slot, node);
+        node.executedTime = store.getExecutedTime(slot);
+        updateAggregates(node);
+        int executedTime = node.executedTime;
+        int totalTime = store.getTotalTime(slot);
+        for (TreeNode ancestor = y; ancestor != null; ancestor = ancestor.parent) {
+            //every ancestor gains the new building in its sub tree.
+            ancestor.size++;
+            ancestor.executedTimeSum += executedTime;
+            ancestor.totalTimeSum += totalTime;
+        }
         //balance after insert.
         balanceAfterInsert(node);
+        size++;
+    }
+
+    /**
+     * Adds a batch of buildings to the red black tree. A batch which is at least as large as the tree is merged with
+     * the buildings of the tree and the whole tree is rebuilt in linear time, see {@link BulkLoad}.
+     *
+     * @param slots the slots of the buildings which are to be added, in increasing order of the building number.
+     * @param count the number of slots in the batch.
+     * @throws Exception if a building with the same building number is already present, or is twice in the batch.
+     */
+    @Override
+    public void addBuildings(int[] slots, int count) throws Exception {
+        if (count < size) {
+            //a small batch is cheaper to add one building at a time.
+            for (int i = 0; i < count; i++) {
+                addBuilding(slots[i]);
+            }
+            return;
+        }
+        int[] existing = new int[size];
+        int existingCount = 0;
+        for (TreeNode node = ceilingNode(Integer.MIN_VALUE); node != null; node = successor(node)) {
+            existing[existingCount++] = node.getSlot();
+        }
+        int[] merged = BulkLoad.merge(store, existing, existingCount, slots, count);
+        //the new nodes take the executed times from the store, so none of them is dirty.
+        dirtyCount = 0;
+        root = merged.length == 0 ? null : buildBalanced(merged, 0, merged.length - 1, null, 0,
+                BulkLoad.redDepth(merged.length));
+        size = merged.length;
+    }
+
+    /**
+     * Builds a balanced sub tree from the sorted slots in [low, high].
+     *
+     * @param slots    the slots in increasing order of the building number.
+     * @param low      the first slot of the sub tree.
+     * @param high     the last slot of the sub tree.
+     * @param parent   the parent of the sub tree.
+     * @param depth    the depth of the root of the sub tree.
+     * @param redDepth the depth of the nodes which are colored red.
+     * @return the root of the sub tree, or {@code null} if the sub tree is empty.
+     */
+    private TreeNode buildBalanced(int[] slots, int low, int high, TreeNode parent, int depth, int redDepth) {
+        if (low > high) {
+            return null;
+        }
+        int middle = (low + high) >>> 1;
+        TreeNode node = new TreeNode(store.getBuildingNumber(slots[middle]), slots[middle], parent);
+        //the root stays black even when it is the only node.
+        node.setNodeColor(depth == redDepth && depth > 0 ? NodeColor.RED : NodeColor.BLACK);
+        node.leftChild = buildBalanced(slots, low, middle - 1, node, depth + 1, redDepth);
+        node.rightChild = buildBalanced(slots, middle + 1, high, node, depth + 1, redDepth);
+        mapSlot(slots[middle], node);
+        node.executedTime = store.getExecutedTime(slots[middle]);
+        updateAggregates(node);
+        return node;
     }
 
     /**
@@ -319,8 +791,10 @@ public class RedBackTree {
     private void balanceAfterInsert(TreeNode node) {
         TreeNode p;
         TreeNode gp;
+        int iterations = 0;
 
         while (((p = node.parent) != null) && (p.isRed())) {
+            iterations++;
             gp = p.parent;
             if (p == gp.leftChild) {
                 //in case the parent is the left child of the grand parent.
@@ -374,6 +848,9 @@ public class RedBackTree {
         }
         //the root node needs to be black
         root.setNodeColor(NodeColor.BLACK);
+        if (Metrics.ENABLED) {
+            Metrics.TREE_INSERT_FIXUPS.record(iterations);
+        }
     }
 
     /**
@@ -402,6 +879,10 @@ public class RedBackTree {
         }
         temp.rightChild = node;
         node.parent = temp;
+        rotateAggregates(node, temp, node.leftChild);
+        if (Metrics.ENABLED) {
+            Metrics.TREE_ROTATIONS.increment();
+        }
     }
 
     /**
@@ -433,5 +914,9 @@ public class RedBackTree {
 
         temp.leftChild = node;
         node.parent = temp;
+        rotateAggregates(node, temp, node.rightChild);
+        if (Metrics.ENABLED) {
+            Metrics.TREE_ROTATIONS.increment();
+        }
     }
 }
@@ -1,13 +1,11 @@
 package main.java.com.project.tree;
 
-import com.project.bean.Building;
-
 /**
  * This class represent the node structure of a node in a red black tree.
  */
 public class TreeNode {
     /**
-     * The key of the node on which the node insertion will be carried out.
+     * The key of the node on which the node insertion will be carried out, the building number of the building.
      */
     private int key;
     /**
@@ -15,9 +13,9 @@ public class TreeNode {
      */
     private NodeColor nodeColor;
     /**
-     * The building that will be stored in the node.
+     * The slot of the building, in the building store, that will be stored in the node.
      */
-    private Building building;
+    private int slot;
 
     /**
      * The left child of the node.
@@ -31,10 +29,31 @@ public class TreeNode {
      * The parent of the node.
      */
     public TreeNode parent;
+    /**
+     * The executed time of the building as counted in the sums, which lags behind the store while the node is dirty.
+     */
+    int executedTime;
+    /**
+     * The index of the slot of the node in the list of the dirty nodes of the tree, or -1 if the executed time of the
+     * building did not change since it was last added to the sums.
+     */
+    int dirtyIndex = -1;
+    /**
+     * The number of nodes in the sub tree of the node, the node included. Kept up to date by the tree.
+     */
+    int size;
+    /**
+     * The sum of the executed times of the buildings in the sub tree of the node. Kept up to date by the tree.
+     */
+    long executedTimeSum;
+    /**
+     * The sum of the total times of the buildings in the sub tree of the node. Kept up to date by the tree.
+     */
+    long totalTimeSum;
 
-    public TreeNode(int key, Building building, TreeNode parent) {
+    public TreeNode(int key, int slot, TreeNode parent) {
         this.key = key;
-        this.building = building;
+        this.slot = slot;
         this.nodeColor = NodeColor.RED;
         leftChild = null;
         rightChild = null;
@@ -49,10 +68,38 @@ public class TreeNode {
     }
 
     /**
-     * @return Return the building that the node represents.
+     * @return Returns the building number of the building that the node represents.
+     */
+    public int getKey() {
+        return key;
+    }
+
+    /**
+     * @return Return the slot of the building that the node represents.
      */
-    public Building getBuilding() {
-        return building;
+    public int getSlot() {
+        return slot;
+    }
+
+    /**
+     * @return Returns the number of nodes in the sub tree of the node, the node included.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return Returns the sum of the executed times of the buildings in the sub tree of the node.
+     */
+    public long getExecutedTimeSum() {
+        return executedTimeSum;
+    }
+
+    /**
+     * @return Returns the sum of the total times of the buildings in the sub tree of the node.
+     */
+    public long getTotalTimeSum() {
+        return totalTimeSum;
     }
 
     /**
@@ -78,10 +125,3 @@ public class TreeNode {
         this.nodeColor = nodeColor;
     }
 }
-
-/**
- * Enum that represent the color of the node.
- */
-enum NodeColor {
-    RED, BLACK;
-}
\ No newline at end of file
@@ -0,0 +1,82 @@
+package test.com.project;
+
+import com.project.command.MappedCommandReader;
+import com.project.output.OutputSink;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+class BatchRunnerTest {
+
+    @Test
+    void simulatesEveryCityIntoItsOwnOutput() throws Exception {
+        Path directory = Files.createTempDirectory("batch");
+        try {
+            Path inputDirectory = Files.createDirectory(directory.resolve("input"));
+            Path outputDirectory = Files.createDirectory(directory.resolve("output"));
+            List<Path> inputs = new ArrayList<>();
+            for (int city = 0; city < 12; city++) {
+                //cities of different sizes, so that they finish in another order than they started.
+                StringBuilder input = new StringBuilder();
+                for (int i = 0; i < 200 * (city % 4 + 1); i++) {
+                    input.append(3 * i).append(": Insert(").append(i * 31 % 1009 + city).append(',')
+                            .append(1 + (i + city) % 40).append(")\n");
+                    input.append(3 * i + 1).append(": PrintBuilding(").append(city).append(',').append(city + 300)
+                            .append(")\n");
+                }
+                inputs.add(write(inputDirectory.resolve("city" + city + ".txt"), input.toString()));
+            }
+            //a city which inserts a building twice fails alone.
+            inputs.add(write(inputDirectory.resolve("failing.txt"), "0: Insert(1,5)\n1: Insert(1,5)\n"));
+
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            int failures;
+            try {
+                failures = BatchRunner.runAll(executor, inputs, outputDirectory, "redblack");
+            } finally {
+                executor.shutdown();
+            }
+            Assertions.assertEquals(1, failures);
+            for (Path input : inputs.subList(0, inputs.size() - 1)) {
+                Path output = outputDirectory.resolve(input.getFileName() + "_output.txt");
+                Assertions.assertEquals(simulateAlone(input, directory.resolve("expected.txt")),
+                        new String(Files.readAllBytes(output), StandardCharsets.US_ASCII), input.toString());
+            }
+        } finally {
+            delete(directory);
+        }
+    }
+
+    private static Path write(Path file, String text) throws IOException {
+        return Files.write(file, text.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * @return Returns the output of the city simulated on its own.
+     */
+    private static String simulateAlone(Path input, Path output) throws Exception {
+        try (MappedCommandReader reader = new MappedCommandReader(input);
+             OutputSink sink = OutputSink.toFile(output)) {
+            new RisingCity("redblack", false, false, sink).simulate(reader);
+        }
+        return new String(Files.readAllBytes(output), StandardCharsets.US_ASCII);
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+}
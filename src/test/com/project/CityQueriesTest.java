@@ -0,0 +1,63 @@
+package test.com.project;
+
+import com.project.bean.Building;
+import com.project.command.StreamCommandReader;
+import com.project.output.OutputSink;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+class CityQueriesTest {
+
+    @Test
+    void checkQueriesOnAFinishedCity() throws Exception {
+        RisingCity city = new RisingCity(false, new OutputSink(new ByteArrayOutputStream()));
+        city.simulate(reader("0: Insert(5,3)\n1: Insert(2,4)\n"));
+        Assertions.assertNull(city.getQueries().searchBuilding(5), "Finished building is still present");
+        Assertions.assertTrue(city.getQueries().getBuildingsInRange(0, 10).isEmpty());
+    }
+
+    @Test
+    void checkQueriesWhileSimulating() throws Exception {
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            input.append(i).append(": Insert(").append(i * 7 % 20011 + 1).append(',').append(1 + i % 50).append(")\n");
+        }
+        RisingCity city = new RisingCity(true, new OutputSink(new ByteArrayOutputStream()));
+        CityQueries queries = city.getQueries();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread simulation = new Thread(() -> {
+            try {
+                city.simulate(reader(input.toString()));
+            } catch (Throwable e) {
+                failure.set(e);
+            }
+        });
+        simulation.start();
+        while (simulation.isAlive()) {
+            List<Building> buildings = queries.getBuildingsInRange(100, 200);
+            int previous = 99;
+            for (Building building : buildings) {
+                //every copy must be a consistent building of the range, in increasing order.
+                Assertions.assertTrue(building.getBuildingNumber() > previous && building.getBuildingNumber() <= 200);
+                Assertions.assertTrue(building.getExecutedTime() <= building.getTotalTime());
+                previous = building.getBuildingNumber();
+            }
+            Building building = queries.searchBuilding(150);
+            if (building != null) {
+                Assertions.assertEquals(150, building.getBuildingNumber());
+            }
+        }
+        simulation.join();
+        Assertions.assertNull(failure.get(), "Simulation failed");
+    }
+
+    private static StreamCommandReader reader(String input) {
+        return new StreamCommandReader(new ByteArrayInputStream(input.getBytes(StandardCharsets.US_ASCII)), false);
+    }
+}
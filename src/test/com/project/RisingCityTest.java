@@ -0,0 +1,364 @@
+package test.com.project;
+
+import com.project.checkpoint.Checkpoint;
+import com.project.checkpoint.SimulationState;
+import com.project.command.MappedCommandReader;
+import com.project.command.StreamCommandReader;
+import com.project.journal.CommandJournal;
+import com.project.output.OutputSink;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+class RisingCityTest {
+
+    @Test
+    void jumpsOverTheDaysWithoutAnEvent() throws Exception {
+        //the prints land on the ends of slices, and the last one a million days later on the day the building finishes.
+        String input = "0: Insert(5,12)\n5: PrintBuilding(5)\n6: Insert(3,1000000)\n10: PrintBuilding(0,10)\n"
+                + "1000012: PrintBuilding(3)\n";
+        String expected = "(5,5,12)\n(3,0,1000000),(5,10,12)\n(5,27)\n(3,1000000,1000000)\n(3,1000012)\n";
+        for (String storage : new String[]{"redblack", "pooled", "bplus", "offheap"}) {
+            Assertions.assertEquals(expected, simulate(storage, input), storage);
+        }
+    }
+
+    @Test
+    void matchesADayByDaySimulation() throws Exception {
+        Random random = new Random(29);
+        for (int round = 0; round < 20; round++) {
+            //a few long buildings and commands weeks apart, or on every day of a slice.
+            StringBuilder input = new StringBuilder();
+            int time = 0;
+            for (int i = 0; i < 40; i++) {
+                time += round % 2 == 0 ? 1 + random.nextInt(5) : 1 + random.nextInt(2000);
+                input.append(time).append(": ");
+                int operation = random.nextInt(4);
+                if (operation < 2) {
+                    int totalTime = random.nextInt(3) == 0 ? 1 + random.nextInt(100000) : 1 + random.nextInt(20);
+                    input.append("Insert(").append(i).append(',').append(totalTime).append(')');
+                } else if (operation == 2) {
+                    input.append("PrintBuilding(").append(random.nextInt(i + 1)).append(')');
+                } else {
+                    int start = random.nextInt(i + 1);
+                    input.append("PrintBuilding(").append(start).append(',').append(start + random.nextInt(10))
+                            .append(')');
+                }
+                input.append('\n');
+            }
+            String expected = simulateDayByDay(input.toString());
+            for (String storage : new String[]{"redblack", "pooled", "bplus", "offheap"}) {
+                Assertions.assertEquals(expected, simulate(storage, input.toString()), storage + ":\n" + input);
+            }
+        }
+    }
+
+    @Test
+    void restoredRunWritesTheSameOutput() throws Exception {
+        Path directory = Files.createTempDirectory("resume");
+        try {
+            byte[] input = input(new Random(17), 600);
+            Path inputFile = directory.resolve("input.txt");
+            Files.write(inputFile, input);
+            Path checkpoint = directory.resolve("checkpoint.bin");
+            Path output = directory.resolve("output.txt");
+            for (String storage : new String[]{"redblack", "bplus", "offheap"}) {
+                byte[] expected = run(storage, inputFile, directory.resolve("expected.txt"));
+                boolean restoredPendingCommand = false;
+                boolean truncated = false;
+                for (int eighth = 1; eighth < 8; eighth++) {
+                    int crash = input.length * eighth / 8;
+                    Files.deleteIfExists(checkpoint);
+                    RisingCity city = newCity(storage, OutputSink.toFile(output));
+                    city.setCheckpoint(checkpoint, 40);
+                    Assertions.assertThrows(IOException.class,
+                            () -> city.simulate(new StreamCommandReader(crashingStream(input, crash), false)));
+                    city.writer.close();
+                    city.close();
+
+                    //the output written after the checkpoint is dropped and written again by the restored run.
+                    SimulationState state = Checkpoint.readState(checkpoint);
+                    truncated |= Files.size(output) > state.outputLength;
+                    restoredPendingCommand |= state.hasCommand;
+                    RisingCity restored = newCity(storage, OutputSink.toFile(output, state.outputLength));
+                    restored.restore(checkpoint);
+                    MappedCommandReader reader = new MappedCommandReader(inputFile);
+                    restored.simulate(reader);
+                    reader.close();
+                    restored.writer.close();
+                    restored.close();
+                    Assertions.assertArrayEquals(expected, Files.readAllBytes(output),
+                            storage + " restored after a crash at byte " + crash);
+                }
+                Assertions.assertTrue(restoredPendingCommand, "No checkpoint with a command read ahead");
+                Assertions.assertTrue(truncated, "No output after a checkpoint to drop");
+            }
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    void restoredRunReplaysTheJournal() throws Exception {
+        Path directory = Files.createTempDirectory("journal");
+        try {
+            byte[] input = input(new Random(23), 400);
+            Path inputFile = directory.resolve("input.txt");
+            Files.write(inputFile, input);
+            byte[] expected = run("redblack", inputFile, directory.resolve("expected.txt"));
+            Path checkpoint = directory.resolve("checkpoint.bin");
+            Path journalFile = directory.resolve("journal.txt");
+            Path output = directory.resolve("output.txt");
+
+            RisingCity city = newCity("redblack", OutputSink.toFile(output));
+            city.setCheckpoint(checkpoint, 40);
+            CommandJournal journal = new CommandJournal(journalFile, 0, 8, 0);
+            city.setJournal(journal);
+            Assertions.assertThrows(IOException.class,
+                    () -> city.simulate(new StreamCommandReader(crashingStream(input, input.length / 2), false)));
+            journal.close();
+            city.writer.close();
+            city.close();
+
+            //the producer of the stream sends the commands again which did not make it into the journal.
+            SimulationState state = Checkpoint.readState(checkpoint);
+            Assertions.assertTrue(state.journalPosition < Files.size(journalFile), "Nothing to replay");
+            byte[] rest = linesAfter(input, journal.getCommandCount());
+            RisingCity restored = newCity("redblack", OutputSink.toFile(output, state.outputLength));
+            restored.restore(checkpoint);
+            CommandJournal restoredJournal = new CommandJournal(journalFile, state.journalPosition, 8, 0);
+            restored.setJournal(restoredJournal);
+            InputStream commands = new SequenceInputStream(CommandJournal.replay(journalFile, state.journalPosition),
+                    new ByteArrayInputStream(rest));
+            restored.simulate(new StreamCommandReader(commands, false));
+            restoredJournal.close();
+            restored.writer.close();
+            restored.close();
+            Assertions.assertArrayEquals(expected, Files.readAllBytes(output));
+            //the journal is written in the format of the input, and holds every command once.
+            Assertions.assertArrayEquals(input, Files.readAllBytes(journalFile));
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    void tailsAGrowingFileAndFlushesEveryDay() throws Exception {
+        Path directory = Files.createTempDirectory("tail");
+        try {
+            Path inputFile = directory.resolve("input.txt");
+            Path output = directory.resolve("output.txt");
+            Files.write(inputFile, "0: Insert(5,3)\n1: PrintBuilding(5)\n".getBytes(StandardCharsets.US_ASCII));
+            RisingCity city = newCity("redblack", OutputSink.toFile(output));
+            city.setFlushEveryDay(true);
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            StreamCommandReader reader = new StreamCommandReader(new FileInputStream(inputFile.toFile()), true);
+            Thread simulation = new Thread(() -> {
+                try {
+                    city.simulate(reader);
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+            });
+            //a failed test leaves no simulation behind which waits for input.
+            simulation.setDaemon(true);
+            simulation.start();
+            //the output of every day is in the file while the reader waits for the next command.
+            awaitOutput(output, "(5,1,3)\n");
+            append(inputFile, "5: PrintBuilding(0,10)\n");
+            awaitOutput(output, "(5,1,3)\n(5,3)\n(0,0,0)\n");
+            //a command which is written in two parts is only read once its line is complete.
+            append(inputFile, "7: Insert(9,");
+            Thread.sleep(300);
+            append(inputFile, "4)\n9: PrintBuilding(9)\n");
+            awaitOutput(output, "(5,1,3)\n(5,3)\n(0,0,0)\n(9,2,4)\n");
+            Assertions.assertTrue(simulation.isAlive(), "The end of the file ended the simulation");
+
+            //the reader only stops waiting when the thread is interrupted.
+            simulation.interrupt();
+            simulation.join(10000);
+            Assertions.assertFalse(simulation.isAlive());
+            Assertions.assertTrue(failure.get() instanceof IOException, String.valueOf(failure.get()));
+            reader.close();
+            city.writer.close();
+            city.close();
+        } finally {
+            delete(directory);
+        }
+    }
+
+    /**
+     * Generates sparse commands over thousands of days: inserts of long and short buildings, and prints of single
+     * buildings and of ranges.
+     */
+    private static byte[] input(Random random, int count) {
+        StringBuilder input = new StringBuilder();
+        int time = 0;
+        for (int i = 0; i < count; i++) {
+            time += random.nextInt(4) == 0 ? random.nextInt(60) : 1 + random.nextInt(3);
+            input.append(time).append(": ");
+            int operation = random.nextInt(5);
+            if (operation < 3) {
+                input.append("Insert(").append(i * 7 + 1).append(',').append(1 + random.nextInt(200)).append(')');
+            } else if (operation == 3) {
+                input.append("PrintBuilding(").append(random.nextInt(i * 7 + 2)).append(')');
+            } else {
+                int start = random.nextInt(i * 7 + 2);
+                input.append("PrintBuilding(").append(start).append(',').append(start + random.nextInt(200))
+                        .append(')');
+            }
+            input.append('\n');
+        }
+        return input.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static String simulate(String storage, String input) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        RisingCity city = newCity(storage, new OutputSink(output));
+        city.simulate(new StreamCommandReader(new ByteArrayInputStream(input.getBytes(StandardCharsets.US_ASCII)),
+                false));
+        city.writer.close();
+        city.close();
+        return output.toString(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Simulates the commands one day after the other, as the simulation did before it jumped from event to event. The
+     * commands must come on different days.
+     *
+     * @return Returns the output of the simulation.
+     */
+    private static String simulateDayByDay(String input) {
+        StringBuilder output = new StringBuilder();
+        //the executed and the total time of every building, by building number.
+        TreeMap<Integer, int[]> buildings = new TreeMap<>();
+        String[] commands = input.split("\n");
+        int next = 0;
+        int working = -1;
+        int worked = 0;
+        int endDate = 0;
+        for (int day = 0; next < commands.length || !buildings.isEmpty(); day++) {
+            if (working < 0 && !buildings.isEmpty()) {
+                for (Map.Entry<Integer, int[]> building : buildings.entrySet()) {
+                    if (working < 0 || building.getValue()[0] < buildings.get(working)[0]) {
+                        working = building.getKey();
+                    }
+                }
+                worked = buildings.get(working)[0];
+                endDate = Math.min(worked + 5, buildings.get(working)[1]);
+            }
+            if (next < commands.length && Integer.parseInt(commands[next].split(":")[0]) == day) {
+                String command = commands[next++];
+                String[] arguments = command.substring(command.indexOf('(') + 1, command.indexOf(')')).split(",");
+                int first = Integer.parseInt(arguments[0]);
+                if (command.contains("Insert")) {
+                    buildings.put(first, new int[]{0, Integer.parseInt(arguments[1])});
+                } else {
+                    int last = arguments.length == 1 ? first : Integer.parseInt(arguments[1]);
+                    StringBuilder printed = new StringBuilder();
+                    for (Map.Entry<Integer, int[]> building : buildings.subMap(first, true, last, true).entrySet()) {
+                        //the building under construction is printed with the work of the day.
+                        int executedTime = building.getKey() == working ? worked + 1 : building.getValue()[0];
+                        printed.append(printed.length() > 0 ? "," : "").append('(').append(building.getKey())
+                                .append(',').append(executedTime).append(',').append(building.getValue()[1])
+                                .append(')');
+                    }
+                    output.append(printed.length() > 0 ? printed : "(0,0,0)").append('\n');
+                }
+            }
+            if (working >= 0 && ++worked == endDate) {
+                if (worked == buildings.get(working)[1]) {
+                    buildings.remove(working);
+                    output.append('(').append(working).append(',').append(day).append(")\n");
+                } else {
+                    buildings.get(working)[0] = worked;
+                }
+                working = -1;
+            }
+        }
+        return output.toString();
+    }
+
+    private static byte[] run(String storage, Path inputFile, Path output) throws Exception {
+        RisingCity city = newCity(storage, OutputSink.toFile(output));
+        MappedCommandReader reader = new MappedCommandReader(inputFile);
+        city.simulate(reader);
+        reader.close();
+        city.writer.close();
+        city.close();
+        return Files.readAllBytes(output);
+    }
+
+    private static RisingCity newCity(String storage, OutputSink writer) {
+        boolean offHeap = "offheap".equals(storage);
+        return new RisingCity(offHeap ? "redblack" : storage, false, false, offHeap, writer);
+    }
+
+    /**
+     * @return Returns a stream of the input which fails as a crashed producer would once {@code length} bytes are read.
+     */
+    private static InputStream crashingStream(byte[] input, int length) {
+        return new SequenceInputStream(new ByteArrayInputStream(input, 0, length), new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("crashed");
+            }
+        });
+    }
+
+    private static void append(Path file, String text) throws IOException {
+        Files.write(file, text.getBytes(StandardCharsets.US_ASCII), StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Waits until the file holds the output, for at most ten seconds.
+     */
+    private static void awaitOutput(Path file, String expected) throws Exception {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        String actual = "";
+        while (System.nanoTime() < deadline) {
+            actual = new String(Files.readAllBytes(file), StandardCharsets.US_ASCII);
+            if (actual.equals(expected)) {
+                return;
+            }
+            Thread.sleep(20);
+        }
+        Assertions.assertEquals(expected, actual);
+    }
+
+    private static byte[] linesAfter(byte[] input, long lines) {
+        int start = 0;
+        for (long line = 0; line < lines; line++) {
+            while (input[start] != '\n') {
+                start++;
+            }
+            start++;
+        }
+        return Arrays.copyOfRange(input, start, input.length);
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package test.com.project.bean;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BuildingStoreTest {
+
+    @Test
+    void addAndRead() {
+        BuildingStore store = new BuildingStore();
+        int slot = store.add(7, 3, 9);
+        assertEquals(7, store.getBuildingNumber(slot));
+        assertEquals(3, store.getExecutedTime(slot));
+        assertEquals(9, store.getTotalTime(slot));
+        store.setExecutedTime(slot, 4);
+        assertEquals(4, store.getExecutedTime(slot));
+        assertEquals("(7,4,9)", store.getBuilding(slot).toString());
+    }
+
+    @Test
+    void releasedSlotIsReused() {
+        BuildingStore store = new BuildingStore(1);
+        int first = store.add(1, 0, 5);
+        int second = store.add(2, 0, 5);
+        assertEquals(2, store.size());
+        store.release(first);
+        assertEquals(1, store.size());
+        assertEquals(first, store.add(3, 0, 5));
+        assertEquals(2, store.getBuildingNumber(second));
+        assertEquals(3, store.getBuildingNumber(first));
+    }
+}
@@ -0,0 +1,133 @@
+package test.com.project.checkpoint;
+
+import com.project.bean.BuildingStore;
+import com.project.bean.OffHeapBuildingStore;
+import com.project.command.Command;
+import com.project.heap.MinHeap;
+import com.project.heap.OffHeapMinHeap;
+import com.project.tree.BPlusTree;
+import com.project.tree.OffHeapBPlusTree;
+import com.project.tree.PooledRedBlackTree;
+import com.project.tree.RedBackTree;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+class CheckpointTest {
+
+    @Test
+    void restoresTheBuildingsAndTheState() throws Exception {
+        BuildingStore store = new BuildingStore();
+        RedBackTree tree = new RedBackTree(store);
+        for (int i = 0; i < 100000; i++) {
+            tree.addBuilding(store.add(i * 7 % 100003, i % 13, 13 + i % 50));
+        }
+        SimulationState state = new SimulationState();
+        state.globalTime = 1234;
+        state.working = true;
+        state.workingOn = 42;
+        state.endDate = 10;
+        state.daysWorked = 8;
+        state.hasCommand = true;
+        state.command.set(1300, Command.PRINT_RANGE, 5, 90);
+        state.inputPosition = 1L << 33;
+        state.commandCount = 77;
+        state.outputLength = 999;
+        Path file = Files.createTempFile("checkpoint", ".bin");
+        try {
+            Checkpoint.write(file, state, store, tree);
+
+            BuildingStore restoredStore = new BuildingStore();
+            MinHeap heap = new MinHeap(restoredStore);
+            PooledRedBlackTree restoredTree = new PooledRedBlackTree(restoredStore);
+            SimulationState restored = Checkpoint.restore(file, restoredStore, heap, restoredTree, false);
+            Assertions.assertEquals(1234, restored.globalTime);
+            Assertions.assertTrue(restored.working && restored.hasCommand && !restored.readNext);
+            Assertions.assertEquals(42, restored.workingOn);
+            Assertions.assertEquals(8, restored.daysWorked);
+            Assertions.assertEquals("1300: PrintBuilding(5,90)", restored.command.toString());
+            Assertions.assertEquals(1L << 33, restored.inputPosition);
+            Assertions.assertEquals(999, Checkpoint.readState(file).outputLength);
+
+            Assertions.assertEquals(100000, restoredStore.size());
+            Assertions.assertEquals(100000, heap.getSize());
+            int slot = restoredTree.searchBuilding(7 * 500 % 100003);
+            Assertions.assertEquals(500 % 13, restoredStore.getExecutedTime(slot));
+            Assertions.assertEquals(13 + 500 % 50, restoredStore.getTotalTime(slot));
+            int min = heap.getMin();
+            Assertions.assertEquals(0, restoredStore.getExecutedTime(min));
+            Assertions.assertEquals(0, restoredStore.getBuildingNumber(min));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void restoresIntoTheOffHeapStorageInBatches() throws Exception {
+        BuildingStore store = new BuildingStore();
+        RedBackTree tree = new RedBackTree(store);
+        //more buildings than a batch of the restore, so that the later batches are appended to the tree.
+        for (int i = 0; i < 200000; i++) {
+            tree.addBuilding(store.add(i * 7 % 200003, i % 13, 13 + i % 50));
+        }
+        Path file = Files.createTempFile("checkpoint", ".bin");
+        try (OffHeapBuildingStore restoredStore = new OffHeapBuildingStore();
+             OffHeapMinHeap heap = new OffHeapMinHeap(restoredStore);
+             OffHeapBPlusTree restoredTree = new OffHeapBPlusTree(restoredStore)) {
+            Checkpoint.write(file, new SimulationState(), store, tree);
+            Checkpoint.restore(file, restoredStore, heap, restoredTree, true);
+            Assertions.assertEquals(200000, heap.getSize());
+            List<Integer> expected = new ArrayList<>();
+            tree.forEachInRange(Integer.MIN_VALUE, Integer.MAX_VALUE,
+                    slot -> expected.add(store.getBuildingNumber(slot)));
+            List<Integer> restored = new ArrayList<>();
+            restoredTree.forEachInRange(Integer.MIN_VALUE, Integer.MAX_VALUE,
+                    slot -> restored.add(restoredStore.getBuildingNumber(slot)));
+            Assertions.assertEquals(expected, restored);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void restoresOnTheJavaHeapInOneBulkLoad() throws Exception {
+        BuildingStore store = new BuildingStore();
+        RedBackTree tree = new RedBackTree(store);
+        for (int i = 0; i < 200000; i++) {
+            tree.addBuilding(store.add(i, i % 13, 13 + i % 50));
+        }
+        Path file = Files.createTempFile("checkpoint", ".bin");
+        try {
+            Checkpoint.write(file, new SimulationState(), store, tree);
+            //the batches of a restore into the java heap, each of which the heap and the tree load in linear time.
+            List<Integer> heapBatches = new ArrayList<>();
+            List<Integer> treeBatches = new ArrayList<>();
+            BuildingStore restoredStore = new BuildingStore();
+            MinHeap heap = new MinHeap(restoredStore) {
+                @Override
+                public void addBuildings(int[] slots, int count) {
+                    heapBatches.add(count);
+                    super.addBuildings(slots, count);
+                }
+            };
+            BPlusTree restoredTree = new BPlusTree(restoredStore) {
+                @Override
+                public void addBuildings(int[] slots, int count) throws Exception {
+                    treeBatches.add(count);
+                    super.addBuildings(slots, count);
+                }
+            };
+            Checkpoint.restore(file, restoredStore, heap, restoredTree, false);
+            Assertions.assertEquals(List.of(200000), heapBatches);
+            Assertions.assertEquals(List.of(200000), treeBatches);
+            Assertions.assertEquals(199999, restoredStore.getBuildingNumber(restoredTree.searchBuilding(199999)));
+            Assertions.assertEquals(0, restoredStore.getBuildingNumber(heap.getMin()));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package test.com.project.command;
+
+import com.project.RisingCity;
+import com.project.output.OutputSink;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+class InsertQueueTest {
+
+    @Test
+    void checkIfPollsInOrderOfTimeAndBuildingNumber() {
+        InsertQueue queue = new InsertQueue();
+        queue.submit(3, 9, 1);
+        queue.submit(1, 7, 1);
+        queue.submit(3, 2, 1);
+        Assertions.assertTrue(queue.drain());
+        Assertions.assertEquals(1, queue.getNextTime());
+        Command command = new Command();
+        Assertions.assertFalse(queue.poll(command, 0), "Insert polled before its day");
+        Assertions.assertTrue(queue.poll(command, 3));
+        Assertions.assertEquals(7, command.getArgument1());
+        Assertions.assertTrue(queue.poll(command, 3));
+        Assertions.assertEquals(2, command.getArgument1());
+        Assertions.assertTrue(queue.poll(command, 3));
+        Assertions.assertEquals(9, command.getArgument1());
+        Assertions.assertFalse(queue.poll(command, 3));
+        queue.close();
+        Assertions.assertTrue(queue.isFinished());
+    }
+
+    @Test
+    void checkIfConcurrentProducersMatchTheInput() throws Exception {
+        int buildings = 4000;
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < buildings; i++) {
+            input.append(i * 3).append(": Insert(").append(i * 17 % 4001 + 1).append(',').append(1 + i % 40)
+                    .append(")\n");
+        }
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        try (OutputSink sink = new OutputSink(expected)) {
+            new RisingCity(false, sink).simulate(reader(input.toString()));
+        }
+
+        InsertQueue queue = new InsertQueue();
+        Thread[] producers = new Thread[4];
+        for (int p = 0; p < producers.length; p++) {
+            int first = p;
+            producers[p] = new Thread(() -> {
+                for (int i = first; i < buildings; i += producers.length) {
+                    queue.submit(i * 3, i * 17 % 4001 + 1, 1 + i % 40);
+                }
+            });
+            producers[p].start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        queue.close();
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        try (OutputSink sink = new OutputSink(actual)) {
+            RisingCity city = new RisingCity(false, sink);
+            city.setInsertQueue(queue);
+            city.simulate(reader(""));
+        }
+        Assertions.assertEquals(expected.toString(), actual.toString(), "Output differs from the input file");
+    }
+
+    @Test
+    void checkIfSimulationWaitsForProducers() throws Exception {
+        InsertQueue queue = new InsertQueue();
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        OutputSink sink = new OutputSink(actual);
+        RisingCity city = new RisingCity(true, sink);
+        city.setInsertQueue(queue);
+        Thread simulation = new Thread(() -> {
+            try {
+                city.simulate(reader(""));
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        simulation.start();
+        //the simulation has nothing to do before the first building, so it waits on the first day.
+        queue.submit(0, 5, 3);
+        queue.close();
+        simulation.join();
+        sink.close();
+        Assertions.assertEquals("(5,3)" + System.lineSeparator(), actual.toString());
+    }
+
+    private static StreamCommandReader reader(String input) {
+        return new StreamCommandReader(new ByteArrayInputStream(input.getBytes(StandardCharsets.US_ASCII)), false);
+    }
+}
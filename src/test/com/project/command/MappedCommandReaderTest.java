@@ -0,0 +1,44 @@
+package test.com.project.command;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+class MappedCommandReaderTest {
+
+    @Test
+    void decodesAllCommands() throws IOException {
+        Path file = Files.createTempFile("commands", ".txt");
+        Files.write(file, "0: Insert(50,20)\r\n\n15: PrintBuilding(50)\n 30 : PrintBuilding( 10 , 60 )".getBytes());
+        try (MappedCommandReader reader = new MappedCommandReader(file)) {
+            Command command = new Command();
+            Assertions.assertTrue(reader.next(command));
+            Assertions.assertEquals("0: Insert(50,20)", command.toString());
+            Assertions.assertTrue(reader.next(command));
+            Assertions.assertEquals(Command.PRINT, command.getOpcode());
+            Assertions.assertEquals(15, command.getTime());
+            Assertions.assertEquals(50, command.getArgument1());
+            Assertions.assertTrue(reader.next(command));
+            Assertions.assertEquals(Command.PRINT_RANGE, command.getOpcode());
+            Assertions.assertEquals("30: PrintBuilding(10,60)", command.toString());
+            Assertions.assertFalse(reader.next(command));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void rejectsMalformedCommand() throws IOException {
+        Path file = Files.createTempFile("commands", ".txt");
+        Files.write(file, "0: Insert(50)\n".getBytes());
+        try (MappedCommandReader reader = new MappedCommandReader(file)) {
+            IOException exception = Assertions.assertThrows(IOException.class, () -> reader.next(new Command()));
+            Assertions.assertEquals("Malformed command on line 1", exception.getMessage());
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
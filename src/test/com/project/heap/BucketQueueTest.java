@@ -0,0 +1,53 @@
+package test.com.project.heap;
+
+import com.project.bean.BuildingStore;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+class BucketQueueTest {
+
+    @Test
+    void ordersLikeTheMinHeapUnderChurn() {
+        BuildingStore store = new BuildingStore();
+        BucketQueue queue = new BucketQueue(store);
+        MinHeap heap = new MinHeap(store);
+        List<Integer> waiting = new ArrayList<>();
+        Random random = new Random(11);
+        for (int i = 0; i < 100000; i++) {
+            int operation = random.nextInt(4);
+            if (operation == 0 || waiting.isEmpty()) {
+                //the building numbers are unique, as in a city, and a few buildings go beyond the buckets.
+                int executedTime = random.nextInt(50) == 0 ? BucketQueue.BUCKET_COUNT + random.nextInt(10)
+                        : 5 * random.nextInt(20);
+                int slot = store.add(i - 50000, executedTime, Integer.MAX_VALUE);
+                queue.addBuilding(slot);
+                heap.addBuilding(slot);
+                waiting.add(slot);
+            } else if (operation == 1) {
+                int min = queue.getMin();
+                Assertions.assertEquals(heap.getMin(), min);
+                waiting.remove(Integer.valueOf(min));
+                store.release(min);
+            } else if (operation == 2) {
+                int slot = waiting.get(random.nextInt(waiting.size()));
+                store.setExecutedTime(slot, store.getExecutedTime(slot) + 5);
+                queue.updateBuilding(slot);
+                heap.updateBuilding(slot);
+            } else {
+                int slot = waiting.remove(random.nextInt(waiting.size()));
+                queue.removeBuilding(slot);
+                heap.removeBuilding(slot);
+                Assertions.assertFalse(queue.contains(slot));
+                store.release(slot);
+            }
+            Assertions.assertEquals(heap.getSize(), queue.getSize());
+            if (!heap.isEmpty()) {
+                Assertions.assertEquals(heap.peekMin(), queue.peekMin());
+            }
+        }
+    }
+}
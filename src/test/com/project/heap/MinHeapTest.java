@@ -1,59 +1,158 @@
 package test.com.project.heap;
 
-import com.project.bean.Building;
+import com.project.bean.BuildingStore;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.util.Random;
+
 class MinHeapTest {
 
     @Test
     void setUp() {
-        MinHeap heap = new MinHeap();
+        MinHeap heap = new MinHeap(new BuildingStore());
         Assertions.assertTrue(heap.getSize() == 0);
     }
 
     @Test
     void checkIfAddsBelow() {
-        MinHeap heap = new MinHeap();
-        Building building = new Building(1, 10);
+        BuildingStore store = new BuildingStore();
+        MinHeap heap = new MinHeap(store);
+        int building = store.add(1, 0, 10);
         heap.addBuilding(building);
         Assertions.assertEquals(1, heap.getSize(), "Size is not valid");
-        building = new Building(2, 2, 10);
+        building = store.add(2, 2, 10);
         heap.addBuilding(building);
         Assertions.assertEquals(2, heap.getSize(), "Size has not increased");
-        Building min = heap.getMin();
-        Assertions.assertTrue(min.getBuildingNumber() == 1);
+        int min = heap.getMin();
+        Assertions.assertTrue(store.getBuildingNumber(min) == 1);
         min = heap.getMin();
-        Assertions.assertTrue(min.getBuildingNumber() == 2);
+        Assertions.assertTrue(store.getBuildingNumber(min) == 2);
     }
 
     @Test
     void checkIfAddsSameExecutedTime() {
-        MinHeap heap = new MinHeap();
-        Building building = new Building(10, 2, 10);
+        BuildingStore store = new BuildingStore();
+        MinHeap heap = new MinHeap(store);
+        int building = store.add(10, 2, 10);
         heap.addBuilding(building);
-        building = new Building(5, 2, 10);
+        building = store.add(5, 2, 10);
         heap.addBuilding(building);
-        building = new Building(4, 2, 10);
+        building = store.add(4, 2, 10);
         heap.addBuilding(building);
-        Building min = heap.getMin();
-        Assertions.assertTrue(min.getBuildingNumber() == 4);
+        int min = heap.getMin();
+        Assertions.assertTrue(store.getBuildingNumber(min) == 4);
         min = heap.getMin();
-        Assertions.assertTrue(min.getBuildingNumber() == 5);
+        Assertions.assertTrue(store.getBuildingNumber(min) == 5);
         min = heap.getMin();
-        Assertions.assertTrue(min.getBuildingNumber() == 10);
+        Assertions.assertTrue(store.getBuildingNumber(min) == 10);
     }
 
     @Test
     void getMin() {
-        MinHeap heap = new MinHeap();
-        Building building = new Building(1, 3, 10);
+        BuildingStore store = new BuildingStore();
+        MinHeap heap = new MinHeap(store);
+        int building = store.add(1, 3, 10);
         heap.addBuilding(building);
-        building = new Building(2, 2, 10);
+        building = store.add(2, 2, 10);
         heap.addBuilding(building);
-        building = new Building(2, 1, 10);
+        building = store.add(2, 1, 10);
         heap.addBuilding(building);
-        Building min = heap.getMin();
-        Assertions.assertTrue(min.getExecutedTime() == 1);
+        int min = heap.getMin();
+        Assertions.assertTrue(store.getExecutedTime(min) == 1);
+    }
+
+    @Test
+    void growsBeyondInitialCapacity() {
+        BuildingStore store = new BuildingStore();
+        MinHeap heap = new MinHeap(store);
+        for (int i = 5000; i > 0; i--) {
+            heap.addBuilding(store.add(i, i % 7, 10));
+        }
+        Assertions.assertEquals(5000, heap.getSize(), "Size is not valid");
+        int previous = heap.getMin();
+        while (!heap.isEmpty()) {
+            int min = heap.getMin();
+            Assertions.assertTrue(store.getBuilding(previous).isExecutionTimeLessAsComparedTo(store.getBuilding(min)));
+            previous = min;
+        }
+    }
+
+    @Test
+    void packKeyKeepsTieBreakOrder() {
+        Assertions.assertTrue(MinHeap.packKey(1, 10) < MinHeap.packKey(2, 1));
+        Assertions.assertTrue(MinHeap.packKey(2, 1) < MinHeap.packKey(2, 10));
+        Assertions.assertTrue(MinHeap.packKey(2, -1) < MinHeap.packKey(2, 0));
+    }
+
+    @Test
+    void updateAndRemoveInPlace() {
+        BuildingStore store = new BuildingStore();
+        MinHeap heap = new MinHeap(store);
+        int first = store.add(1, 0, 10);
+        int second = store.add(2, 3, 10);
+        int third = store.add(3, 6, 10);
+        heap.addBuilding(first);
+        heap.addBuilding(second);
+        heap.addBuilding(third);
+        Assertions.assertEquals(first, heap.peekMin());
+        store.setExecutedTime(first, 5);
+        heap.updateBuilding(first);
+        Assertions.assertEquals(second, heap.peekMin());
+        heap.removeBuilding(second);
+        Assertions.assertFalse(heap.contains(second));
+        Assertions.assertEquals(2, heap.getSize());
+        Assertions.assertEquals(first, heap.getMin());
+        Assertions.assertEquals(third, heap.getMin());
+        Assertions.assertTrue(heap.isEmpty());
+    }
+
+    @Test
+    void addBuildingsHeapifiesTheBatch() {
+        BuildingStore store = new BuildingStore();
+        MinHeap heap = new MinHeap(store);
+        heap.addBuilding(store.add(500, 3, 10));
+        int[] slots = new int[1000];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = store.add(i * 7919 % 1000, i % 4, 10);
+        }
+        heap.addBuildings(slots, slots.length - 1);
+        Assertions.assertEquals(1000, heap.getSize());
+        long previous = Long.MIN_VALUE;
+        while (!heap.isEmpty()) {
+            int min = heap.getMin();
+            long key = MinHeap.packKey(store.getExecutedTime(min), store.getBuildingNumber(min));
+            Assertions.assertTrue(previous < key, "Buildings not in order");
+            previous = key;
+        }
+    }
+
+    @Test
+    void addBuildingsAppendsBatchesToALargeHeap() {
+        BuildingStore store = new BuildingStore();
+        MinHeap heap = new MinHeap(store);
+        Random random = new Random(3);
+        //batches of every size up to the size of the heap, and smaller than its height.
+        for (int batch = 1; heap.getSize() < 200000; batch = batch * 3 % 70001 + 1) {
+            int[] slots = new int[Math.min(batch, heap.getSize() + 1)];
+            for (int i = 0; i < slots.length; i++) {
+                slots[i] = store.add(store.size(), random.nextInt(1000), 1000);
+            }
+            heap.addBuildings(slots, slots.length);
+        }
+        //a removal in place needs the positions which the batches moved.
+        for (int slot = 0; slot < 1000; slot++) {
+            heap.removeBuilding(slot);
+        }
+        int size = heap.getSize();
+        long previous = Long.MIN_VALUE;
+        while (!heap.isEmpty()) {
+            int min = heap.getMin();
+            long key = MinHeap.packKey(store.getExecutedTime(min), store.getBuildingNumber(min));
+            Assertions.assertTrue(previous < key, "Buildings not in order");
+            previous = key;
+            size--;
+        }
+        Assertions.assertEquals(0, size);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,64 @@
+package test.com.project.heap;
+
+import com.project.bean.OffHeapBuildingStore;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+class OffHeapMinHeapTest {
+
+    @Test
+    void ordersLikeTheMinHeapUnderChurn() {
+        OffHeapBuildingStore store = new OffHeapBuildingStore();
+        OffHeapMinHeap queue = new OffHeapMinHeap(store);
+        MinHeap heap = new MinHeap(store);
+        //a bulk load of more slots than a chunk holds, so that the arrays span several chunks.
+        int[] slots = new int[100000];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = store.add(2 * i, 5 * (i % 7), Integer.MAX_VALUE);
+        }
+        queue.addBuildings(slots, slots.length);
+        heap.addBuildings(slots, slots.length);
+        List<Integer> waiting = new ArrayList<>();
+        for (int slot : slots) {
+            waiting.add(slot);
+        }
+        Random random = new Random(5);
+        for (int i = 0; i < 100000; i++) {
+            int operation = random.nextInt(4);
+            if (operation == 0 || waiting.isEmpty()) {
+                int slot = store.add(2 * i + 1, 5 * random.nextInt(20), Integer.MAX_VALUE);
+                queue.addBuilding(slot);
+                heap.addBuilding(slot);
+                waiting.add(slot);
+            } else if (operation == 1) {
+                int min = queue.getMin();
+                Assertions.assertEquals(heap.getMin(), min);
+                waiting.remove(Integer.valueOf(min));
+                store.release(min);
+            } else if (operation == 2) {
+                int slot = waiting.get(random.nextInt(waiting.size()));
+                store.setExecutedTime(slot, store.getExecutedTime(slot) + 5);
+                queue.updateBuilding(slot);
+                heap.updateBuilding(slot);
+            } else {
+                int slot = waiting.remove(random.nextInt(waiting.size()));
+                queue.removeBuilding(slot);
+                heap.removeBuilding(slot);
+                Assertions.assertFalse(queue.contains(slot));
+                store.release(slot);
+            }
+            Assertions.assertEquals(heap.getSize(), queue.getSize());
+            if (!heap.isEmpty()) {
+                Assertions.assertEquals(heap.peekMin(), queue.peekMin());
+            }
+        }
+        queue.close();
+        store.close();
+        Assertions.assertTrue(queue.isEmpty());
+        Assertions.assertEquals(0, store.size());
+    }
+}
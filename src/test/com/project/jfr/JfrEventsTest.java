@@ -0,0 +1,59 @@
+package test.com.project.jfr;
+
+import com.project.RisingCity;
+import com.project.command.StreamCommandReader;
+import com.project.output.OutputSink;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+class JfrEventsTest {
+
+    @Test
+    void recordsTheEventsWhichPassTheSettings() throws Exception {
+        StringBuilder input = new StringBuilder();
+        //20 buildings of 10 slices each end 200 slices.
+        for (int i = 0; i < 20; i++) {
+            input.append(i).append(": Insert(").append(i + 1).append(",50)\n");
+        }
+        input.append("25: PrintBuilding(1,3)\n26: PrintBuilding(1,10)\n27: PrintBuilding(1,20)\n")
+                .append("28: PrintBuilding(50,60)\n");
+        Path file = Files.createTempFile("events", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("com.project.SliceEnd").with("sampleEvery", "10");
+            recording.enable("com.project.RangeQuery").with("minimumCount", "5");
+            recording.start();
+            RisingCity city = new RisingCity(false, new OutputSink(new ByteArrayOutputStream()));
+            city.simulate(new StreamCommandReader(
+                    new ByteArrayInputStream(input.toString().getBytes(StandardCharsets.US_ASCII)), false));
+            recording.stop();
+            recording.dump(file);
+
+            int sliceEnds = 0;
+            List<Integer> rangeCounts = new ArrayList<>();
+            for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+                String name = event.getEventType().getName();
+                if (name.equals("com.project.SliceEnd")) {
+                    sliceEnds++;
+                } else if (name.equals("com.project.RangeQuery")) {
+                    rangeCounts.add(event.getInt("count"));
+                }
+            }
+            //one slice end in ten, and only the ranges of at least 5 buildings.
+            Assertions.assertEquals(20, sliceEnds);
+            Assertions.assertEquals(List.of(10, 20), rangeCounts);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
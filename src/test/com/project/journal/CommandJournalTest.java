@@ -0,0 +1,48 @@
+package test.com.project.journal;
+
+import com.project.command.Command;
+import com.project.command.StreamCommandReader;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+class CommandJournalTest {
+
+    @Test
+    void replaysTheCommandsAfterThePositionWithoutTheTornTail() throws Exception {
+        Path file = Files.createTempFile("journal", ".txt");
+        try {
+            Command command = new Command();
+            long position;
+            try (CommandJournal journal = new CommandJournal(file, 0, 2, 0)) {
+                command.set(0, Command.INSERT, 5, 20);
+                journal.append(command);
+                position = journal.getPosition();
+                Assertions.assertEquals("0: Insert(5,20)\n".length(), position);
+                command.set(7, Command.PRINT, 5, 0);
+                journal.append(command);
+                command.set(9, Command.PRINT_RANGE, 1, 10);
+                journal.append(command);
+                journal.sync();
+                Assertions.assertEquals(3, journal.getCommandCount());
+                Assertions.assertEquals(2, journal.getSyncCount());
+            }
+            //a command which was only partly written when the program crashed.
+            Files.write(file, "12: Ins".getBytes(StandardCharsets.US_ASCII), StandardOpenOption.APPEND);
+
+            StreamCommandReader reader = new StreamCommandReader(CommandJournal.replay(file, position), false);
+            Assertions.assertTrue(reader.next(command));
+            Assertions.assertEquals("7: PrintBuilding(5)", command.toString());
+            Assertions.assertTrue(reader.next(command));
+            Assertions.assertEquals("9: PrintBuilding(1,10)", command.toString());
+            Assertions.assertFalse(reader.next(command));
+            Assertions.assertEquals(position + "7: PrintBuilding(5)\n9: PrintBuilding(1,10)\n".length(), Files.size(file));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package test.com.project.metrics;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class HistogramTest {
+
+    @Test
+    void percentilesAreTheUpperBoundsOfTheirBuckets() {
+        Histogram histogram = new Histogram("test");
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+        histogram.record(-5);
+        HistogramSnapshot snapshot = histogram.snapshot();
+        Assertions.assertEquals(101, snapshot.getCount());
+        Assertions.assertEquals(5050 / 101.0, snapshot.getMean(), 1e-9);
+        //the median 50 is in the bucket [32, 64), the 99th percentile 99 in [64, 128) which is capped by the largest value.
+        Assertions.assertEquals(63, snapshot.getP50());
+        Assertions.assertEquals(100, snapshot.getP99());
+        Assertions.assertEquals(100, snapshot.getMax());
+
+        histogram.reset();
+        Assertions.assertEquals(0, histogram.snapshot().getCount());
+        Assertions.assertEquals(0, histogram.snapshot().getP99());
+    }
+}
@@ -0,0 +1,49 @@
+package test.com.project.output;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+class OutputSinkTest {
+
+    @Test
+    void formatsLikePrintWriter() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        OutputSink sink = new OutputSink(bytes);
+        StringWriter expected = new StringWriter();
+        PrintWriter writer = new PrintWriter(expected);
+        int[] values = {0, 7, -7, 10, 1234567890, Integer.MAX_VALUE, Integer.MIN_VALUE};
+        for (int value : values) {
+            sink.print('(');
+            sink.print(value);
+            sink.print(')');
+            sink.println();
+            writer.print('(');
+            writer.print(value);
+            writer.print(')');
+            writer.println();
+        }
+        sink.print("(0,0,0)");
+        writer.print("(0,0,0)");
+        sink.flush();
+        writer.flush();
+        Assertions.assertEquals(expected.toString(), bytes.toString());
+    }
+
+    @Test
+    void writesMoreThanTheBuffer() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        OutputSink sink = new OutputSink(bytes);
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            sink.print(i);
+            sink.print(',');
+            expected.append(i).append(',');
+        }
+        sink.flush();
+        Assertions.assertEquals(expected.toString(), bytes.toString());
+    }
+}
@@ -0,0 +1,39 @@
+package test.com.project.perf;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+class MacroBenchmarkTest {
+
+    @Test
+    void comparesSmallCostsAgainstAFloor() throws Exception {
+        Path baseline = Files.createTempFile("baseline", ".properties");
+        try {
+            try (OutputStream stream = Files.newOutputStream(baseline)) {
+                results(1000, 0, 200000).store(stream, null);
+            }
+            //a few milliseconds of garbage collection over a baseline of none are noise.
+            Assertions.assertTrue(MacroBenchmark.compare(results(1000, 3, 200000), baseline, 0.1));
+            Assertions.assertTrue(MacroBenchmark.compare(results(950, 55, 210000), baseline, 0.1));
+            Assertions.assertFalse(MacroBenchmark.compare(results(1000, 56, 200000), baseline, 0.1));
+            Assertions.assertFalse(MacroBenchmark.compare(results(899, 0, 200000), baseline, 0.1));
+            Assertions.assertFalse(MacroBenchmark.compare(results(1000, 0, 230000), baseline, 0.1));
+        } finally {
+            Files.deleteIfExists(baseline);
+        }
+    }
+
+    private static Properties results(long commandsPerSecond, long gcMillis, long peakRssKb) {
+        Properties results = new Properties();
+        results.setProperty("commandsPerSecond", String.valueOf(commandsPerSecond));
+        results.setProperty("daysPerSecond", String.valueOf(commandsPerSecond * 10));
+        results.setProperty("gcMillis", String.valueOf(gcMillis));
+        results.setProperty("peakRssKb", String.valueOf(peakRssKb));
+        return results;
+    }
+}
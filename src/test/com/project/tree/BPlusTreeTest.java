@@ -0,0 +1,31 @@
+package test.com.project.tree;
+
+import com.project.bean.BuildingStore;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class BPlusTreeTest extends BuildingIndexTest {
+
+    @Override
+    BuildingIndex newIndex(BuildingStore store) {
+        return new BPlusTree(store);
+    }
+
+    @Test
+    void bulkLoadsFullLeaves() throws Exception {
+        BuildingStore store = new BuildingStore();
+        BPlusTree tree = new BPlusTree(store);
+        int[] slots = new int[300000];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = store.add(2 * i, 0, 10);
+        }
+        tree.addBuildings(slots, slots.length);
+        //4688 full leaves of 64 buildings take three levels of inner nodes of 64 children above them.
+        Assertions.assertEquals(4, tree.getHeight());
+        for (int i = 1; i < slots.length; i++) {
+            tree.removeBuilding(slots[i]);
+        }
+        Assertions.assertEquals(1, tree.getHeight());
+        Assertions.assertEquals(slots[0], tree.searchBuilding(0));
+    }
+}
@@ -0,0 +1,164 @@
+package test.com.project.tree;
+
+import com.project.bean.BuildingStore;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * The tests which every {@link BuildingIndex} passes, run by the test of each index against a {@link TreeMap}.
+ */
+abstract class BuildingIndexTest {
+
+    /**
+     * @param store the store which holds the buildings.
+     * @return Returns a new empty index over the store.
+     */
+    abstract BuildingIndex newIndex(BuildingStore store);
+
+    /**
+     * @return Returns a new empty store for the buildings of the index.
+     */
+    BuildingStore newStore() {
+        return new BuildingStore();
+    }
+
+    @Test
+    void matchesSortedMapUnderChurn() throws Exception {
+        BuildingStore store = newStore();
+        BuildingIndex index = newIndex(store);
+        TreeMap<Integer, Integer> expected = new TreeMap<>();
+        Random random = new Random(11);
+        for (int i = 0; i < 200000; i++) {
+            //the range of the building numbers narrows and widens so that whole subtrees empty out and fill again.
+            int buildingNumber = random.nextInt(i % 100000 < 50000 ? 20000 : 2000) - 1000;
+            Integer slot = expected.get(buildingNumber);
+            if (slot == null) {
+                slot = store.add(buildingNumber, 0, 10);
+                index.addBuilding(slot);
+                expected.put(buildingNumber, slot);
+            } else {
+                Assertions.assertEquals((int) slot, index.searchBuilding(buildingNumber));
+                index.removeBuilding(slot);
+                store.release(slot);
+                expected.remove(buildingNumber);
+                Assertions.assertEquals(BuildingStore.NO_SLOT, index.searchBuilding(buildingNumber));
+            }
+            if (i % 1000 == 0) {
+                int start = random.nextInt(22000) - 2000;
+                int end = start + random.nextInt(3000);
+                List<Integer> slots = new ArrayList<>();
+                index.forEachInRange(start, end, slots::add);
+                Assertions.assertEquals(new ArrayList<>(expected.subMap(start, true, end, true).values()), slots);
+            }
+        }
+        List<Integer> all = new ArrayList<>();
+        index.forEachInRange(Integer.MIN_VALUE, Integer.MAX_VALUE, all::add);
+        Assertions.assertEquals(new ArrayList<>(expected.values()), all);
+    }
+
+    @Test
+    void addDuplicateThrows() throws Exception {
+        BuildingStore store = newStore();
+        BuildingIndex index = newIndex(store);
+        index.addBuilding(store.add(1, 0, 10));
+        Exception exception = Assertions.assertThrows(Exception.class, () -> index.addBuilding(store.add(1, 0, 5)));
+        Assertions.assertEquals("com.project.bean.Building 1 is already present!", exception.getMessage());
+        Assertions.assertEquals(BuildingStore.NO_SLOT, index.searchBuilding(2));
+    }
+
+    @Test
+    void addBuildingsMergesSortedBatches() throws Exception {
+        BuildingStore store = newStore();
+        BuildingIndex index = newIndex(store);
+        index.addBuilding(store.add(1001, 0, 10));
+        int[] slots = new int[2000];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = store.add(i * 2, 0, 10);
+        }
+        index.addBuildings(slots, slots.length);
+        //a small batch next to the large index goes one building at a time.
+        index.addBuildings(new int[]{store.add(3, 0, 10), store.add(5, 0, 10)}, 2);
+        List<Integer> visited = new ArrayList<>();
+        index.forEachInRange(0, 10, visited::add);
+        Assertions.assertEquals(List.of(0, 2, 3, 4, 5, 6, 8, 10), numbers(store, visited));
+        for (int i = 0; i < slots.length; i += 2) {
+            index.removeBuilding(slots[i]);
+        }
+        Assertions.assertEquals(slots[1], index.searchBuilding(2));
+        Assertions.assertEquals(BuildingStore.NO_SLOT, index.searchBuilding(4));
+        Exception exception = Assertions.assertThrows(Exception.class,
+                () -> index.addBuildings(new int[]{store.add(7, 0, 10), store.add(1001, 0, 10)}, 2));
+        Assertions.assertEquals("com.project.bean.Building 1001 is already present!", exception.getMessage());
+    }
+
+    @Test
+    void bulkLoadsAndEmptiesOut() throws Exception {
+        BuildingStore store = newStore();
+        BuildingIndex index = newIndex(store);
+        int[] slots = new int[300000];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = store.add(2 * i, 0, 10);
+        }
+        index.addBuildings(slots, slots.length);
+        Assertions.assertEquals(slots[1234], index.searchBuilding(2468));
+        Assertions.assertEquals(BuildingStore.NO_SLOT, index.searchBuilding(2469));
+        Assertions.assertThrows(Exception.class, () -> index.addBuilding(store.add(2468, 0, 10)));
+
+        int odd = store.add(2469, 0, 10);
+        index.addBuilding(odd);
+        List<Integer> range = new ArrayList<>();
+        index.forEachInRange(2467, 2470, range::add);
+        Assertions.assertEquals(List.of(slots[1234], odd, slots[1235]), range);
+
+        for (int slot : slots) {
+            index.removeBuilding(slot);
+        }
+        Assertions.assertEquals(odd, index.searchBuilding(2469));
+        index.removeBuilding(odd);
+        Assertions.assertEquals(BuildingStore.NO_SLOT, index.searchBuilding(2469));
+        index.addBuilding(slots[0]);
+        Assertions.assertEquals(slots[0], index.searchBuilding(0));
+    }
+
+    @Test
+    void mergeWithADuplicateLeavesTheIndexAsItWas() throws Exception {
+        BuildingStore store = newStore();
+        BuildingIndex index = newIndex(store);
+        TreeMap<Integer, Integer> expected = new TreeMap<>();
+        //the first batch fills the empty index, the next ones fall between its buildings and are merged.
+        for (int offset = 0; offset < 3; offset++) {
+            int[] slots = new int[50000 << offset];
+            for (int i = 0; i < slots.length; i++) {
+                int buildingNumber = (i << (3 - offset)) + (offset == 0 ? 0 : 1 << (2 - offset));
+                slots[i] = store.add(buildingNumber, 0, 10);
+                expected.put(buildingNumber, slots[i]);
+            }
+            index.addBuildings(slots, slots.length);
+        }
+        //a batch of new buildings but one, which comes long after the start of the merge.
+        int[] duplicates = new int[expected.size()];
+        for (int i = 0; i < duplicates.length; i++) {
+            duplicates[i] = store.add(8 * i + (i == duplicates.length / 8 ? 3 : 4), 0, 10);
+        }
+        Assertions.assertThrows(Exception.class, () -> index.addBuildings(duplicates, duplicates.length));
+
+        List<Integer> all = new ArrayList<>();
+        index.forEachInRange(Integer.MIN_VALUE, Integer.MAX_VALUE, all::add);
+        Assertions.assertEquals(new ArrayList<>(expected.values()), all);
+        Assertions.assertEquals((int) expected.get(400), index.searchBuilding(400));
+        Assertions.assertEquals(BuildingStore.NO_SLOT, index.searchBuilding(404));
+    }
+
+    private static List<Integer> numbers(BuildingStore store, List<Integer> slots) {
+        List<Integer> numbers = new ArrayList<>();
+        for (int slot : slots) {
+            numbers.add(store.getBuildingNumber(slot));
+        }
+        return numbers;
+    }
+}
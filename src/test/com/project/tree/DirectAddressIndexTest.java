@@ -0,0 +1,60 @@
+package test.com.project.tree;
+
+import com.project.bean.BuildingStore;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class DirectAddressIndexTest extends BuildingIndexTest {
+
+    @Override
+    BuildingIndex newIndex(BuildingStore store) {
+        return new DirectAddressIndex(store, new RedBackTree(store));
+    }
+
+    @Test
+    void looksDenseBuildingsUpDirectly() throws Exception {
+        BuildingStore store = new BuildingStore();
+        DirectAddressIndex index = new DirectAddressIndex(store, new RedBackTree(store));
+        int[] slots = new int[5000];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = store.add(i, 0, 10);
+            index.addBuilding(slots[i]);
+        }
+        for (int i = 0; i < slots.length; i += 3) {
+            index.removeBuilding(slots[i]);
+            store.release(slots[i]);
+        }
+        Assertions.assertTrue(index.isDirect());
+        Assertions.assertEquals(slots[4000], index.searchBuilding(4000));
+        Assertions.assertEquals(BuildingStore.NO_SLOT, index.searchBuilding(3999));
+        Assertions.assertEquals(BuildingStore.NO_SLOT, index.searchBuilding(5000));
+        Assertions.assertEquals(BuildingStore.NO_SLOT, index.searchBuilding(-1));
+    }
+
+    @Test
+    void fallsBackToTheTreeWhenSparseAndComesBack() throws Exception {
+        BuildingStore store = new BuildingStore();
+        DirectAddressIndex index = new DirectAddressIndex(store, new PooledRedBlackTree(store));
+        int far = store.add(Integer.MAX_VALUE, 0, 10);
+        index.addBuilding(far);
+        Assertions.assertFalse(index.isDirect());
+        Assertions.assertEquals(far, index.searchBuilding(Integer.MAX_VALUE));
+
+        //once the buildings are dense again the pages come back at the next check.
+        index.removeBuilding(far);
+        int[] slots = new int[100000];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = store.add(i, 0, 10);
+        }
+        index.addBuildings(slots, slots.length);
+        Assertions.assertTrue(index.isDirect());
+        Assertions.assertEquals(slots[4242], index.searchBuilding(4242));
+        Assertions.assertEquals(BuildingStore.NO_SLOT, index.searchBuilding(Integer.MAX_VALUE));
+
+        int negative = store.add(-5, 0, 10);
+        index.addBuilding(negative);
+        Assertions.assertFalse(index.isDirect());
+        Assertions.assertEquals(negative, index.searchBuilding(-5));
+        Assertions.assertEquals(slots[4242], index.searchBuilding(4242));
+    }
+}
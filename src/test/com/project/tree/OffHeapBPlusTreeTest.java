@@ -0,0 +1,114 @@
+package test.com.project.tree;
+
+import com.project.bean.BuildingStore;
+import com.project.bean.OffHeapBuildingStore;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class OffHeapBPlusTreeTest extends BuildingIndexTest {
+
+    @Override
+    BuildingIndex newIndex(BuildingStore store) {
+        return new OffHeapBPlusTree(store);
+    }
+
+    @Override
+    BuildingStore newStore() {
+        return new OffHeapBuildingStore();
+    }
+
+    @Test
+    void growsAcrossChunksOneBuildingAtATime() throws Exception {
+        OffHeapBuildingStore store = new OffHeapBuildingStore();
+        OffHeapBPlusTree tree = new OffHeapBPlusTree(store);
+        //more slots than a chunk of the store holds, and thousands of blocks over many chunks of the tree.
+        int[] slots = new int[100000];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = store.add((int) (i * 2654435761L % slots.length), 0, 10);
+            tree.addBuilding(slots[i]);
+        }
+        Assertions.assertTrue(slots[slots.length - 1] > 65536);
+        for (int slot : slots) {
+            Assertions.assertEquals(slot, tree.searchBuilding(store.getBuildingNumber(slot)));
+        }
+        List<Integer> all = new ArrayList<>();
+        tree.forEachInRange(Integer.MIN_VALUE, Integer.MAX_VALUE, slot -> all.add(store.getBuildingNumber(slot)));
+        for (int i = 0; i < all.size(); i++) {
+            Assertions.assertEquals(i, (int) all.get(i));
+        }
+        tree.close();
+        store.close();
+    }
+
+    @Test
+    void bulkLoadsFullLeavesAndReusesFreedBlocks() throws Exception {
+        OffHeapBuildingStore store = new OffHeapBuildingStore();
+        OffHeapBPlusTree tree = new OffHeapBPlusTree(store);
+        int[] slots = new int[300000];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = store.add(2 * i, 0, 10);
+        }
+        tree.addBuildings(slots, slots.length);
+        //4688 full leaves of 64 buildings take three levels of inner nodes of 64 children above them.
+        Assertions.assertEquals(4, tree.getHeight());
+        int blockCount = tree.getBlockCount();
+        for (int slot : slots) {
+            tree.removeBuilding(slot);
+        }
+        Assertions.assertEquals(1, tree.getHeight());
+        //the blocks of the removed nodes take the next buildings, so the tree grows no new block. Leaves filled one
+        //building at a time are split in halves, so a quarter of the buildings takes about half of the blocks.
+        for (int i = 0; i < slots.length / 4; i++) {
+            tree.addBuilding(slots[i]);
+        }
+        Assertions.assertEquals(blockCount, tree.getBlockCount());
+        Assertions.assertEquals(slots[1234], tree.searchBuilding(2468));
+        tree.close();
+        store.close();
+    }
+
+    @Test
+    void failsOnceClosed() throws Exception {
+        OffHeapBuildingStore store = new OffHeapBuildingStore();
+        OffHeapBPlusTree tree = new OffHeapBPlusTree(store);
+        int slot = store.add(7, 0, 10);
+        tree.addBuilding(slot);
+        tree.close();
+        store.close();
+        //the memory is freed, so every access fails instead of reading it.
+        Assertions.assertThrows(ArrayIndexOutOfBoundsException.class, () -> tree.searchBuilding(7));
+        Assertions.assertThrows(ArrayIndexOutOfBoundsException.class, () -> tree.forEachInRange(0, 10, s -> {
+        }));
+        Assertions.assertThrows(ArrayIndexOutOfBoundsException.class, () -> store.getBuildingNumber(slot));
+    }
+
+    @Test
+    void keepsTheChunksOfARebuildWhileShared() throws Exception {
+        long[] capacities = new long[2];
+        for (int shared = 0; shared < 2; shared++) {
+            OffHeapBuildingStore store = new OffHeapBuildingStore();
+            OffHeapBPlusTree tree = new OffHeapBPlusTree(store);
+            if (shared == 1) {
+                tree.shareWithReaders();
+            }
+            //leaves filled one building at a time are split in halves, so the rebuild takes fewer blocks per building.
+            for (int i = 0; i < 100000; i++) {
+                tree.addBuilding(store.add((int) (i * 2654435761L % 100000) * 2, 0, 10));
+            }
+            int[] slots = new int[100000];
+            for (int i = 0; i < slots.length; i++) {
+                slots[i] = store.add(2 * i + 1, 0, 10);
+            }
+            tree.addBuildings(slots, slots.length);
+            Assertions.assertEquals(slots[500], tree.searchBuilding(1001));
+            capacities[shared] = tree.getCapacity();
+            tree.close();
+            store.close();
+        }
+        //a reader may still hold the chunks which the rebuild of a shared tree left over, so they are not freed.
+        Assertions.assertTrue(capacities[1] > capacities[0]);
+    }
+}
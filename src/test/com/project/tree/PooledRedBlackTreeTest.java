@@ -0,0 +1,11 @@
+package test.com.project.tree;
+
+import com.project.bean.BuildingStore;
+
+class PooledRedBlackTreeTest extends BuildingIndexTest {
+
+    @Override
+    BuildingIndex newIndex(BuildingStore store) {
+        return new PooledRedBlackTree(store);
+    }
+}
@@ -0,0 +1,153 @@
+package test.com.project.tree;
+
+import com.project.bean.BuildingStore;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+class RedBackTreeTest extends BuildingIndexTest {
+
+    @Override
+    BuildingIndex newIndex(BuildingStore store) {
+        return new RedBackTree(store);
+    }
+
+    @Test
+    void searchBuilding() throws Exception {
+        BuildingStore store = new BuildingStore();
+        RedBackTree tree = new RedBackTree(store);
+        for (int i = 1; i <= 100; i++) {
+            tree.addBuilding(store.add(i * 2, 0, 10));
+        }
+        Assertions.assertEquals(50, store.getBuildingNumber(tree.searchBuilding(50)));
+        Assertions.assertEquals(BuildingStore.NO_SLOT, tree.searchBuilding(51));
+        Assertions.assertEquals(50, tree.searchNode(50).getKey());
+    }
+
+    @Test
+    void rangeCursorWalksInOrder() throws Exception {
+        BuildingStore store = new BuildingStore();
+        RedBackTree tree = new RedBackTree(store);
+        for (int i = 100; i > 0; i--) {
+            tree.addBuilding(store.add(i * 2, 0, 10));
+        }
+        tree.removeBuilding(tree.searchBuilding(20));
+        RangeCursor cursor = new RangeCursor(tree);
+        List<Integer> buildingNumbers = new ArrayList<>();
+        cursor.seek(15, 27);
+        while (cursor.next()) {
+            buildingNumbers.add(cursor.getBuildingNumber());
+        }
+        Assertions.assertEquals(List.of(16, 18, 22, 24, 26), buildingNumbers);
+        Assertions.assertFalse(cursor.seek(300, 400).next());
+        Assertions.assertFalse(cursor.seek(30, 10).next());
+    }
+
+    @Test
+    void forEachInRangeMatchesList() throws Exception {
+        BuildingStore store = new BuildingStore();
+        RedBackTree tree = new RedBackTree(store);
+        for (int i = 1; i <= 50; i++) {
+            tree.addBuilding(store.add((i * 37) % 101, 0, 10));
+        }
+        List<Integer> visited = new ArrayList<>();
+        tree.forEachInRange(10, 60, visited::add);
+        Assertions.assertEquals(tree.getBuildingsInRange(10, 60), visited);
+        int previous = Integer.MIN_VALUE;
+        for (int slot : visited) {
+            Assertions.assertTrue(store.getBuildingNumber(slot) > previous);
+            previous = store.getBuildingNumber(slot);
+        }
+    }
+
+    @Test
+    void rangeAggregatesMatchTheBuildings() throws Exception {
+        BuildingStore store = new BuildingStore();
+        RedBackTree tree = new RedBackTree(store);
+        TreeMap<Integer, Integer> expected = new TreeMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 20000; i++) {
+            int buildingNumber = random.nextInt(1000);
+            Integer slot = expected.get(buildingNumber);
+            if (slot == null) {
+                slot = store.add(buildingNumber, 0, 1 + random.nextInt(100));
+                tree.addBuilding(slot);
+                expected.put(buildingNumber, slot);
+            } else if (random.nextBoolean()) {
+                store.setExecutedTime(slot, random.nextInt(store.getTotalTime(slot) + 1));
+                tree.updateBuilding(slot);
+            } else {
+                tree.removeBuilding(slot);
+                store.release(slot);
+                expected.remove(buildingNumber);
+            }
+        }
+        for (int i = 0; i < 200; i++) {
+            int start = random.nextInt(1100) - 50;
+            int end = start + random.nextInt(300);
+            int count = 0;
+            long executed = 0;
+            long total = 0;
+            for (int slot : expected.subMap(start, true, end, true).values()) {
+                count++;
+                executed += store.getExecutedTime(slot);
+                total += store.getTotalTime(slot);
+            }
+            Assertions.assertEquals(count, tree.countInRange(start, end));
+            Assertions.assertEquals(executed, tree.executedTimeInRange(start, end));
+            Assertions.assertEquals(total - executed, tree.remainingTimeInRange(start, end));
+            Assertions.assertEquals(expected.headMap(start).size(), tree.rank(start));
+        }
+        List<Integer> slots = new ArrayList<>(expected.values());
+        for (int rank = 0; rank < slots.size(); rank++) {
+            Assertions.assertEquals((int) slots.get(rank), tree.select(rank));
+        }
+        Assertions.assertEquals(BuildingStore.NO_SLOT, tree.select(slots.size()));
+    }
+
+    @Test
+    void removedBuildingsLeaveTheDirtyList() throws Exception {
+        BuildingStore store = new BuildingStore();
+        RedBackTree tree = new RedBackTree(store);
+        tree.addBuilding(store.add(-1, 3, 10));
+        for (int i = 0; i < 100000; i++) {
+            //one building at a time is worked on, updated at the end of its slices and removed once finished.
+            int slot = store.add(i, 0, 10);
+            tree.addBuilding(slot);
+            store.setExecutedTime(slot, 5);
+            tree.updateBuilding(slot);
+            store.setExecutedTime(slot, 10);
+            tree.updateBuilding(slot);
+            tree.removeBuilding(slot);
+            store.release(slot);
+        }
+        Assertions.assertEquals(0, tree.getDirtyCount());
+        int last = store.add(100000, 0, 10);
+        tree.addBuilding(last);
+        store.setExecutedTime(last, 4);
+        tree.updateBuilding(last);
+        Assertions.assertEquals(1, tree.getDirtyCount());
+        Assertions.assertEquals(7, tree.executedTimeInRange(Integer.MIN_VALUE, Integer.MAX_VALUE));
+        Assertions.assertEquals(0, tree.getDirtyCount());
+    }
+
+    @Test
+    void tornLinksEndTheWalks() throws Exception {
+        BuildingStore store = new BuildingStore();
+        RedBackTree tree = new RedBackTree(store);
+        for (int i = 1; i <= 100; i++) {
+            tree.addBuilding(store.add(i * 2, 0, 10));
+        }
+        //a cycle, as a query might read in the middle of a rotation.
+        TreeNode first = tree.searchNode(2);
+        first.leftChild = first;
+        Assertions.assertEquals(BuildingStore.NO_SLOT, tree.searchBuilding(1));
+        List<Integer> visited = new ArrayList<>();
+        tree.forEachInRange(1, 1, visited::add);
+        Assertions.assertTrue(visited.isEmpty());
+    }
+}